@@ -25,13 +25,16 @@ import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.dataset.lib.KeyValue;
 import co.cask.cdap.etl.api.Emitter;
+import co.cask.cdap.etl.api.PipelineConfigurer;
 import co.cask.cdap.etl.api.batch.BatchSink;
 import co.cask.cdap.etl.api.batch.BatchSinkContext;
 import co.cask.cdap.format.StructuredRecordStringConverter;
 import co.cask.hydrator.common.ReferenceBatchSink;
 import co.cask.hydrator.common.ReferencePluginConfig;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
 import org.apache.cassandra.hadoop.cql3.CqlOutputFormat;
 import org.apache.cassandra.utils.ByteBufferUtil;
 
@@ -49,6 +52,10 @@ import javax.annotation.Nullable;
  * A {@link BatchSink} that writes data to Cassandra.
  * This {@link BatchCassandraSink} takes a {@link StructuredRecord} in,
  * converts it to columns, and writes it to the Cassandra server.
+ *
+ * In the bulk output mode, the records are written by the {@link SSTableBulkOutputFormat} into SSTables on the
+ * local disk of every task, which are streamed to the cluster when the task completes, instead of being inserted
+ * through CQL.
  */
 @Plugin(type = BatchSink.PLUGIN_TYPE)
 @Name("Cassandra")
@@ -56,6 +63,9 @@ import javax.annotation.Nullable;
   "and converts each field to a byte buffer, then puts it in the keyspace and column family specified by the user.")
 public class BatchCassandraSink
   extends ReferenceBatchSink<StructuredRecord, Map<String, ByteBuffer>, List<ByteBuffer>> {
+  private static final String OUTPUT_MODE_CQL = "cql";
+  private static final String OUTPUT_MODE_BULK = "bulk";
+
   private final CassandraBatchConfig config;
 
   public BatchCassandraSink(CassandraBatchConfig config) {
@@ -63,6 +73,28 @@ public class BatchCassandraSink
     this.config = config;
   }
 
+  @Override
+  public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
+    super.configurePipeline(pipelineConfigurer);
+    if (!Strings.isNullOrEmpty(config.outputMode) && !config.isBulk() &&
+      !OUTPUT_MODE_CQL.equalsIgnoreCase(config.outputMode)) {
+      throw new IllegalArgumentException(String.format("Invalid output mode '%s'. It must be either '%s' or '%s'.",
+                                                       config.outputMode, OUTPUT_MODE_CQL, OUTPUT_MODE_BULK));
+    }
+    if (config.isBulk() && Strings.isNullOrEmpty(config.tableSchema)) {
+      throw new IllegalArgumentException(String.format("The '%s' property is required in the '%s' output mode.",
+                                                       Cassandra.TABLE_SCHEMA, OUTPUT_MODE_BULK));
+    }
+    if (config.bufferSize != null && config.bufferSize < 1) {
+      throw new IllegalArgumentException(String.format("Invalid value %d for '%s'. It must be at least 1.",
+                                                       config.bufferSize, Cassandra.BUFFER_SIZE));
+    }
+    if (config.streamThrottle != null && config.streamThrottle < 0) {
+      throw new IllegalArgumentException(String.format("Invalid value %d for '%s'. It must not be negative.",
+                                                       config.streamThrottle, Cassandra.STREAM_THROTTLE));
+    }
+  }
+
   @Override
   public void prepareRun(BatchSinkContext context) {
     context.addOutput(Output.of(config.referenceName, new CassandraOutputFormatProvider(config)));
@@ -78,7 +110,19 @@ public class BatchCassandraSink
                                                                        .toDelimitedString(record, ";")));
       keys.put(key, encodeObject(record.get(key), record.getSchema().getField(key).getSchema()));
     }
-    emitter.emit(new KeyValue<>(keys, getColumns(record)));
+    emitter.emit(new KeyValue<>(keys, config.isBulk() ? getAllColumns(record) : getColumns(record)));
+  }
+
+  /**
+   * Returns the values of all columns, including the primary key, in the order of the insert statement used by
+   * the bulk output mode.
+   */
+  private List<ByteBuffer> getAllColumns(StructuredRecord record) throws Exception {
+    List<ByteBuffer> columns = new ArrayList<>();
+    for (String columnName : CharMatcher.WHITESPACE.removeFrom(config.columns).split(",")) {
+      columns.add(encodeObject(record.get(columnName), record.getSchema().getField(columnName).getSchema()));
+    }
+    return columns;
   }
 
   private List<ByteBuffer> getColumns(StructuredRecord record) throws Exception {
@@ -161,8 +205,41 @@ public class BatchCassandraSink
     @Description("A comma-separated list of primary keys. For example: \"key1,key2\".")
     private String primaryKey;
 
+    @Name(Cassandra.OUTPUT_MODE)
+    @Nullable
+    @Description("How the records are written. 'cql' inserts the records through CQL statements. 'bulk' writes " +
+      "the records into SSTables on the local disk of each task and streams them to the cluster when the task " +
+      "completes, which is much faster for large loads. Defaults to 'cql'.")
+    private String outputMode;
+
+    @Name(Cassandra.TABLE_SCHEMA)
+    @Nullable
+    @Description("The CREATE TABLE statement of the column family, including the keyspace. " +
+      "Required in the 'bulk' output mode to write the SSTables.")
+    private String tableSchema;
+
+    @Name(Cassandra.BUFFER_SIZE)
+    @Nullable
+    @Description("The size in MB of the records buffered in memory before they are written to a new SSTable " +
+      "in the 'bulk' output mode. Defaults to 64.")
+    private Integer bufferSize;
+
+    @Name(Cassandra.STREAM_THROTTLE)
+    @Nullable
+    @Description("The maximum throughput in megabits per second of each task streaming SSTables to the cluster " +
+      "in the 'bulk' output mode. 0 means unthrottled. Defaults to 0.")
+    private Integer streamThrottle;
+
     public CassandraBatchConfig(String referenceName, String partitioner, @Nullable Integer port, String columnFamily,
                                 String keyspace, String initialAddress, String columns, String primaryKey) {
+      this(referenceName, partitioner, port, columnFamily, keyspace, initialAddress, columns, primaryKey,
+           null, null, null, null);
+    }
+
+    public CassandraBatchConfig(String referenceName, String partitioner, @Nullable Integer port, String columnFamily,
+                                String keyspace, String initialAddress, String columns, String primaryKey,
+                                @Nullable String outputMode, @Nullable String tableSchema,
+                                @Nullable Integer bufferSize, @Nullable Integer streamThrottle) {
       super(referenceName);
       this.partitioner = partitioner;
       this.initialAddress = initialAddress;
@@ -171,14 +248,25 @@ public class BatchCassandraSink
       this.keyspace = keyspace;
       this.columns = columns;
       this.primaryKey = primaryKey;
+      this.outputMode = outputMode;
+      this.tableSchema = tableSchema;
+      this.bufferSize = bufferSize;
+      this.streamThrottle = streamThrottle;
+    }
+
+    private boolean isBulk() {
+      return OUTPUT_MODE_BULK.equalsIgnoreCase(outputMode);
     }
   }
 
-  private static class CassandraOutputFormatProvider implements OutputFormatProvider {
+  @VisibleForTesting
+  static class CassandraOutputFormatProvider implements OutputFormatProvider {
     private final Map<String, String> conf;
+    private final boolean bulk;
 
     public CassandraOutputFormatProvider(CassandraBatchConfig config) {
       this.conf = new HashMap<>();
+      this.bulk = config.isBulk();
 
       conf.put("cassandra.output.thrift.port", config.port == null ? "9160" : Integer.toString(config.port));
       conf.put("cassandra.output.thrift.address", config.initialAddress);
@@ -186,6 +274,23 @@ public class BatchCassandraSink
       conf.put("mapreduce.output.basename", config.columnFamily);
       conf.put("cassandra.output.partitioner.class", config.partitioner);
 
+      if (bulk) {
+        // the SSTables are written with the given schema, and every record binds all columns of the insert statement
+        String columns = CharMatcher.WHITESPACE.removeFrom(config.columns);
+        SSTableBulkOutputFormat.setTableSchema(conf, config.columnFamily, config.tableSchema);
+        String insert = String.format("INSERT INTO %s.%s (%s) VALUES (%s)", config.keyspace, config.columnFamily,
+                                      columns.replaceAll(",", ", "),
+                                      columns.replaceAll("[^,]+", "?").replaceAll(",", ", "));
+        SSTableBulkOutputFormat.setInsertStatement(conf, config.columnFamily, insert);
+        if (config.bufferSize != null) {
+          conf.put(SSTableBulkOutputFormat.BUFFER_SIZE_IN_MB, Integer.toString(config.bufferSize));
+        }
+        if (config.streamThrottle != null) {
+          conf.put(SSTableBulkOutputFormat.STREAM_THROTTLE_MBITS, Integer.toString(config.streamThrottle));
+        }
+        return;
+      }
+
       // The query needs to include the non-primary key columns.
       // For example, the query might be "UPDATE keyspace.columnFamily SET column1 = ?, column2 = ? "
       // The primary keys are then added by Cassandra
@@ -201,9 +306,7 @@ public class BatchCassandraSink
 
     @Override
     public String getOutputFormatClassName() {
-      // ideally, we will use CqlBulkOutputFormat once Cassandra implements the patch
-      // to make the Hadoop-CQL package compatible with Hadoop
-      return CqlOutputFormat.class.getName();
+      return bulk ? SSTableBulkOutputFormat.class.getName() : CqlOutputFormat.class.getName();
     }
 
     @Override
@@ -223,5 +326,9 @@ public class BatchCassandraSink
     public static final String INITIAL_ADDRESS = "initialAddress";
     public static final String COLUMNS = "columns";
     public static final String PRIMARY_KEY = "primaryKey";
+    public static final String OUTPUT_MODE = "outputMode";
+    public static final String TABLE_SCHEMA = "tableSchema";
+    public static final String BUFFER_SIZE = "bufferSize";
+    public static final String STREAM_THROTTLE = "streamThrottle";
   }
 }
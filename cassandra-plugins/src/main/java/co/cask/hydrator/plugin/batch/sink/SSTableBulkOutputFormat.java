@@ -0,0 +1,269 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.sink;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.Config;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.exceptions.InvalidRequestException;
+import org.apache.cassandra.hadoop.ConfigHelper;
+import org.apache.cassandra.io.sstable.CQLSSTableWriter;
+import org.apache.cassandra.io.sstable.SSTableLoader;
+import org.apache.cassandra.streaming.StreamState;
+import org.apache.cassandra.thrift.Cassandra;
+import org.apache.cassandra.thrift.TokenRange;
+import org.apache.cassandra.utils.OutputHandler;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * An {@link OutputFormat} that writes the records of every task into SSTables on the local disk, and streams them
+ * to the replicas of the cluster when the task completes.
+ *
+ * The SSTables are written with the {@link CQLSSTableWriter} and streamed with the {@link SSTableLoader} of
+ * Cassandra. The value of every record is the list of all values bound to the configured insert statement, in
+ * the order of the statement. The key is ignored, since the primary key is part of the values.
+ *
+ * The output keyspace, column family, partitioner, initial address and RPC port are read with the
+ * {@link ConfigHelper}, like for the other Cassandra output formats. The ring of the keyspace is described through
+ * Thrift, but the table metadata is compiled from the configured schema, since tables created through CQL are not
+ * visible through Thrift.
+ */
+public class SSTableBulkOutputFormat extends OutputFormat<Map<String, ByteBuffer>, List<ByteBuffer>> {
+  public static final String OUTPUT_LOCATION = "mapreduce.output.bulkoutputformat.localdir";
+  public static final String BUFFER_SIZE_IN_MB = "mapreduce.output.bulkoutputformat.buffersize";
+  public static final String STREAM_THROTTLE_MBITS = "mapreduce.output.bulkoutputformat.streamthrottlembits";
+  private static final String TABLE_SCHEMA_PREFIX = "cassandra.columnfamily.schema.";
+  private static final String INSERT_STATEMENT_PREFIX = "cassandra.columnfamily.insert.";
+  private static final int DEFAULT_BUFFER_SIZE_IN_MB = 64;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SSTableBulkOutputFormat.class);
+
+  private static boolean clientConfigured;
+
+  /**
+   * Sets the CREATE TABLE statement the SSTables of the given column family are written with.
+   */
+  public static void setTableSchema(Map<String, String> conf, String columnFamily, String schema) {
+    conf.put(TABLE_SCHEMA_PREFIX + columnFamily, schema);
+  }
+
+  /**
+   * Sets the INSERT statement the values of every record of the given column family are bound to.
+   */
+  public static void setInsertStatement(Map<String, String> conf, String columnFamily, String insert) {
+    conf.put(INSERT_STATEMENT_PREFIX + columnFamily, insert);
+  }
+
+  /**
+   * Puts Cassandra into client mode, so that writing and streaming SSTables does not load the configuration of a
+   * Cassandra server, and sets the stream throttle of the given configuration. These settings are static in
+   * Cassandra, so they are only set by the first record writer, and the throttle applies to all the SSTables
+   * streamed from this JVM.
+   */
+  private static synchronized void configureClient(Configuration conf) {
+    if (clientConfigured) {
+      return;
+    }
+    Config.setClientMode(true);
+    Config.setOutboundBindAny(true);
+    DatabaseDescriptor.setStreamThroughputOutboundMegabitsPerSec(conf.getInt(STREAM_THROTTLE_MBITS, 0));
+    clientConfigured = true;
+  }
+
+  @Override
+  public void checkOutputSpecs(JobContext context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    String keyspace = ConfigHelper.getOutputKeyspace(conf);
+    String columnFamily = ConfigHelper.getOutputColumnFamily(conf);
+    if (Strings.isNullOrEmpty(keyspace) || Strings.isNullOrEmpty(columnFamily)) {
+      throw new IOException("The output keyspace and column family must be set.");
+    }
+    if (Strings.isNullOrEmpty(conf.get(TABLE_SCHEMA_PREFIX + columnFamily)) ||
+      Strings.isNullOrEmpty(conf.get(INSERT_STATEMENT_PREFIX + columnFamily))) {
+      throw new IOException(String.format("The schema and the insert statement of column family '%s' must be set.",
+                                          columnFamily));
+    }
+  }
+
+  @Override
+  public RecordWriter<Map<String, ByteBuffer>, List<ByteBuffer>> getRecordWriter(TaskAttemptContext context)
+    throws IOException {
+    return new SSTableBulkRecordWriter(context.getConfiguration());
+  }
+
+  @Override
+  public OutputCommitter getOutputCommitter(TaskAttemptContext context) throws IOException {
+    // the SSTables of a task are streamed when its record writer is closed, so there is nothing to commit
+    return new NullOutputFormat<Map<String, ByteBuffer>, List<ByteBuffer>>().getOutputCommitter(context);
+  }
+
+  /**
+   * Writes the records into SSTables in a local directory, and streams them to the cluster when closed.
+   */
+  @VisibleForTesting
+  static class SSTableBulkRecordWriter extends RecordWriter<Map<String, ByteBuffer>, List<ByteBuffer>> {
+    private final Configuration conf;
+    private final String keyspace;
+    private final String columnFamily;
+    private final File baseDir;
+    private final File outputDir;
+    private CQLSSTableWriter writer;
+
+    SSTableBulkRecordWriter(Configuration conf) throws IOException {
+      configureClient(conf);
+      this.conf = conf;
+      this.keyspace = ConfigHelper.getOutputKeyspace(conf);
+      this.columnFamily = ConfigHelper.getOutputColumnFamily(conf);
+      // the SSTable loader takes the keyspace from the name of the parent of the directory it loads
+      this.baseDir = new File(conf.get(OUTPUT_LOCATION, System.getProperty("java.io.tmpdir")),
+                              "cassandra-bulk-" + UUID.randomUUID());
+      this.outputDir = new File(new File(baseDir, keyspace), columnFamily);
+      if (!outputDir.mkdirs()) {
+        throw new IOException("Failed to create the SSTable directory " + outputDir);
+      }
+    }
+
+    @Override
+    public void write(Map<String, ByteBuffer> keys, List<ByteBuffer> values) throws IOException {
+      if (writer == null) {
+        writer = CQLSSTableWriter.builder()
+          .inDirectory(outputDir)
+          .forTable(conf.get(TABLE_SCHEMA_PREFIX + columnFamily))
+          .using(conf.get(INSERT_STATEMENT_PREFIX + columnFamily))
+          .withPartitioner(ConfigHelper.getOutputPartitioner(conf))
+          .withBufferSizeInMB(conf.getInt(BUFFER_SIZE_IN_MB, DEFAULT_BUFFER_SIZE_IN_MB))
+          .build();
+      }
+      try {
+        writer.rawAddRow(values);
+      } catch (InvalidRequestException e) {
+        throw new IOException("Failed to write a record into an SSTable", e);
+      }
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) throws IOException, InterruptedException {
+      try {
+        if (writer != null) {
+          writer.close();
+          stream(outputDir, context);
+        }
+      } finally {
+        FileUtil.fullyDelete(baseDir);
+      }
+    }
+
+    /**
+     * Streams the SSTables in the given directory to the cluster.
+     */
+    @VisibleForTesting
+    void stream(File directory, TaskAttemptContext context) throws IOException, InterruptedException {
+      SSTableLoader loader = new SSTableLoader(directory, new ExternalClient(conf, keyspace, columnFamily),
+                                               new OutputHandler.LogOutput());
+      Future<StreamState> future = loader.stream();
+      while (true) {
+        try {
+          future.get(1, TimeUnit.SECONDS);
+          break;
+        } catch (TimeoutException e) {
+          // streaming large SSTables can take longer than the task timeout
+          context.progress();
+        } catch (ExecutionException e) {
+          throw new IOException(String.format("Failed to stream the SSTables of %s.%s", keyspace, columnFamily),
+                                e.getCause());
+        }
+      }
+      Set<InetAddress> failedHosts = loader.getFailedHosts();
+      if (!failedHosts.isEmpty()) {
+        throw new IOException(String.format("Failed to stream the SSTables of %s.%s to %s",
+                                            keyspace, columnFamily, failedHosts));
+      }
+      LOG.debug("Streamed the SSTables of {}.{} from {}", keyspace, columnFamily, directory);
+    }
+  }
+
+  /**
+   * Describes the ring of the keyspace to the {@link SSTableLoader}, and provides the metadata of the column family
+   * from the configured schema.
+   */
+  private static final class ExternalClient extends SSTableLoader.Client {
+    private final Configuration conf;
+    private final String columnFamily;
+    private final CFMetaData metadata;
+
+    private ExternalClient(Configuration conf, String keyspace, String columnFamily) {
+      this.conf = conf;
+      this.columnFamily = columnFamily;
+      this.metadata = CFMetaData.compile(conf.get(TABLE_SCHEMA_PREFIX + columnFamily), keyspace);
+    }
+
+    @Override
+    public void init(String keyspace) {
+      IPartitioner partitioner = ConfigHelper.getOutputPartitioner(conf);
+      setPartitioner(partitioner);
+      Token.TokenFactory tokenFactory = partitioner.getTokenFactory();
+      try {
+        Cassandra.Client client = ConfigHelper.getClientFromOutputAddressList(conf);
+        try {
+          for (TokenRange tokenRange : client.describe_ring(keyspace)) {
+            Range<Token> range = new Range<>(tokenFactory.fromString(tokenRange.start_token),
+                                             tokenFactory.fromString(tokenRange.end_token), partitioner);
+            for (String endpoint : tokenRange.endpoints) {
+              addRangeForEndpoint(range, InetAddress.getByName(endpoint));
+            }
+          }
+        } finally {
+          client.getOutputProtocol().getTransport().close();
+        }
+      } catch (Exception e) {
+        throw new RuntimeException(String.format("Failed to describe the ring of keyspace '%s'", keyspace), e);
+      }
+    }
+
+    @Override
+    public CFMetaData getCFMetaData(String keyspace, String cfName) {
+      return columnFamily.equals(cfName) ? metadata : null;
+    }
+  }
+}
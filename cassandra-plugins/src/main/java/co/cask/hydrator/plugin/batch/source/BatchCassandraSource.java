@@ -37,7 +37,6 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import org.apache.cassandra.hadoop.ConfigHelper;
 import org.apache.cassandra.hadoop.cql3.CqlConfigHelper;
-import org.apache.cassandra.hadoop.cql3.CqlInputFormat;
 import org.apache.hadoop.conf.Configuration;
 
 import java.io.IOException;
@@ -48,8 +47,10 @@ import javax.annotation.Nullable;
 /**
  * Batch source for Cassandra.
  * <p>
- * Note that one mapper will be created for each token. The default number of tokens is 256,
- * so a Map-Reduce job will run with 257 mappers, even for small datasets.
+ * Cassandra creates at least one split for each token range, which with the default of 256 tokens per node
+ * means hundreds of unevenly sized splits, even for small datasets. The source therefore reads through the
+ * {@link TokenRangeInputFormat}, which combines the token ranges owned by the same replicas into splits of
+ * about the configured split size in rows.
  * </p>
  */
 // The issue of each token creating one mapper is documented in this Cassandra JIRA:
@@ -86,6 +87,14 @@ public class BatchCassandraSource extends ReferenceBatchSource<Long, Row, Struct
     } catch (Exception e) {
       throw new IllegalArgumentException("Invalid output schema: " + e.getMessage(), e);
     }
+    if (config.splitSize != null) {
+      Preconditions.checkArgument(config.splitSize > 0, "Split size must be a positive number, but is %s.",
+                                  config.splitSize);
+    }
+    if (config.pageSize != null) {
+      Preconditions.checkArgument(config.pageSize > 0, "Page size must be a positive number, but is %s.",
+                                  config.pageSize);
+    }
   }
 
   @Override
@@ -112,8 +121,20 @@ public class BatchCassandraSource extends ReferenceBatchSource<Long, Row, Struct
                  CharMatcher.WHITESPACE.trimFrom(pair.split(":")[1]));
       }
     }
+    if (config.splitSize != null) {
+      ConfigHelper.setInputSplitSize(conf, config.splitSize);
+    }
+    if (config.pageSize != null) {
+      CqlConfigHelper.setInputCQLPageRowSize(conf, Integer.toString(config.pageSize));
+    }
+    if (config.localDcOnly != null && config.localDcOnly) {
+      // splits are computed from the ring of the initial address' data center, so the replicas of every split
+      // are local; reading with LOCAL_ONE keeps the reads from reaching out to other data centers
+      ConfigHelper.setReadConsistencyLevel(conf, "LOCAL_ONE");
+    }
     CqlConfigHelper.setInputCql(conf, config.query);
-    context.setInput(Input.of(config.referenceName, new SourceInputFormatProvider(CqlInputFormat.class, conf)));
+    context.setInput(Input.of(config.referenceName,
+                              new SourceInputFormatProvider(TokenRangeInputFormat.class, conf)));
   }
 
   @Override
@@ -236,9 +257,36 @@ public class BatchCassandraSource extends ReferenceBatchSource<Long, Row, Struct
     @Nullable
     private String properties;
 
+    @Name(Cassandra.SPLIT_SIZE)
+    @Description("The approximate number of rows to read in each split. Token ranges that are owned by the same " +
+      "replicas are combined into splits of about this many rows, so that every mapper reads a similar amount " +
+      "of data from the nodes that hold it. Defaults to 65536.")
+    @Nullable
+    private Integer splitSize;
+
+    @Name(Cassandra.PAGE_SIZE)
+    @Description("The number of rows to fetch from Cassandra in each page while reading a split. Defaults to 1000.")
+    @Nullable
+    private Integer pageSize;
+
+    @Name(Cassandra.LOCAL_DC_ONLY)
+    @Description("Whether to only read from replicas in the data center of the initial address. " +
+      "If true, rows are read with the LOCAL_ONE consistency level. Defaults to false.")
+    @Nullable
+    private Boolean localDcOnly;
+
     public CassandraSourceConfig(String referenceName, String partitioner, Integer port, String columnFamily,
                                  String schema, String keyspace, String initialAddress, String query,
                                  @Nullable String properties, @Nullable String username, @Nullable String password) {
+      this(referenceName, partitioner, port, columnFamily, schema, keyspace, initialAddress, query, properties,
+           username, password, null, null, null);
+    }
+
+    public CassandraSourceConfig(String referenceName, String partitioner, Integer port, String columnFamily,
+                                 String schema, String keyspace, String initialAddress, String query,
+                                 @Nullable String properties, @Nullable String username, @Nullable String password,
+                                 @Nullable Integer splitSize, @Nullable Integer pageSize,
+                                 @Nullable Boolean localDcOnly) {
       super(referenceName);
       this.partitioner = partitioner;
       this.initialAddress = initialAddress;
@@ -250,6 +298,9 @@ public class BatchCassandraSource extends ReferenceBatchSource<Long, Row, Struct
       this.query = query;
       this.schema = schema;
       this.properties = properties;
+      this.splitSize = splitSize;
+      this.pageSize = pageSize;
+      this.localDcOnly = localDcOnly;
     }
   }
 
@@ -267,6 +318,9 @@ public class BatchCassandraSource extends ReferenceBatchSource<Long, Row, Struct
     public static final String QUERY = "query";
     public static final String SCHEMA = "schema";
     public static final String PROPERTIES = "properties";
+    public static final String SPLIT_SIZE = "splitSize";
+    public static final String PAGE_SIZE = "pageSize";
+    public static final String LOCAL_DC_ONLY = "localDcOnly";
   }
 }
 
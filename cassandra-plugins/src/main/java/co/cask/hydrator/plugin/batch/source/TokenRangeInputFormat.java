@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.source;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.hadoop.ColumnFamilySplit;
+import org.apache.cassandra.hadoop.ConfigHelper;
+import org.apache.cassandra.hadoop.cql3.CqlConfigHelper;
+import org.apache.cassandra.hadoop.cql3.CqlInputFormat;
+import org.apache.cassandra.hadoop.cql3.CqlRecordReader;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link CqlInputFormat} that combines the token range splits computed by Cassandra into fewer, balanced splits.
+ *
+ * Cassandra creates at least one split for every token range of the ring, which with virtual nodes means
+ * hundreds of splits of very different sizes, even for small tables. This input format groups the token ranges
+ * by the replicas that own them, and packs the ranges of each group into splits of about the configured split
+ * size in rows. Every split therefore only contains ranges that are stored on its locations, so that it can be
+ * read node-locally.
+ */
+public class TokenRangeInputFormat extends CqlInputFormat {
+  // used instead of the default of the driver, which is 5000, if no page size is configured
+  static final int DEFAULT_PAGE_SIZE = 1000;
+
+  @Override
+  public List<InputSplit> getSplits(JobContext context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    return combine(super.getSplits(context), ConfigHelper.getInputSplitSize(conf));
+  }
+
+  /**
+   * Groups the given splits by replicas and combines the splits of every group until they reach the given number
+   * of rows.
+   */
+  static List<InputSplit> combine(List<InputSplit> splits, long rowsPerSplit) throws IOException {
+    Map<String, List<ColumnFamilySplit>> byReplicas = new LinkedHashMap<>();
+    List<InputSplit> combined = new ArrayList<>();
+    for (InputSplit split : splits) {
+      if (!(split instanceof ColumnFamilySplit)) {
+        combined.add(split);
+        continue;
+      }
+      ColumnFamilySplit range = (ColumnFamilySplit) split;
+      String[] replicas = range.getLocations().clone();
+      Arrays.sort(replicas);
+      String key = Arrays.toString(replicas);
+      List<ColumnFamilySplit> group = byReplicas.get(key);
+      if (group == null) {
+        group = new ArrayList<>();
+        byReplicas.put(key, group);
+      }
+      group.add(range);
+    }
+
+    for (List<ColumnFamilySplit> group : byReplicas.values()) {
+      String[] locations = group.get(0).getLocations();
+      List<ColumnFamilySplit> ranges = new ArrayList<>();
+      long rows = 0;
+      for (ColumnFamilySplit range : group) {
+        if (!ranges.isEmpty() && rows + range.getLength() > rowsPerSplit) {
+          combined.add(new TokenRangeSplit(ranges, locations));
+          ranges = new ArrayList<>();
+          rows = 0;
+        }
+        ranges.add(range);
+        rows += range.getLength();
+      }
+      combined.add(new TokenRangeSplit(ranges, locations));
+    }
+    return combined;
+  }
+
+  @Override
+  public RecordReader<Long, Row> createRecordReader(InputSplit split, TaskAttemptContext context)
+    throws IOException, InterruptedException {
+    if (split instanceof TokenRangeSplit) {
+      return new TokenRangeRecordReader();
+    }
+    return super.createRecordReader(split, context);
+  }
+
+  /**
+   * Reads the token ranges of a {@link TokenRangeSplit} one after the other, through a single connection.
+   *
+   * A {@link CqlRecordReader} opens a new {@link Cluster} for every token range, which costs the discovery of the
+   * cluster topology and new connections to every node. This reader instead opens one cluster and session for the
+   * whole split, prepares the input query once, and executes it with the bounds of every token range.
+   */
+  private static final class TokenRangeRecordReader extends RecordReader<Long, Row> {
+    private List<ColumnFamilySplit> ranges;
+    private Configuration conf;
+    private Cluster cluster;
+    private Session session;
+    private PreparedStatement statement;
+    private AbstractType<?> tokenType;
+    private Iterator<Row> rows;
+    private int nextRange;
+    private long rowsInRange;
+    private long key;
+    private Row value;
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+      this.ranges = ((TokenRangeSplit) split).getRanges();
+      this.conf = context.getConfiguration();
+      this.tokenType = ConfigHelper.getInputPartitioner(conf).getTokenValidator();
+      this.nextRange = 0;
+      this.key = 0;
+      if (ranges.isEmpty()) {
+        return;
+      }
+
+      // connect to the first replica that is reachable, like the CqlRecordReader does
+      Exception failure = null;
+      for (String location : split.getLocations()) {
+        try {
+          cluster = CqlConfigHelper.getInputCluster(location, conf);
+          break;
+        } catch (Exception e) {
+          failure = e;
+        }
+      }
+      if (cluster == null) {
+        throw new IOException("Failed to connect to any of " + Arrays.toString(split.getLocations()), failure);
+      }
+      session = cluster.connect(quote(ConfigHelper.getInputKeyspace(conf)));
+      statement = session.prepare(CqlConfigHelper.getInputCql(conf));
+      statement.setConsistencyLevel(ConsistencyLevel.valueOf(ConfigHelper.getReadConsistencyLevel(conf)));
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+      while (rows == null || !rows.hasNext()) {
+        if (nextRange >= ranges.size()) {
+          value = null;
+          return false;
+        }
+        ColumnFamilySplit range = ranges.get(nextRange++);
+        BoundStatement bound = statement.bind(tokenType.compose(tokenType.fromString(range.getStartToken())),
+                                              tokenType.compose(tokenType.fromString(range.getEndToken())));
+        bound.setFetchSize(CqlConfigHelper.getInputPageRowSize(conf).or(DEFAULT_PAGE_SIZE));
+        rows = session.execute(bound).iterator();
+        rowsInRange = 0;
+      }
+      value = rows.next();
+      rowsInRange++;
+      key++;
+      return true;
+    }
+
+    @Override
+    public Long getCurrentKey() throws IOException, InterruptedException {
+      return key;
+    }
+
+    @Override
+    public Row getCurrentValue() throws IOException, InterruptedException {
+      return value;
+    }
+
+    @Override
+    public float getProgress() throws IOException, InterruptedException {
+      if (ranges.isEmpty()) {
+        return 1.0f;
+      }
+      if (rows == null) {
+        return 0.0f;
+      }
+      // the number of rows of a range is only estimated, so the progress within a range is capped
+      long estimate = Math.max(1L, ranges.get(nextRange - 1).getLength());
+      float completed = nextRange - 1 + Math.min(1.0f, (float) rowsInRange / estimate);
+      return Math.min(1.0f, completed / ranges.size());
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (cluster != null) {
+        // also closes the session
+        cluster.close();
+        cluster = null;
+        session = null;
+      }
+    }
+
+    private static String quote(String identifier) {
+      return "\"" + identifier.replaceAll("\"", "\"\"") + "\"";
+    }
+  }
+}
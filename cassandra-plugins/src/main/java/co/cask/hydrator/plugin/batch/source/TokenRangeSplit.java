@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.source;
+
+import org.apache.cassandra.hadoop.ColumnFamilySplit;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An {@link InputSplit} made of several token ranges of a column family that are all owned by the same replicas,
+ * so that it can be read from any of those replicas.
+ */
+public class TokenRangeSplit extends InputSplit implements Writable {
+  private List<ColumnFamilySplit> ranges;
+  private String[] locations;
+
+  // required for deserialization
+  public TokenRangeSplit() {
+    this(new ArrayList<ColumnFamilySplit>(), new String[0]);
+  }
+
+  TokenRangeSplit(List<ColumnFamilySplit> ranges, String[] locations) {
+    this.ranges = ranges;
+    this.locations = locations;
+  }
+
+  /**
+   * Returns the token ranges of this split.
+   */
+  public List<ColumnFamilySplit> getRanges() {
+    return ranges;
+  }
+
+  /**
+   * Returns the estimated number of rows in this split.
+   */
+  @Override
+  public long getLength() {
+    long length = 0;
+    for (ColumnFamilySplit range : ranges) {
+      length += range.getLength();
+    }
+    return length;
+  }
+
+  @Override
+  public String[] getLocations() {
+    return locations;
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(locations.length);
+    for (String location : locations) {
+      out.writeUTF(location);
+    }
+    out.writeInt(ranges.size());
+    for (ColumnFamilySplit range : ranges) {
+      range.write(out);
+    }
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    locations = new String[in.readInt()];
+    for (int i = 0; i < locations.length; i++) {
+      locations[i] = in.readUTF();
+    }
+    int size = in.readInt();
+    ranges = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      ranges.add(ColumnFamilySplit.read(in));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "TokenRangeSplit{ranges=" + ranges + ", locations=" + Arrays.toString(locations) + "}";
+  }
+}
@@ -27,25 +27,39 @@ import co.cask.cdap.etl.api.realtime.RealtimeSink;
 import co.cask.hydrator.common.ReferencePluginConfig;
 import co.cask.hydrator.common.ReferenceRealtimeSink;
 import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ProtocolOptions;
 import com.datastax.driver.core.QueryOptions;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+import com.datastax.driver.core.policies.Policies;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import javax.annotation.Nullable;
 
 /**
@@ -54,6 +68,12 @@ import javax.annotation.Nullable;
  * This {@link RealtimeCassandraSink} takes in a {@link StructuredRecord},
  * and writes it to the Cassandra server.
  * </p>
+ * <p>
+ * By default, all records of a write are sent in one logged batch. In the {@code async} write mode, the records
+ * are grouped by partition key instead, and every partition is written with its own unlogged batch, with a
+ * bounded number of requests in flight. Requests are routed to a replica of their partition, so that no
+ * coordinator has to forward the whole write.
+ * </p>
  */
 @Plugin(type = RealtimeSink.PLUGIN_TYPE)
 @Name("Cassandra")
@@ -62,12 +82,19 @@ public class RealtimeCassandraSink extends ReferenceRealtimeSink<StructuredRecor
   private static final Logger LOG = LoggerFactory.getLogger(RealtimeCassandraSink.class);
   private static final String ADDRESSES_DESCRIPTION =
     "A comma-separated list of address(es) to connect to. For example, \"host1:9042,host2:9042\".";
+  private static final String WRITE_MODE_BATCH = "batch";
+  private static final String WRITE_MODE_ASYNC = "async";
+  private static final int DEFAULT_MAX_CONCURRENT_WRITES = 64;
+  // keeps the batches of a single partition below the batch size warning threshold of Cassandra
+  private static final int MAX_STATEMENTS_PER_BATCH = 100;
   private final RealtimeCassandraSinkConfig config;
 
   private Cluster cluster;
   private Session session;
   private List<String> columns;
   private PreparedStatement statement;
+  private boolean asyncWrites;
+  private int maxConcurrentWrites;
 
   public RealtimeCassandraSink(RealtimeCassandraSinkConfig config) {
     super(config);
@@ -84,6 +111,12 @@ public class RealtimeCassandraSink extends ReferenceRealtimeSink<StructuredRecor
     }
     builder.withQueryOptions(new QueryOptions().setConsistencyLevel(ConsistencyLevel.valueOf(config.consistencyLevel)));
     builder.withCompression(ProtocolOptions.Compression.valueOf(config.compression));
+    // route each request to a replica of its partition
+    LoadBalancingPolicy loadBalancingPolicy = Policies.defaultLoadBalancingPolicy();
+    if (!(loadBalancingPolicy instanceof TokenAwarePolicy)) {
+      loadBalancingPolicy = new TokenAwarePolicy(loadBalancingPolicy);
+    }
+    builder.withLoadBalancingPolicy(loadBalancingPolicy);
     cluster = builder.build();
     session = cluster.connect(config.keyspace);
     columns = Arrays.asList(CharMatcher.WHITESPACE.removeFrom(config.columns).split(","));
@@ -92,6 +125,9 @@ public class RealtimeCassandraSink extends ReferenceRealtimeSink<StructuredRecor
                                               config.columns.replaceAll(",", ", "),
                                               config.columns.replaceAll("[^,]+", "?")
                                                 .replaceAll(",", ", ")));
+    asyncWrites = WRITE_MODE_ASYNC.equalsIgnoreCase(config.writeMode);
+    maxConcurrentWrites = config.maxConcurrentWrites == null ?
+      DEFAULT_MAX_CONCURRENT_WRITES : config.maxConcurrentWrites;
   }
 
   @Override
@@ -104,6 +140,14 @@ public class RealtimeCassandraSink extends ReferenceRealtimeSink<StructuredRecor
     Preconditions.checkArgument(!parseAddresses(config.addresses).isEmpty(),
                                 "At least one pair of IP and port should be provided.",
                                 config.addresses, ADDRESSES_DESCRIPTION);
+    Preconditions.checkArgument(Strings.isNullOrEmpty(config.writeMode) ||
+                                  WRITE_MODE_BATCH.equalsIgnoreCase(config.writeMode) ||
+                                  WRITE_MODE_ASYNC.equalsIgnoreCase(config.writeMode),
+                                "Invalid write mode '%s'. It must be either '%s' or '%s'.",
+                                config.writeMode, WRITE_MODE_BATCH, WRITE_MODE_ASYNC);
+    Preconditions.checkArgument(config.maxConcurrentWrites == null || config.maxConcurrentWrites > 0,
+                                "Invalid value %s for '%s'. It must be positive.",
+                                config.maxConcurrentWrites, Cassandra.MAX_CONCURRENT_WRITES);
   }
 
   private List<InetSocketAddress> parseAddresses(String addressString) {
@@ -125,20 +169,96 @@ public class RealtimeCassandraSink extends ReferenceRealtimeSink<StructuredRecor
 
   @Override
   public int write(Iterable<StructuredRecord> structuredRecords, DataWriter dataWriter) throws Exception {
+    if (asyncWrites) {
+      return writeAsync(structuredRecords);
+    }
     BatchStatement batch = new BatchStatement();
     int count = 0;
     for (StructuredRecord record : structuredRecords) {
-      Object[] toBind = new Object[columns.size()];
-      for (int i = 0; i < columns.size(); i++) {
-        toBind[i] = record.get(columns.get(i));
-      }
-      batch.add(statement.bind(toBind));
+      batch.add(bind(record));
       count++;
     }
     session.execute(batch);
     return count;
   }
 
+  /**
+   * Writes the records of every partition with a separate unlogged batch, with at most
+   * {@link #maxConcurrentWrites} requests in flight, and waits for all of them to complete.
+   */
+  private int writeAsync(Iterable<StructuredRecord> structuredRecords) throws Exception {
+    // group by partition key; statements without a routing key are sent on their own
+    Map<ByteBuffer, List<BoundStatement>> partitions = new LinkedHashMap<>();
+    List<Statement> statements = new ArrayList<>();
+    int count = 0;
+    for (StructuredRecord record : structuredRecords) {
+      BoundStatement bound = bind(record);
+      ByteBuffer routingKey = bound.getRoutingKey();
+      if (routingKey == null) {
+        statements.add(bound);
+      } else {
+        List<BoundStatement> partition = partitions.get(routingKey);
+        if (partition == null) {
+          partition = new ArrayList<>();
+          partitions.put(routingKey, partition);
+        }
+        partition.add(bound);
+      }
+      count++;
+    }
+    for (List<BoundStatement> partition : partitions.values()) {
+      if (partition.size() == 1) {
+        statements.add(partition.get(0));
+        continue;
+      }
+      for (int start = 0; start < partition.size(); start += MAX_STATEMENTS_PER_BATCH) {
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+        for (BoundStatement bound : partition.subList(start, Math.min(partition.size(),
+                                                                      start + MAX_STATEMENTS_PER_BATCH))) {
+          batch.add(bound);
+        }
+        statements.add(batch);
+      }
+    }
+
+    final Semaphore inFlight = new Semaphore(maxConcurrentWrites);
+    FutureCallback<ResultSet> release = new FutureCallback<ResultSet>() {
+      @Override
+      public void onSuccess(ResultSet result) {
+        inFlight.release();
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        inFlight.release();
+      }
+    };
+    List<ResultSetFuture> futures = new ArrayList<>(statements.size());
+    for (Statement statement : statements) {
+      inFlight.acquire();
+      ResultSetFuture future = session.executeAsync(statement);
+      Futures.addCallback(future, release);
+      futures.add(future);
+    }
+    for (ResultSetFuture future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+    return count;
+  }
+
+  private BoundStatement bind(StructuredRecord record) {
+    Object[] toBind = new Object[columns.size()];
+    for (int i = 0; i < columns.size(); i++) {
+      toBind[i] = record.get(columns.get(i));
+    }
+    return statement.bind(toBind);
+  }
+
   @Override
   public void destroy() {
     cluster.close();
@@ -185,9 +305,29 @@ public class RealtimeCassandraSink extends ReferenceRealtimeSink<StructuredRecor
     @Description("The string representation of the compression for the query. For example: \"NONE\".")
     private String compression;
 
+    @Name(Cassandra.WRITE_MODE)
+    @Description("How the records are written. 'batch' writes all records of a write with one logged batch. " +
+      "'async' writes the records of each partition with a separate unlogged batch, sent concurrently to a " +
+      "replica of the partition. Defaults to 'batch'.")
+    @Nullable
+    private String writeMode;
+
+    @Name(Cassandra.MAX_CONCURRENT_WRITES)
+    @Description("The maximum number of requests in flight in the 'async' write mode. Defaults to 64.")
+    @Nullable
+    private Integer maxConcurrentWrites;
+
     public RealtimeCassandraSinkConfig(String referenceName, String columnFamily, String columns, String compression,
                                        String keyspace, String addresses, String consistencyLevel,
                                        @Nullable String username, @Nullable String password) {
+      this(referenceName, columnFamily, columns, compression, keyspace, addresses, consistencyLevel,
+           username, password, null, null);
+    }
+
+    public RealtimeCassandraSinkConfig(String referenceName, String columnFamily, String columns, String compression,
+                                       String keyspace, String addresses, String consistencyLevel,
+                                       @Nullable String username, @Nullable String password,
+                                       @Nullable String writeMode, @Nullable Integer maxConcurrentWrites) {
       super(referenceName);
       this.addresses = addresses;
       this.columnFamily = columnFamily;
@@ -197,6 +337,8 @@ public class RealtimeCassandraSink extends ReferenceRealtimeSink<StructuredRecor
       this.consistencyLevel = consistencyLevel;
       this.columns = columns;
       this.compression = compression;
+      this.writeMode = writeMode;
+      this.maxConcurrentWrites = maxConcurrentWrites;
     }
   }
 
@@ -212,6 +354,8 @@ public class RealtimeCassandraSink extends ReferenceRealtimeSink<StructuredRecor
     public static final String COLUMNS = "columns";
     public static final String CONSISTENCY_LEVEL = "consistencyLevel";
     public static final String COMPRESSION = "compression";
+    public static final String WRITE_MODE = "writeMode";
+    public static final String MAX_CONCURRENT_WRITES = "maxConcurrentWrites";
   }
 }
 
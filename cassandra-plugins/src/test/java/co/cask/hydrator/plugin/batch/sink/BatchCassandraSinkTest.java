@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.sink;
+
+import org.apache.cassandra.hadoop.cql3.CqlOutputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Job;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Tests for the output format configuration of {@link BatchCassandraSink}.
+ */
+public class BatchCassandraSinkTest {
+  private static final String PARTITIONER = "org.apache.cassandra.dht.Murmur3Partitioner";
+  private static final String SCHEMA = "CREATE TABLE ks.cf (id int PRIMARY KEY, name text, score double)";
+
+  @Test
+  public void testBulkConfiguration() throws Exception {
+    BatchCassandraSink.CassandraBatchConfig config =
+      new BatchCassandraSink.CassandraBatchConfig("ref", PARTITIONER, 9161, "cf", "ks", "localhost",
+                                                  "id, name,score", "id", "BULK", SCHEMA, 32, 100);
+    BatchCassandraSink.CassandraOutputFormatProvider provider =
+      new BatchCassandraSink.CassandraOutputFormatProvider(config);
+    Assert.assertEquals(SSTableBulkOutputFormat.class.getName(), provider.getOutputFormatClassName());
+
+    Map<String, String> conf = provider.getOutputFormatConfiguration();
+    Assert.assertEquals("localhost", conf.get("cassandra.output.thrift.address"));
+    Assert.assertEquals("9161", conf.get("cassandra.output.thrift.port"));
+    Assert.assertEquals("ks", conf.get("cassandra.output.keyspace"));
+    Assert.assertEquals("cf", conf.get("mapreduce.output.basename"));
+    Assert.assertEquals(PARTITIONER, conf.get("cassandra.output.partitioner.class"));
+    Assert.assertEquals(SCHEMA, conf.get("cassandra.columnfamily.schema.cf"));
+    Assert.assertEquals("INSERT INTO ks.cf (id, name, score) VALUES (?, ?, ?)",
+                        conf.get("cassandra.columnfamily.insert.cf"));
+    Assert.assertEquals("32", conf.get(SSTableBulkOutputFormat.BUFFER_SIZE_IN_MB));
+    Assert.assertEquals("100", conf.get(SSTableBulkOutputFormat.STREAM_THROTTLE_MBITS));
+    Assert.assertNull(conf.get("cassandra.output.cql"));
+
+    // the generated configuration is complete for the output format
+    Configuration hConf = new Configuration();
+    for (Map.Entry<String, String> entry : conf.entrySet()) {
+      hConf.set(entry.getKey(), entry.getValue());
+    }
+    new SSTableBulkOutputFormat().checkOutputSpecs(Job.getInstance(hConf));
+
+    hConf.unset("cassandra.columnfamily.schema.cf");
+    try {
+      new SSTableBulkOutputFormat().checkOutputSpecs(Job.getInstance(hConf));
+      Assert.fail("Expected the missing schema to be rejected");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCqlConfiguration() throws Exception {
+    BatchCassandraSink.CassandraBatchConfig config =
+      new BatchCassandraSink.CassandraBatchConfig("ref", PARTITIONER, null, "cf", "ks", "localhost",
+                                                  "id,name,score", "id");
+    BatchCassandraSink.CassandraOutputFormatProvider provider =
+      new BatchCassandraSink.CassandraOutputFormatProvider(config);
+    Assert.assertEquals(CqlOutputFormat.class.getName(), provider.getOutputFormatClassName());
+
+    Map<String, String> conf = provider.getOutputFormatConfiguration();
+    Assert.assertEquals("9160", conf.get("cassandra.output.thrift.port"));
+    Assert.assertEquals("UPDATE ks.cf SET name = ?, score = ? ", conf.get("cassandra.output.cql"));
+    Assert.assertNull(conf.get("cassandra.columnfamily.schema.cf"));
+    Assert.assertNull(conf.get(SSTableBulkOutputFormat.BUFFER_SIZE_IN_MB));
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.sink;
+
+import org.apache.cassandra.hadoop.ConfigHelper;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the record writer of {@link SSTableBulkOutputFormat}, with streaming to the cluster stubbed out.
+ */
+public class SSTableBulkOutputFormatTest {
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testWriteSSTables() throws Exception {
+    Map<String, String> settings = new HashMap<>();
+    SSTableBulkOutputFormat.setTableSchema(settings, "cf",
+                                           "CREATE TABLE ks.cf (id int PRIMARY KEY, name text, score double)");
+    SSTableBulkOutputFormat.setInsertStatement(settings, "cf", "INSERT INTO ks.cf (id, name, score) VALUES (?, ?, ?)");
+    Configuration conf = new Configuration();
+    for (Map.Entry<String, String> entry : settings.entrySet()) {
+      conf.set(entry.getKey(), entry.getValue());
+    }
+    ConfigHelper.setOutputColumnFamily(conf, "ks", "cf");
+    ConfigHelper.setOutputPartitioner(conf, "org.apache.cassandra.dht.Murmur3Partitioner");
+    File localDir = TEMP_FOLDER.newFolder();
+    conf.set(SSTableBulkOutputFormat.OUTPUT_LOCATION, localDir.getAbsolutePath());
+
+    final List<String> streamed = new ArrayList<>();
+    SSTableBulkOutputFormat.SSTableBulkRecordWriter writer = new SSTableBulkOutputFormat.SSTableBulkRecordWriter(conf) {
+      @Override
+      void stream(File directory, TaskAttemptContext context) {
+        // the SSTable loader takes the keyspace and column family from the directory names
+        Assert.assertEquals("cf", directory.getName());
+        Assert.assertEquals("ks", directory.getParentFile().getName());
+        for (File file : directory.listFiles()) {
+          if (file.getName().endsWith("-Data.db")) {
+            streamed.add(file.getName());
+          }
+        }
+      }
+    };
+    for (int i = 0; i < 10; i++) {
+      writer.write(null, Arrays.asList(ByteBufferUtil.bytes(i), ByteBufferUtil.bytes("name " + i),
+                                       ByteBufferUtil.bytes(i * 1.5d)));
+    }
+    writer.close(new TaskAttemptContextImpl(conf, new TaskAttemptID()));
+
+    Assert.assertFalse(streamed.isEmpty());
+    // the local SSTables are deleted once they have been streamed
+    Assert.assertEquals(0, localDir.list().length);
+  }
+}
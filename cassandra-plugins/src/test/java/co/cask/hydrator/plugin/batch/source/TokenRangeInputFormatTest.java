@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.source;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.cassandra.hadoop.ColumnFamilySplit;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Tests for {@link TokenRangeInputFormat}.
+ */
+public class TokenRangeInputFormatTest {
+  private static final String[] NODES_A = new String[] { "10.0.0.1", "10.0.0.2" };
+  private static final String[] NODES_B = new String[] { "10.0.0.2", "10.0.0.3" };
+
+  @Test
+  public void testCombineByReplicas() throws Exception {
+    List<InputSplit> splits = ImmutableList.<InputSplit>of(
+      new ColumnFamilySplit("0", "10", 40, NODES_A),
+      new ColumnFamilySplit("10", "20", 50, NODES_B),
+      new ColumnFamilySplit("20", "30", 40, new String[] { "10.0.0.2", "10.0.0.1" }),
+      new ColumnFamilySplit("30", "40", 40, NODES_A),
+      new ColumnFamilySplit("40", "50", 10, NODES_B));
+
+    List<InputSplit> combined = TokenRangeInputFormat.combine(splits, 100);
+    Assert.assertEquals(3, combined.size());
+
+    // the first two ranges of replicas A fit in one split, the third one goes into a new split
+    TokenRangeSplit first = (TokenRangeSplit) combined.get(0);
+    Assert.assertEquals(2, first.getRanges().size());
+    Assert.assertEquals(80, first.getLength());
+    Assert.assertArrayEquals(NODES_A, first.getLocations());
+    Assert.assertEquals(40, combined.get(1).getLength());
+
+    TokenRangeSplit third = (TokenRangeSplit) combined.get(2);
+    Assert.assertEquals(2, third.getRanges().size());
+    Assert.assertEquals(60, third.getLength());
+    Assert.assertArrayEquals(NODES_B, third.getLocations());
+  }
+
+  @Test
+  public void testLargeRangeIsNotDropped() throws Exception {
+    List<InputSplit> combined = TokenRangeInputFormat.combine(
+      ImmutableList.<InputSplit>of(new ColumnFamilySplit("0", "10", 500, NODES_A)), 100);
+    Assert.assertEquals(1, combined.size());
+    Assert.assertEquals(500, combined.get(0).getLength());
+  }
+}
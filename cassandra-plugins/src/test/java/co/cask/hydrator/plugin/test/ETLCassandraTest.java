@@ -48,7 +48,10 @@ import co.cask.cdap.test.TestConfiguration;
 import co.cask.cdap.test.WorkerManager;
 import co.cask.hydrator.common.Constants;
 import co.cask.hydrator.plugin.batch.sink.BatchCassandraSink;
+import co.cask.hydrator.plugin.batch.sink.SSTableBulkOutputFormat;
 import co.cask.hydrator.plugin.batch.source.BatchCassandraSource;
+import co.cask.hydrator.plugin.batch.source.TokenRangeInputFormat;
+import co.cask.hydrator.plugin.batch.source.TokenRangeSplit;
 import co.cask.hydrator.plugin.realtime.RealtimeCassandraSink;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -62,6 +65,7 @@ import org.apache.cassandra.thrift.Column;
 import org.apache.cassandra.thrift.Compression;
 import org.apache.cassandra.thrift.ConsistencyLevel;
 import org.apache.cassandra.thrift.CqlResult;
+import org.apache.cassandra.thrift.CqlRow;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.hadoop.conf.Configuration;
 import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
@@ -128,7 +132,8 @@ public class ETLCassandraTest extends HydratorTestBase {
     addPluginArtifact(NamespaceId.DEFAULT.artifact("cassandra-plugins", "1.0.0"),
                       parents,
                       BatchCassandraSink.class, BatchCassandraSource.class,
-                      CqlInputFormat.class, CqlOutputFormat.class, ColumnFamilySplit.class,
+                      CqlInputFormat.class, CqlOutputFormat.class, SSTableBulkOutputFormat.class,
+                      ColumnFamilySplit.class, TokenRangeInputFormat.class, TokenRangeSplit.class,
                       RealtimeCassandraSink.class);
 
     rpcPort = 9160;
@@ -148,6 +153,10 @@ public class ETLCassandraTest extends HydratorTestBase {
       ByteBufferUtil.bytes("CREATE TABLE testtablerealtime ( name text, graduated boolean, " +
                              "id int, score double, time bigint PRIMARY KEY );"),
       Compression.NONE, ConsistencyLevel.ALL);
+    client.execute_cql3_query(
+      ByteBufferUtil.bytes("CREATE TABLE testtablerealtimeasync ( id int, seq int, name text, " +
+                             "PRIMARY KEY (id, seq) );"),
+      Compression.NONE, ConsistencyLevel.ALL);
   }
 
   @AfterClass
@@ -158,8 +167,10 @@ public class ETLCassandraTest extends HydratorTestBase {
   @Test
   public void testCassandra() throws Exception {
     testCassandraRealtimeSink();
+    testAsyncCassandraRealtimeSink();
     testCassandraSink();
     testCassandraSource();
+    testCassandraSourceSplitAndPageSize();
   }
 
   @Test
@@ -301,6 +312,56 @@ public class ETLCassandraTest extends HydratorTestBase {
     Assert.assertEquals(212.36, results.get(13), 0.000001);
   }
 
+  private void testCassandraSourceSplitAndPageSize() throws Exception {
+    // a split of a single row puts every token range into its own split, and pages of a single row make every
+    // row of a range a separate fetch
+    Map<String, String> sourceProperties = new ImmutableMap.Builder<String, String>()
+      .put(Constants.Reference.REFERENCE_NAME, "TestCassPaged")
+      .put(BatchCassandraSource.Cassandra.INITIAL_ADDRESS, "localhost")
+      .put(BatchCassandraSource.Cassandra.PARTITIONER,
+           "org.apache.cassandra.dht.Murmur3Partitioner")
+      .put(BatchCassandraSource.Cassandra.KEYSPACE, "testkeyspace")
+      .put(BatchCassandraSource.Cassandra.COLUMN_FAMILY, "testtablebatch")
+      .put(BatchCassandraSource.Cassandra.QUERY, "SELECT * from testtablebatch " +
+        "where token(ticker) > ? " +
+        "and token(ticker) <= ?")
+      .put(BatchCassandraSource.Cassandra.SCHEMA, SCHEMA.toString())
+      .put(BatchCassandraSource.Cassandra.SPLIT_SIZE, "1")
+      .put(BatchCassandraSource.Cassandra.PAGE_SIZE, "1")
+      .build();
+    ETLStage source =
+      new ETLStage("source", new ETLPlugin("Cassandra", BatchSource.PLUGIN_TYPE, sourceProperties, null));
+
+    String outputDatasetName = "output-batchsourcepagedtest";
+    ETLStage sink = new ETLStage("sink", MockSink.getPlugin(outputDatasetName));
+
+    ETLBatchConfig etlConfig = ETLBatchConfig.builder("* * * * *")
+      .addStage(source)
+      .addStage(sink)
+      .addConnection(source.getName(), sink.getName())
+      .build();
+
+    AppRequest<ETLBatchConfig> appRequest = new AppRequest<>(ETLBATCH_ARTIFACT, etlConfig);
+    Id.Application appId = Id.Application.from(Id.Namespace.DEFAULT, "CassandraSourcePagedTest");
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    MapReduceManager mrManager = appManager.getMapReduceManager(ETLMapReduce.NAME);
+    mrManager.start();
+    mrManager.waitForFinish(5, TimeUnit.MINUTES);
+
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    List<StructuredRecord> output = MockSink.readOutput(outputManager);
+
+    // every row is read exactly once
+    Assert.assertEquals(2, output.size());
+    Map<Integer, Double> results = new HashMap<>();
+    for (StructuredRecord row : output) {
+      results.put((Integer) row.get("num"), (Double) row.get("price"));
+    }
+    Assert.assertEquals(500.32, results.get(10), 0.000001);
+    Assert.assertEquals(212.36, results.get(13), 0.000001);
+  }
+
   private void testCassandraRealtimeSink() throws Exception {
     Schema schema = Schema.recordOf(
       "user",
@@ -368,4 +429,70 @@ public class ETLCassandraTest extends HydratorTestBase {
     Assert.assertEquals(3.4, ByteBufferUtil.toDouble(columns.get(3).bufferForValue()), 0.000001);
     Assert.assertEquals(1234567890000L, ByteBufferUtil.toLong(columns.get(4).bufferForValue()));
   }
+
+  private void testAsyncCassandraRealtimeSink() throws Exception {
+    Schema schema = Schema.recordOf(
+      "event",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("seq", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("name", Schema.of(Schema.Type.STRING))
+    );
+    // three records of the same partition and one of another
+    List<StructuredRecord> input = ImmutableList.of(
+      StructuredRecord.builder(schema).set("id", 1).set("seq", 1).set("name", "a").build(),
+      StructuredRecord.builder(schema).set("id", 1).set("seq", 2).set("name", "b").build(),
+      StructuredRecord.builder(schema).set("id", 2).set("seq", 1).set("name", "c").build(),
+      StructuredRecord.builder(schema).set("id", 1).set("seq", 3).set("name", "d").build()
+    );
+
+    ETLStage source = new ETLStage("source", co.cask.cdap.etl.mock.realtime.MockSource.getPlugin(input));
+    ETLStage sink = new ETLStage("Cassandra", new ETLPlugin(
+      "Cassandra",
+      RealtimeSink.PLUGIN_TYPE,
+      new ImmutableMap.Builder<String, String>()
+        .put(Constants.Reference.REFERENCE_NAME, "TestCassAsync")
+        .put(RealtimeCassandraSink.Cassandra.ADDRESSES, "localhost:9042")
+        .put(RealtimeCassandraSink.Cassandra.KEYSPACE, "testkeyspace")
+        .put(RealtimeCassandraSink.Cassandra.COLUMN_FAMILY, "testtablerealtimeasync")
+        .put(RealtimeCassandraSink.Cassandra.COLUMNS, "id, seq, name")
+        .put(RealtimeCassandraSink.Cassandra.COMPRESSION, "NONE")
+        .put(RealtimeCassandraSink.Cassandra.CONSISTENCY_LEVEL, "QUORUM")
+        .put(RealtimeCassandraSink.Cassandra.WRITE_MODE, "async")
+        .put(RealtimeCassandraSink.Cassandra.MAX_CONCURRENT_WRITES, "1")
+        .build(),
+      null));
+    final String cqlQuery = "select id,seq,name from testtablerealtimeasync";
+    ETLRealtimeConfig etlConfig = ETLRealtimeConfig.builder()
+      .addStage(source)
+      .addStage(sink)
+      .addConnection(source.getName(), sink.getName())
+      .build();
+    Id.Application appId = Id.Application.from(Id.Namespace.DEFAULT, "testCassandraAsyncSink");
+    AppRequest<ETLRealtimeConfig> appRequest = new AppRequest<>(REALTIME_APP_ARTIFACT, etlConfig);
+    ApplicationManager appManager = deployApplication(appId, appRequest);
+
+    WorkerManager workerManager = appManager.getWorkerManager(ETLWorker.class.getSimpleName());
+
+    workerManager.start();
+    Tasks.waitFor(4, new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        CqlResult result = client.execute_cql3_query(ByteBufferUtil.bytes(cqlQuery),
+                                                     Compression.NONE, ConsistencyLevel.ALL);
+        return result.rows.size();
+      }
+    }, 30, TimeUnit.SECONDS, 50, TimeUnit.MILLISECONDS);
+    workerManager.stop();
+
+    Map<String, String> names = new HashMap<>();
+    CqlResult result = client.execute_cql3_query(ByteBufferUtil.bytes(cqlQuery),
+                                                 Compression.NONE, ConsistencyLevel.ALL);
+    for (CqlRow row : result.getRows()) {
+      List<Column> columns = row.getColumns();
+      names.put(ByteBufferUtil.toInt(columns.get(0).bufferForValue()) + ":" +
+                  ByteBufferUtil.toInt(columns.get(1).bufferForValue()),
+                ByteBufferUtil.string(columns.get(2).bufferForValue()));
+    }
+    Assert.assertEquals(ImmutableMap.of("1:1", "a", "1:2", "b", "2:1", "c", "1:3", "d"), names);
+  }
 }
@@ -16,6 +16,11 @@
 package co.cask.hydrator.plugin;
 
 import co.cask.hydrator.plugin.transform.JavaTypeConverters;
+import com.google.common.base.Joiner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Constants for transforms using JavaScript.
@@ -30,4 +35,52 @@ public class ScriptConstants {
     "var result = {}; var it = map.entrySet().iterator(); " +
     "while (it.hasNext()) { var entry = it.next(); result[entry.getKey()] = entry.getValue(); } " +
     "return result; }";
+
+  /**
+   * Description of the property that bounds the lookup caches of a script by size.
+   */
+  public static final String LOOKUP_CACHE_MAX_BYTES_DESCRIPTION = "The maximum estimated size in bytes of each " +
+    "lookup table's cache. If set, the caches are bounded by the size of their entries instead of the number of " +
+    "entries in the lookup cache config.";
+
+  /**
+   * Description of the property that selects how the input record is passed to the script.
+   */
+  public static final String NATIVE_RECORDS_DESCRIPTION = "Whether to pass the input record to the script as a " +
+    "Java map that converts fields only when they are read, instead of as a JavaScript object parsed from a JSON " +
+    "copy of the record. This avoids serializing and parsing every record. Fields are read and set as properties " +
+    "of the record with the Nashorn engine of Java 8, but the record is a Java map and its arrays are Java lists, " +
+    "so functions that expect JavaScript objects or arrays, such as Object.keys, JSON.stringify or push, do not " +
+    "work on them. Defaults to false.";
+
+  /**
+   * Returns the user's script followed by a wrapper function that takes the input record and calls the user's
+   * function with the record, the pass-through arguments and the script context.
+   * <p>
+   * The wrapper is evaluated once, so that no new script source has to be evaluated for each record. By default the
+   * wrapper takes the record as a json string, which it parses with JSON.parse on every call, so that scripts get
+   * native objects and arrays, which behave the same with Object.keys, for..in, JSON.stringify and array functions
+   * in the Rhino and Nashorn engines. With native records, the wrapper passes on the record as it is given, which
+   * is meant to be a {@link co.cask.hydrator.plugin.common.StructuredRecordMap}, and saves the json round trip.
+   * </p>
+   *
+   * @param wrapperName name of the wrapper function to define
+   * @param userFunction name of the function defined by the user's script
+   * @param contextName name of the variable holding the script context, passed as the last argument
+   * @param userScript the user's script
+   * @param nativeRecords whether the wrapper is called with the record itself instead of its json string
+   * @param passThrough names of additional wrapper parameters that are passed on to the user's function
+   */
+  public static String wrapUserFunction(String wrapperName, String userFunction, String contextName,
+                                        String userScript, boolean nativeRecords, String... passThrough) {
+    List<String> params = new ArrayList<>();
+    params.add("record");
+    params.addAll(Arrays.asList(passThrough));
+    List<String> args = new ArrayList<>();
+    args.add(nativeRecords ? "record" : "JSON.parse(record)");
+    args.addAll(Arrays.asList(passThrough));
+    args.add(contextName);
+    return String.format("function %s(%s) { return %s(%s); }\n%s", wrapperName, Joiner.on(", ").join(params),
+                         userFunction, Joiner.on(", ").join(args), userScript);
+  }
 }
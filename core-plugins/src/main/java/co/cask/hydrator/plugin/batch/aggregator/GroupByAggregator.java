@@ -33,6 +33,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Path;
 
@@ -42,13 +43,19 @@ import javax.ws.rs.Path;
 @Plugin(type = BatchAggregator.PLUGIN_TYPE)
 @Name("GroupByAggregate")
 @Description("Groups by one or more fields, then performs one or more aggregate functions on each group. " +
-  "Supports avg, count, count(*), first, last, max, min, and sum as aggregate functions.")
+  "Supports avg, count, count(*), first, last, max, min, sum, stddev, variance, countDistinctApprox, median " +
+  "and percentile as aggregate functions.")
 public class GroupByAggregator extends RecordAggregator {
   private final GroupByConfig conf;
   private List<String> groupByFields;
   private List<GroupByConfig.FunctionInfo> functionInfos;
   private Schema outputSchema;
   private Map<String, AggregateFunction> aggregateFunctions;
+  // input schema that the aggregate functions and output schema were created for
+  private Schema aggregatesInputSchema;
+  // input schema that the group key schema was created for
+  private Schema groupKeyInputSchema;
+  private Schema groupKeySchema;
 
   public GroupByAggregator(GroupByConfig conf) {
     super(conf.numPartitions);
@@ -82,9 +89,14 @@ public class GroupByAggregator extends RecordAggregator {
   @Override
   public void groupBy(StructuredRecord record, Emitter<StructuredRecord> emitter) throws Exception {
     // app should provide some way to make some data calculated in configurePipeline available here.
-    // then we wouldn't have to calculate schema here
-    StructuredRecord.Builder builder = StructuredRecord.builder(getGroupKeySchema(record.getSchema()));
-    for (String groupByField : conf.getGroupByFields()) {
+    // then we wouldn't have to calculate schema here. Until then, only calculate it when the input schema changes.
+    Schema inputSchema = record.getSchema();
+    if (!isSameSchema(inputSchema, groupKeyInputSchema)) {
+      groupKeySchema = getGroupKeySchema(inputSchema);
+      groupKeyInputSchema = inputSchema;
+    }
+    StructuredRecord.Builder builder = StructuredRecord.builder(groupKeySchema);
+    for (String groupByField : groupByFields) {
       builder.set(groupByField, record.get(groupByField));
     }
     emitter.emit(builder.build());
@@ -166,6 +178,16 @@ public class GroupByAggregator extends RecordAggregator {
   }
 
   private void initAggregates(Schema valueSchema) {
+    // aggregate functions are restarted for every group, so they only need to be created when the schema changes
+    if (!isSameSchema(valueSchema, aggregatesInputSchema)) {
+      createAggregates(valueSchema);
+    }
+    for (AggregateFunction aggregateFunction : aggregateFunctions.values()) {
+      aggregateFunction.beginFunction();
+    }
+  }
+
+  private void createAggregates(Schema valueSchema) {
     List<Schema.Field> outputFields = new ArrayList<>(groupByFields.size() + functionInfos.size());
     for (String groupByField : groupByFields) {
       outputFields.add(valueSchema.getField(groupByField));
@@ -176,16 +198,21 @@ public class GroupByAggregator extends RecordAggregator {
       Schema.Field inputField = valueSchema.getField(functionInfo.getField());
       Schema fieldSchema = inputField == null ? null : inputField.getSchema();
       AggregateFunction aggregateFunction = functionInfo.getAggregateFunction(fieldSchema);
-      aggregateFunction.beginFunction();
       outputFields.add(Schema.Field.of(functionInfo.getName(), aggregateFunction.getOutputSchema()));
       aggregateFunctions.put(functionInfo.getName(), aggregateFunction);
     }
     outputSchema = Schema.recordOf(valueSchema.getRecordName() + ".agg", outputFields);
+    aggregatesInputSchema = valueSchema;
+  }
+
+  private static boolean isSameSchema(Schema schema, @Nullable Schema other) {
+    // records almost always share the same schema instance, which avoids a full comparison
+    return schema == other || schema.equals(other);
   }
 
   private Schema getGroupKeySchema(Schema inputSchema) {
     List<Schema.Field> fields = new ArrayList<>();
-    for (String groupByField : conf.getGroupByFields()) {
+    for (String groupByField : groupByFields) {
       Schema.Field fieldSchema = inputSchema.getField(groupByField);
       if (fieldSchema == null) {
         throw new IllegalArgumentException(String.format(
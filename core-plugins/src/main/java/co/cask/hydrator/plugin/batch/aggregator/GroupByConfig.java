@@ -22,10 +22,12 @@ import co.cask.hydrator.plugin.batch.aggregator.function.AggregateFunction;
 import co.cask.hydrator.plugin.batch.aggregator.function.Avg;
 import co.cask.hydrator.plugin.batch.aggregator.function.Count;
 import co.cask.hydrator.plugin.batch.aggregator.function.CountAll;
+import co.cask.hydrator.plugin.batch.aggregator.function.CountDistinctApprox;
 import co.cask.hydrator.plugin.batch.aggregator.function.First;
 import co.cask.hydrator.plugin.batch.aggregator.function.Last;
 import co.cask.hydrator.plugin.batch.aggregator.function.Max;
 import co.cask.hydrator.plugin.batch.aggregator.function.Min;
+import co.cask.hydrator.plugin.batch.aggregator.function.Percentile;
 import co.cask.hydrator.plugin.batch.aggregator.function.Stddev;
 import co.cask.hydrator.plugin.batch.aggregator.function.Sum;
 import co.cask.hydrator.plugin.batch.aggregator.function.Variance;
@@ -38,6 +40,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Config for group by types of plugins.
@@ -45,9 +48,11 @@ import java.util.Set;
 public class GroupByConfig extends AggregatorConfig {
 
   @Description("Aggregates to compute on grouped records. " +
-    "Supported aggregate functions are count, count(*), sum, avg, min, max, first, last. " +
+    "Supported aggregate functions are count, count(*), sum, avg, min, max, first, last, stddev, variance, " +
+    "countDistinctApprox, median and percentile. " +
     "A function must specify the field it should be applied on, as well as the name it should be called. " +
     "Aggregates are specified using syntax: \"name:function(field)[, other aggregates]\"." +
+    "The percentile function also takes the percentile to compute, as in 'p95:percentile(latency, 95)'. " +
     "For example, 'avgPrice:avg(price),cheapest:min(price)' will calculate two aggregates. " +
     "The first will create a field called 'avgPrice' that is the average of all 'price' fields in the group. " +
     "The second will create a field called 'cheapest' that contains the minimum 'price' field in the group")
@@ -85,7 +90,7 @@ public class GroupByConfig extends AggregatorConfig {
   List<FunctionInfo> getAggregates() {
     List<FunctionInfo> functionInfos = new ArrayList<>();
     Set<String> aggregateNames = new HashSet<>();
-    for (String aggregate : Splitter.on(',').trimResults().split(aggregates)) {
+    for (String aggregate : splitAggregates(aggregates)) {
       int colonIdx = aggregate.indexOf(':');
       if (colonIdx < 0) {
         throw new IllegalArgumentException(String.format(
@@ -119,12 +124,41 @@ public class GroupByConfig extends AggregatorConfig {
           functionAndField));
       }
       String field = functionAndField.substring(leftParanIdx + 1, functionAndField.length() - 1).trim();
+      Double percentile = null;
+      if (function == Function.PERCENTILE) {
+        int commaIdx = field.lastIndexOf(',');
+        if (commaIdx < 0) {
+          throw new IllegalArgumentException(String.format(
+            "Invalid function '%s'. Percentiles must be specified as percentile(field, percentile).",
+            functionAndField));
+        }
+        String percentileStr = field.substring(commaIdx + 1).trim();
+        field = field.substring(0, commaIdx).trim();
+        try {
+          percentile = Double.parseDouble(percentileStr);
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException(String.format(
+            "Invalid percentile '%s' in function '%s'. It must be a number.", percentileStr, functionAndField));
+        }
+        if (percentile < 0d || percentile > 100d) {
+          throw new IllegalArgumentException(String.format(
+            "Invalid percentile '%s' in function '%s'. It must be between 0 and 100.",
+            percentileStr, functionAndField));
+        }
+      } else if (field.indexOf(',') >= 0) {
+        throw new IllegalArgumentException(String.format(
+          "Invalid function '%s'. Only the percentile function takes more than one argument.", functionAndField));
+      }
       if (field.isEmpty()) {
         throw new IllegalArgumentException(String.format(
           "Invalid function '%s'. A field must be given as an argument.", functionAndField));
       }
+      if ("*".equals(field) && function != Function.COUNT) {
+        throw new IllegalArgumentException(String.format(
+          "Invalid function '%s'. Only the count function can be applied to '*'.", functionAndField));
+      }
 
-      functionInfos.add(new FunctionInfo(name, field, function));
+      functionInfos.add(new FunctionInfo(name, field, function, percentile));
     }
 
     if (functionInfos.isEmpty()) {
@@ -133,6 +167,28 @@ public class GroupByConfig extends AggregatorConfig {
     return functionInfos;
   }
 
+  /**
+   * Splits on commas that are not inside parentheses, since some functions take more than one argument.
+   */
+  private static List<String> splitAggregates(String aggregates) {
+    List<String> parts = new ArrayList<>();
+    int depth = 0;
+    int start = 0;
+    for (int i = 0; i < aggregates.length(); i++) {
+      char c = aggregates.charAt(i);
+      if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (c == ',' && depth <= 0) {
+        parts.add(aggregates.substring(start, i).trim());
+        start = i + 1;
+      }
+    }
+    parts.add(aggregates.substring(start).trim());
+    return parts;
+  }
+
   /**
    * Class to hold information for an aggregate function.
    */
@@ -140,11 +196,17 @@ public class GroupByConfig extends AggregatorConfig {
     private final String name;
     private final String field;
     private final Function function;
+    private final Double percentile;
 
     public FunctionInfo(String name, String field, Function function) {
+      this(name, field, function, null);
+    }
+
+    public FunctionInfo(String name, String field, Function function, @Nullable Double percentile) {
       this.name = name;
       this.field = field;
       this.function = function;
+      this.percentile = percentile;
     }
 
     public String getName() {
@@ -159,6 +221,11 @@ public class GroupByConfig extends AggregatorConfig {
       return function;
     }
 
+    @Nullable
+    public Double getPercentile() {
+      return percentile;
+    }
+
     public AggregateFunction getAggregateFunction(Schema fieldSchema) {
       switch (function) {
         case COUNT:
@@ -182,6 +249,12 @@ public class GroupByConfig extends AggregatorConfig {
           return new Stddev(field, fieldSchema);
         case VARIANCE:
           return new Variance(field, fieldSchema);
+        case COUNTDISTINCTAPPROX:
+          return new CountDistinctApprox(field, fieldSchema);
+        case MEDIAN:
+          return new Percentile(field, fieldSchema, 50d);
+        case PERCENTILE:
+          return new Percentile(field, fieldSchema, percentile);
       }
       // should never happen
       throw new IllegalStateException("Unknown function type " + function);
@@ -200,12 +273,13 @@ public class GroupByConfig extends AggregatorConfig {
 
       return Objects.equals(name, that.name) &&
         Objects.equals(field, that.field) &&
-        Objects.equals(function, that.function);
+        Objects.equals(function, that.function) &&
+        Objects.equals(percentile, that.percentile);
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(name, field, function);
+      return Objects.hash(name, field, function, percentile);
     }
 
     @Override
@@ -214,6 +288,7 @@ public class GroupByConfig extends AggregatorConfig {
         "name='" + name + '\'' +
         ", field='" + field + '\'' +
         ", function=" + function +
+        ", percentile=" + percentile +
         '}';
     }
   }
@@ -227,6 +302,9 @@ public class GroupByConfig extends AggregatorConfig {
     FIRST,
     LAST,
     STDDEV,
-    VARIANCE
+    VARIANCE,
+    COUNTDISTINCTAPPROX,
+    MEDIAN,
+    PERCENTILE
   }
 }
@@ -23,7 +23,7 @@ import co.cask.hydrator.plugin.batch.aggregator.AggregationUtils;
 /**
  * Calculates the average of a column. Does not protect against overflow.
  */
-public class Avg implements AggregateFunction<Double> {
+public class Avg implements MergeableFunction<Double> {
   private final String fieldName;
   private final Schema outputSchema;
   private double avg;
@@ -57,6 +57,16 @@ public class Avg implements AggregateFunction<Double> {
     avg = avg + (((Number) val).doubleValue() - avg) / count;
   }
 
+  @Override
+  public void mergeWith(MergeableFunction<Double> other) {
+    Avg otherAvg = (Avg) other;
+    if (otherAvg.count == 0) {
+      return;
+    }
+    count += otherAvg.count;
+    avg = avg + (otherAvg.avg - avg) * otherAvg.count / count;
+  }
+
   @Override
   public Double getAggregate() {
     if (count == 0) {
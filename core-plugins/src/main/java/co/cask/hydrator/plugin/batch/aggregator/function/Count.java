@@ -22,7 +22,7 @@ import co.cask.cdap.api.data.schema.Schema;
 /**
  * Counts the number of times a specific column has a non-null value.
  */
-public class Count implements AggregateFunction<Long> {
+public class Count implements MergeableFunction<Long> {
   private final String fieldName;
   private long count;
 
@@ -42,6 +42,11 @@ public class Count implements AggregateFunction<Long> {
     }
   }
 
+  @Override
+  public void mergeWith(MergeableFunction<Long> other) {
+    count += ((Count) other).count;
+  }
+
   @Override
   public Long getAggregate() {
     return count;
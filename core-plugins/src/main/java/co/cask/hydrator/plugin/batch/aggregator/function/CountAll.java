@@ -22,7 +22,7 @@ import co.cask.cdap.api.data.schema.Schema;
 /**
  * Counts the number of records in a group. This is the function for count(*).
  */
-public class CountAll implements AggregateFunction<Long> {
+public class CountAll implements MergeableFunction<Long> {
   private long count;
 
   @Override
@@ -35,6 +35,11 @@ public class CountAll implements AggregateFunction<Long> {
     count++;
   }
 
+  @Override
+  public void mergeWith(MergeableFunction<Long> other) {
+    count += ((CountAll) other).count;
+  }
+
   @Override
   public Long getAggregate() {
     return count;
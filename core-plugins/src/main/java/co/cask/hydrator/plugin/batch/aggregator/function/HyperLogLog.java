@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.aggregator.function;
+
+/**
+ * HyperLogLog sketch that estimates the number of distinct values it has seen using a fixed amount of memory.
+ * Uses 64 bit hashes, which makes the large range correction of the original algorithm unnecessary, and
+ * linear counting for small cardinalities, as described in the HyperLogLog++ paper by Heule et al.
+ * http://research.google.com/pubs/pub40671.html
+ * The relative standard error of the estimate is about 1.04 / sqrt(2^precision).
+ */
+public final class HyperLogLog {
+  private final int precision;
+  private final byte[] registers;
+
+  /**
+   * @param precision number of bits of the hash used to pick a register. Uses 2^precision bytes of memory.
+   */
+  public HyperLogLog(int precision) {
+    if (precision < 4 || precision > 16) {
+      throw new IllegalArgumentException(String.format(
+        "Precision must be between 4 and 16, but is %d.", precision));
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  /**
+   * Adds a value to the sketch.
+   * @param hash 64 bit hash of the value. Should come from a hash function with good avalanche properties.
+   */
+  public void offer(long hash) {
+    int index = (int) (hash >>> (64 - precision));
+    // the guard bit caps the rank at 64 - precision + 1 if all the remaining bits are zero
+    long remaining = (hash << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+    if (rank > registers[index]) {
+      registers[index] = rank;
+    }
+  }
+
+  /**
+   * Merges another sketch into this one, as if all values offered to the other sketch had been offered here.
+   * @param other sketch to merge. It is not modified.
+   */
+  public void merge(HyperLogLog other) {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException(String.format(
+        "Cannot merge a sketch with precision %d into a sketch with precision %d.", other.precision, precision));
+    }
+    for (int i = 0; i < registers.length; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * @return Estimated number of distinct values offered to the sketch.
+   */
+  public long cardinality() {
+    int numRegisters = registers.length;
+    double sum = 0d;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1d / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double estimate = alpha(numRegisters) * numRegisters * numRegisters / sum;
+    // the raw estimate is heavily biased for small cardinalities, where linear counting does much better
+    if (estimate <= 2.5d * numRegisters && zeros > 0) {
+      estimate = numRegisters * Math.log((double) numRegisters / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  private static double alpha(int numRegisters) {
+    switch (numRegisters) {
+      case 16:
+        return 0.673d;
+      case 32:
+        return 0.697d;
+      case 64:
+        return 0.709d;
+      default:
+        return 0.7213d / (1d + 1.079d / numRegisters);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.aggregator.function;
+
+/**
+ * An {@link AggregateFunction} whose partial aggregate can be combined with the partial aggregate of another
+ * instance of the same function. This allows the aggregate of a group to be computed on separate portions of
+ * the group, for example on different partitions, and then combined into the aggregate for the entire group.
+ *
+ * @param <T> type of aggregate value
+ */
+public interface MergeableFunction<T> extends AggregateFunction<T> {
+
+  /**
+   * Merges the partial aggregate of another function into this one. The other function must be of the same type
+   * and operate on the same field. Both functions must have been started with {@link #beginFunction()}.
+   * After the merge, {@link #getAggregate()} returns the aggregate of all records passed to either function.
+   * The other function is left unchanged.
+   *
+   * @param other the function whose partial aggregate should be merged into this one
+   */
+  void mergeWith(MergeableFunction<T> other);
+}
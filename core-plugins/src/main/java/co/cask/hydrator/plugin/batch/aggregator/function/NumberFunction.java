@@ -26,9 +26,12 @@ import javax.annotation.Nullable;
  * Allows subclasses to implement typed methods instead of implementing their own casting logic.
  * Guarantees that only methods for one type will be called for each aggregate. For example,
  * if {@link #updateInt(int)} is called, only {@link #updateInt(int)} will be called.
+ * Partial aggregates are merged by updating one function with the aggregate of the other, so subclasses must
+ * compute aggregates that can stand in for the values they were computed from, like a sum, min, or max.
  */
-public abstract class NumberFunction implements AggregateFunction<Number> {
+public abstract class NumberFunction implements MergeableFunction<Number> {
   private final AggregateFunction<? extends Number> typedDelegate;
+  private final Schema.Type numberType;
 
   public NumberFunction(final String fieldName, @Nullable Schema fieldSchema) {
     // if schema is not known before we start getting records, just use doubles.
@@ -57,11 +60,13 @@ public abstract class NumberFunction implements AggregateFunction<Number> {
           return Schema.nullableOf(Schema.of(Schema.Type.DOUBLE));
         }
       };
+      numberType = Schema.Type.DOUBLE;
       return;
     }
 
     final boolean isNullable = fieldSchema.isNullable();
     Schema.Type fieldType = isNullable ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
+    numberType = fieldType;
     switch (fieldType) {
       case INT:
         typedDelegate = new AggregateFunction<Integer>() {
@@ -183,6 +188,28 @@ public abstract class NumberFunction implements AggregateFunction<Number> {
     typedDelegate.operateOn(record);
   }
 
+  @Override
+  public void mergeWith(MergeableFunction<Number> other) {
+    Number otherAggregate = other.getAggregate();
+    // only happens if the other function never saw a non-null value
+    if (otherAggregate == null) {
+      return;
+    }
+    switch (numberType) {
+      case INT:
+        updateInt(otherAggregate.intValue());
+        break;
+      case LONG:
+        updateLong(otherAggregate.longValue());
+        break;
+      case FLOAT:
+        updateFloat(otherAggregate.floatValue());
+        break;
+      default:
+        updateDouble(otherAggregate.doubleValue());
+    }
+  }
+
   @Override
   public Number getAggregate() {
     return typedDelegate.getAggregate();
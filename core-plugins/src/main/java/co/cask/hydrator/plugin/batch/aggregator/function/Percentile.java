@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.aggregator.function;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.hydrator.plugin.batch.aggregator.AggregationUtils;
+
+/**
+ * Estimates a percentile of a numeric field using a {@link QuantileSketch}.
+ * Uses a few KB of memory per group regardless of the size of the group.
+ */
+public class Percentile implements MergeableFunction<Double> {
+  private static final int SKETCH_SIZE = 200;
+  private final String fieldName;
+  private final double percentile;
+  private final Schema outputSchema;
+  private QuantileSketch sketch;
+
+  /**
+   * @param percentile the percentile to compute, between 0 and 100. For example, 50 for the median.
+   */
+  public Percentile(String fieldName, Schema fieldSchema, double percentile) {
+    this.fieldName = fieldName;
+    if (percentile < 0d || percentile > 100d) {
+      throw new IllegalArgumentException(String.format(
+        "Cannot compute percentile %s on field %s because it is not between 0 and 100", percentile, fieldName));
+    }
+    this.percentile = percentile;
+    boolean isNullable = fieldSchema.isNullable();
+    Schema.Type fieldType = isNullable ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
+    if (!AggregationUtils.isNumericType(fieldType)) {
+      throw new IllegalArgumentException(String.format(
+        "Cannot compute percentile on field %s because its type %s is not numeric", fieldName, fieldType));
+    }
+    outputSchema = isNullable ? Schema.nullableOf(Schema.of(Schema.Type.DOUBLE)) : Schema.of(Schema.Type.DOUBLE);
+  }
+
+  @Override
+  public void beginFunction() {
+    sketch = new QuantileSketch(SKETCH_SIZE);
+  }
+
+  @Override
+  public void operateOn(StructuredRecord record) {
+    Object val = record.get(fieldName);
+    if (val == null) {
+      return;
+    }
+    sketch.push(((Number) val).doubleValue());
+  }
+
+  @Override
+  public void mergeWith(MergeableFunction<Double> other) {
+    sketch.merge(((Percentile) other).sketch);
+  }
+
+  @Override
+  public Double getAggregate() {
+    if (sketch.count() == 0) {
+      // only happens if the field value was always null
+      return null;
+    }
+    return sketch.quantile(percentile / 100d);
+  }
+
+  @Override
+  public Schema getOutputSchema() {
+    return outputSchema;
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.aggregator.function;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Sketch that estimates quantiles of the numbers pushed into it using a bounded amount of memory.
+ * Numbers are kept in a hierarchy of levels, where each number at level h stands in for 2^h of the original numbers.
+ * When a level is full, it is sorted and every other number in it is promoted to the next level, so the total number
+ * of retained numbers stays around 3 * k. The rank error of a quantile is roughly proportional to 1 / k.
+ * This is the KLL sketch described by Karnin, Lang and Liberty in "Optimal Quantile Approximation in Streams".
+ */
+public final class QuantileSketch {
+  private static final double CAPACITY_DECAY = 2d / 3d;
+  private static final int MIN_CAPACITY = 2;
+  // fixed so that the numbers promoted during compaction, and therefore the estimates, are the same on every run
+  private static final long SEED = 0x5EEDL;
+
+  private final int k;
+  private final Random random;
+  private double[][] levels;
+  private int[] sizes;
+  private long count;
+  private double min;
+  private double max;
+
+  /**
+   * @param k capacity of the top level, which determines the accuracy and size of the sketch.
+   */
+  public QuantileSketch(int k) {
+    if (k < MIN_CAPACITY) {
+      throw new IllegalArgumentException(String.format("k must be at least %d, but is %d.", MIN_CAPACITY, k));
+    }
+    this.k = k;
+    this.random = new Random(SEED);
+    this.levels = new double[][] { new double[k] };
+    this.sizes = new int[1];
+  }
+
+  /**
+   * Adds a number to the sketch.
+   * @param x number to add.
+   */
+  public void push(double x) {
+    updateRange(x, x);
+    count++;
+    append(0, x);
+    compress();
+  }
+
+  /**
+   * Merges another sketch into this one, as if all numbers pushed into the other sketch had been pushed here.
+   * @param other sketch to merge. It is not modified.
+   */
+  public void merge(QuantileSketch other) {
+    if (other.count == 0) {
+      return;
+    }
+    updateRange(other.min, other.max);
+    count += other.count;
+    for (int level = 0; level < other.levels.length; level++) {
+      for (int i = 0; i < other.sizes[level]; i++) {
+        append(level, other.levels[level][i]);
+      }
+    }
+    compress();
+  }
+
+  /**
+   * @return Number of numbers pushed into the sketch.
+   */
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Returns an estimate of the given quantile. The minimum and maximum are always exact.
+   * Must only be called if at least one number has been pushed into the sketch.
+   * @param fraction quantile to estimate, between 0 and 1. For example, 0.5 for the median.
+   * @return Estimate of the quantile.
+   */
+  public double quantile(double fraction) {
+    if (count == 0) {
+      throw new IllegalStateException("Cannot compute a quantile of an empty sketch.");
+    }
+    if (fraction <= 0d) {
+      return min;
+    }
+    if (fraction >= 1d) {
+      return max;
+    }
+
+    // sort all retained numbers, keeping track of how many original numbers each one stands in for
+    int numRetained = 0;
+    for (int size : sizes) {
+      numRetained += size;
+    }
+    final double[] values = new double[numRetained];
+    long[] weights = new long[numRetained];
+    Integer[] order = new Integer[numRetained];
+    int idx = 0;
+    for (int level = 0; level < levels.length; level++) {
+      for (int i = 0; i < sizes[level]; i++) {
+        values[idx] = levels[level][i];
+        weights[idx] = 1L << level;
+        order[idx] = idx;
+        idx++;
+      }
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return Double.compare(values[o1], values[o2]);
+      }
+    });
+
+    double target = fraction * count;
+    long cumulativeWeight = 0L;
+    for (Integer i : order) {
+      cumulativeWeight += weights[i];
+      if (cumulativeWeight >= target) {
+        return values[i];
+      }
+    }
+    return max;
+  }
+
+  private void updateRange(double otherMin, double otherMax) {
+    if (count == 0) {
+      min = otherMin;
+      max = otherMax;
+    } else {
+      min = Math.min(min, otherMin);
+      max = Math.max(max, otherMax);
+    }
+  }
+
+  private void append(int level, double x) {
+    if (level == levels.length) {
+      levels = Arrays.copyOf(levels, level + 1);
+      levels[level] = new double[capacity(level)];
+      sizes = Arrays.copyOf(sizes, level + 1);
+    }
+    if (sizes[level] == levels[level].length) {
+      levels[level] = Arrays.copyOf(levels[level], 2 * levels[level].length);
+    }
+    levels[level][sizes[level]++] = x;
+  }
+
+  private void compress() {
+    while (true) {
+      int numRetained = 0;
+      int capacity = 0;
+      int fullLevel = -1;
+      for (int level = 0; level < levels.length; level++) {
+        numRetained += sizes[level];
+        int levelCapacity = capacity(level);
+        capacity += levelCapacity;
+        if (fullLevel < 0 && sizes[level] >= levelCapacity) {
+          fullLevel = level;
+        }
+      }
+      // if there are more numbers than capacity, at least one level must be over its capacity
+      if (numRetained <= capacity) {
+        return;
+      }
+      compact(fullLevel);
+    }
+  }
+
+  private void compact(int level) {
+    double[] items = levels[level];
+    int size = sizes[level];
+    Arrays.sort(items, 0, size);
+    // with an odd number of items, one of them stays at this level so that the total weight doesn't change
+    int start = size % 2;
+    int offset = random.nextBoolean() ? 1 : 0;
+    for (int i = start + offset; i < size; i += 2) {
+      append(level + 1, items[i]);
+    }
+    sizes[level] = start;
+  }
+
+  private int capacity(int level) {
+    int depth = levels.length - 1 - level;
+    return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+  }
+}
@@ -16,12 +16,19 @@
 
 package co.cask.hydrator.plugin.batch.aggregator.function;
 
+import java.nio.ByteBuffer;
+
 /**
  * Computes Mean, Variance, Standard Deviation, Skewness and Kurtosis in single pass.
  * Uses Knuth and Welford for computing Standard Deviation in one pass through data.
  * http://www.johndcook.com/blog/skewness_kurtosis/
+ *
+ * Stats computed over separate parts of the data can be combined with {@link #merge(RunningStats)},
+ * and can be serialized with {@link #toBytes()} so that they can be computed in different processes.
  */
 public final class RunningStats  {
+  private static final int SERIALIZED_SIZE = Long.SIZE / Byte.SIZE + 4 * Double.SIZE / Byte.SIZE;
+
   private long entries = 0L;
   private double mean1, mean2, mean3, mean4 = 0d;
 
@@ -44,6 +51,89 @@ public final class RunningStats  {
     mean2 += term1;
   }
 
+  /**
+   * Merges stats computed over other numbers into these stats, as if all the numbers had been pushed here.
+   * Uses the pairwise update formulas of Chan et al. extended to the third and fourth moments by Pebay, which are
+   * numerically stable regardless of the relative sizes of the two sets of numbers.
+   * http://www.johndcook.com/blog/skewness_kurtosis/
+   * @param other stats to merge into these stats. They are not modified.
+   */
+  public void merge(RunningStats other) {
+    if (other.entries == 0) {
+      return;
+    }
+    if (entries == 0) {
+      entries = other.entries;
+      mean1 = other.mean1;
+      mean2 = other.mean2;
+      mean3 = other.mean3;
+      mean4 = other.mean4;
+      return;
+    }
+
+    // use doubles for the counts so that the products below can't overflow
+    double na = entries;
+    double nb = other.entries;
+    double n = na + nb;
+    double delta = other.mean1 - mean1;
+    double delta2 = delta * delta;
+    double delta3 = delta * delta2;
+    double delta4 = delta2 * delta2;
+
+    double combined1 = mean1 + delta * nb / n;
+    double combined2 = mean2 + other.mean2 + delta2 * na * nb / n;
+    double combined3 = mean3 + other.mean3 + delta3 * na * nb * (na - nb) / (n * n) +
+      3.0 * delta * (na * other.mean2 - nb * mean2) / n;
+    double combined4 = mean4 + other.mean4 + delta4 * na * nb * (na * na - na * nb + nb * nb) / (n * n * n) +
+      6.0 * delta2 * (na * na * other.mean2 + nb * nb * mean2) / (n * n) +
+      4.0 * delta * (na * other.mean3 - nb * mean3) / n;
+
+    entries += other.entries;
+    mean1 = combined1;
+    mean2 = combined2;
+    mean3 = combined3;
+    mean4 = combined4;
+  }
+
+  /**
+   * @return Serialized form of these stats, which can be read back with {@link #fromBytes(byte[])}.
+   */
+  public byte[] toBytes() {
+    ByteBuffer buffer = ByteBuffer.allocate(SERIALIZED_SIZE);
+    buffer.putLong(entries);
+    buffer.putDouble(mean1);
+    buffer.putDouble(mean2);
+    buffer.putDouble(mean3);
+    buffer.putDouble(mean4);
+    return buffer.array();
+  }
+
+  /**
+   * @param bytes stats serialized with {@link #toBytes()}.
+   * @return Stats read from the given bytes.
+   */
+  public static RunningStats fromBytes(byte[] bytes) {
+    if (bytes.length != SERIALIZED_SIZE) {
+      throw new IllegalArgumentException(String.format(
+        "Serialized stats must be %d bytes long, but got %d bytes.", SERIALIZED_SIZE, bytes.length));
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    RunningStats stats = new RunningStats();
+    stats.entries = buffer.getLong();
+    stats.mean1 = buffer.getDouble();
+    stats.mean2 = buffer.getDouble();
+    stats.mean3 = buffer.getDouble();
+    stats.mean4 = buffer.getDouble();
+    return stats;
+  }
+
+  /**
+   * @return Number of numbers pushed into these stats.
+   */
+  public long count() {
+    return entries;
+  }
+
   /**
    * @return Mean of all the numbers.
    */
@@ -23,7 +23,7 @@ import co.cask.hydrator.plugin.batch.aggregator.AggregationUtils;
 /**
  * Calculates Variance
  */
-public class Variance implements AggregateFunction<Double> {
+public class Variance implements MergeableFunction<Double> {
   private final String fieldName;
   private final Schema outputSchema;
   private RunningStats stats;
@@ -54,6 +54,11 @@ public class Variance implements AggregateFunction<Double> {
     stats.push(value);
   }
 
+  @Override
+  public void mergeWith(MergeableFunction<Double> other) {
+    stats.merge(((Variance) other).stats);
+  }
+
   @Override
   public Double getAggregate() {
     return stats.variance();
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.common;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A mutable {@link Map} view of the fields of a {@link StructuredRecord}, which converts the value of a field only
+ * when it is first read.
+ *
+ * Nested records are exposed as {@link StructuredRecordMap StructuredRecordMaps}, arrays and collections as lists,
+ * bytes as lists of numbers, and maps with their values converted, so that the view has the same shape as the record
+ * serialized by the {@link StructuredRecordSerializer}. Converted values are kept, so that changes to nested values
+ * are visible through the view. The record itself is never modified.
+ */
+public final class StructuredRecordMap extends AbstractMap<String, Object> {
+  private final StructuredRecord record;
+  private Map<String, Object> values;
+  private boolean complete;
+
+  public StructuredRecordMap(StructuredRecord record) {
+    this.record = record;
+    this.values = new LinkedHashMap<>();
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (complete || values.containsKey(key)) {
+      return values.get(key);
+    }
+    if (!isField(key)) {
+      return null;
+    }
+    Object value = toScriptValue(record.get((String) key));
+    values.put((String) key, value);
+    return value;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return values.containsKey(key) || (!complete && isField(key));
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    materialize();
+    return values.put(key, value);
+  }
+
+  @Override
+  public Object remove(Object key) {
+    materialize();
+    return values.remove(key);
+  }
+
+  @Override
+  public int size() {
+    return complete ? values.size() : record.getSchema().getFields().size();
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    materialize();
+    return values.entrySet();
+  }
+
+  private boolean isField(Object key) {
+    return key instanceof String && record.getSchema().getField((String) key) != null;
+  }
+
+  /**
+   * Converts all fields that were not read yet, in the order of the record schema.
+   */
+  private void materialize() {
+    if (complete) {
+      return;
+    }
+    Map<String, Object> all = new LinkedHashMap<>();
+    for (Schema.Field field : record.getSchema().getFields()) {
+      String name = field.getName();
+      all.put(name, values.containsKey(name) ? values.get(name) : toScriptValue(record.get(name)));
+    }
+    values = all;
+    complete = true;
+  }
+
+  private static Object toScriptValue(Object value) {
+    if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+      return value;
+    }
+    if (value instanceof StructuredRecord) {
+      return new StructuredRecordMap((StructuredRecord) value);
+    }
+    if (value instanceof ByteBuffer) {
+      return toList(Bytes.toBytes((ByteBuffer) value));
+    }
+    if (value instanceof Map) {
+      Map<Object, Object> map = new LinkedHashMap<>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        map.put(entry.getKey(), toScriptValue(entry.getValue()));
+      }
+      return map;
+    }
+    if (value instanceof Collection || value.getClass().isArray()) {
+      return toList(value);
+    }
+    return value;
+  }
+
+  private static List<Object> toList(Object collectionOrArray) {
+    List<Object> list = new ArrayList<>();
+    if (collectionOrArray instanceof Collection) {
+      for (Object element : (Collection<?>) collectionOrArray) {
+        list.add(toScriptValue(element));
+      }
+      return list;
+    }
+    int length = Array.getLength(collectionOrArray);
+    for (int i = 0; i < length; i++) {
+      list.add(toScriptValue(Array.get(collectionOrArray, i)));
+    }
+    return list;
+  }
+}
@@ -18,42 +18,115 @@ package co.cask.hydrator.plugin.transform;
 
 import co.cask.cdap.etl.api.CacheConfig;
 import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.StageMetrics;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
- * {@link Lookup} that provides caching over a delegate.
+ * {@link Lookup} that provides caching over a delegate. If metrics are given, cache hits, misses, evictions,
+ * and the time spent loading from the delegate are counted.
+ * The cache is bounded either by the number of entries from the {@link CacheConfig}, or, if a maximum number of
+ * bytes is given, by the estimated size of the cached keys and values.
  *
  * @param <T> the type of object that will be returned for a lookup
  */
 public class CachingLookup<T> implements Lookup<T> {
+  static final String HITS_METRIC = "lookup.cache.hits";
+  static final String MISSES_METRIC = "lookup.cache.misses";
+  static final String EVICTIONS_METRIC = "lookup.cache.evictions";
+  static final String LOAD_TIME_METRIC = "lookup.cache.load.ms";
 
   private final Lookup<T> delegate;
   private final LoadingCache<String, T> cache;
+  @Nullable
+  private final StageMetrics metrics;
+  // load times are accumulated in nanos so that loads shorter than a millisecond are not lost
+  private long loadNanos;
+  private long countedLoadMillis;
 
-  public CachingLookup(final Lookup<T> delegate, CacheConfig cacheConfig) {
+  public CachingLookup(Lookup<T> delegate, CacheConfig cacheConfig) {
+    this(delegate, cacheConfig, null);
+  }
+
+  public CachingLookup(Lookup<T> delegate, CacheConfig cacheConfig, @Nullable StageMetrics metrics) {
+    this(delegate, cacheConfig, metrics, null);
+  }
+
+  /**
+   * @param maxBytes if not null, the cache is bounded by the estimated size in bytes of its entries instead of
+   *                 by the maximum number of entries in the cache config
+   */
+  public CachingLookup(final Lookup<T> delegate, CacheConfig cacheConfig, @Nullable final StageMetrics metrics,
+                       @Nullable Long maxBytes) {
     this.delegate = delegate;
-    this.cache = CacheBuilder.newBuilder()
-      .maximumSize(cacheConfig.getMaxSize())
+    this.metrics = metrics;
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+    if (maxBytes == null) {
+      builder.maximumSize(cacheConfig.getMaxSize());
+    } else {
+      checkMaxBytes(maxBytes);
+      builder.maximumWeight(maxBytes).weigher(new EntryWeigher());
+    }
+    this.cache = builder
       .expireAfterWrite(cacheConfig.getExpirySeconds(), TimeUnit.SECONDS)
+      .removalListener(new RemovalListener<String, T>() {
+        @Override
+        public void onRemoval(RemovalNotification<String, T> notification) {
+          if (metrics != null && notification.wasEvicted()) {
+            metrics.count(EVICTIONS_METRIC, 1);
+          }
+        }
+      })
       .build(new CacheLoader<String, T>() {
         @Override
         public T load(String key) throws Exception {
-          return delegate.lookup(key);
+          long start = System.nanoTime();
+          try {
+            return delegate.lookup(key);
+          } finally {
+            countLoadTime(start);
+          }
         }
       });
   }
 
+  /**
+   * Checks that the given maximum size in bytes of a cache is valid.
+   *
+   * @throws IllegalArgumentException if the size is not positive
+   */
+  static void checkMaxBytes(@Nullable Long maxBytes) {
+    if (maxBytes != null && maxBytes <= 0) {
+      throw new IllegalArgumentException(String.format(
+        "The maximum size of the lookup cache must be a positive number of bytes, but is %d.", maxBytes));
+    }
+  }
+
   @Override
   public T lookup(String key) {
+    if (metrics == null) {
+      return cache.getUnchecked(key);
+    }
+    T value = cache.getIfPresent(key);
+    if (value != null) {
+      metrics.count(HITS_METRIC, 1);
+      return value;
+    }
+    metrics.count(MISSES_METRIC, 1);
     return cache.getUnchecked(key);
   }
 
@@ -67,7 +140,16 @@ public class CachingLookup<T> implements Lookup<T> {
     ImmutableMap<String, T> cached = cache.getAllPresent(keys);
 
     Set<String> missingKeys = Sets.difference(keys, cached.keySet());
+    if (metrics != null) {
+      metrics.count(HITS_METRIC, cached.size());
+      metrics.count(MISSES_METRIC, keys.size() - cached.size());
+    }
+    if (missingKeys.isEmpty()) {
+      return cached;
+    }
+    long start = System.nanoTime();
     Map<String, T> missing = delegate.lookup(missingKeys);
+    countLoadTime(start);
     cache.putAll(missing);
 
     return ImmutableMap.<String, T>builder()
@@ -75,4 +157,61 @@ public class CachingLookup<T> implements Lookup<T> {
       .putAll(missing)
       .build();
   }
+
+  private synchronized void countLoadTime(long startNanos) {
+    if (metrics == null) {
+      return;
+    }
+    loadNanos += System.nanoTime() - startNanos;
+    long loadMillis = TimeUnit.NANOSECONDS.toMillis(loadNanos);
+    if (loadMillis > countedLoadMillis) {
+      metrics.count(LOAD_TIME_METRIC, (int) (loadMillis - countedLoadMillis));
+      countedLoadMillis = loadMillis;
+    }
+  }
+
+  /**
+   * Estimates the heap size of a cache entry. Strings, byte arrays and collections or maps of them, which are what
+   * lookup datasets return, are sized by their contents. Other objects are given a fixed size.
+   */
+  static final class EntryWeigher implements Weigher<Object, Object> {
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE_OVERHEAD = 8;
+    private static final int ENTRY_OVERHEAD = 64;
+
+    @Override
+    public int weigh(Object key, Object value) {
+      return (int) Math.min(Integer.MAX_VALUE, ENTRY_OVERHEAD + estimate(key) + estimate(value));
+    }
+
+    static long estimate(@Nullable Object value) {
+      if (value == null) {
+        return 0;
+      }
+      if (value instanceof String) {
+        return OBJECT_OVERHEAD * 2 + 2L * ((String) value).length();
+      }
+      if (value instanceof byte[]) {
+        return OBJECT_OVERHEAD + ((byte[]) value).length;
+      }
+      if (value instanceof ByteBuffer) {
+        return OBJECT_OVERHEAD * 3 + ((ByteBuffer) value).capacity();
+      }
+      if (value instanceof Map) {
+        long size = OBJECT_OVERHEAD * 3;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          size += OBJECT_OVERHEAD * 2 + estimate(entry.getKey()) + estimate(entry.getValue());
+        }
+        return size;
+      }
+      if (value instanceof Collection) {
+        long size = OBJECT_OVERHEAD * 3;
+        for (Object element : (Collection<?>) value) {
+          size += REFERENCE_OVERHEAD + estimate(element);
+        }
+        return size;
+      }
+      return OBJECT_OVERHEAD * 4;
+    }
+  }
 }
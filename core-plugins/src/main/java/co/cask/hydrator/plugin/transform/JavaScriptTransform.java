@@ -31,6 +31,7 @@ import co.cask.cdap.etl.api.StageMetrics;
 import co.cask.cdap.etl.api.Transform;
 import co.cask.cdap.etl.api.TransformContext;
 import co.cask.hydrator.plugin.ScriptConstants;
+import co.cask.hydrator.plugin.common.StructuredRecordMap;
 import co.cask.hydrator.plugin.common.StructuredRecordSerializer;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
@@ -64,14 +65,13 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     .create();
   private static final Logger LOG = LoggerFactory.getLogger(JavaScriptTransform.class);
   private static final String FUNCTION_NAME = "dont_name_your_function_this";
-  private static final String VARIABLE_NAME = "dont_name_your_variable_this";
-  private static final String EMITTER_NAME = "dont_name_your_variable2_this";
   private static final String CONTEXT_NAME = "dont_name_your_context_this";
   private ScriptEngine engine;
   private Invocable invocable;
   private Schema schema;
   private final Config config;
   private StageMetrics metrics;
+  private JSEmitter jsEmitter;
 
   @Nullable
   private Method somValuesMethod;
@@ -111,10 +111,25 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     @Nullable
     private final String lookup;
 
+    @Description(ScriptConstants.LOOKUP_CACHE_MAX_BYTES_DESCRIPTION)
+    @Nullable
+    private final Long lookupCacheMaxBytes;
+
+    @Description(ScriptConstants.NATIVE_RECORDS_DESCRIPTION)
+    @Nullable
+    private final Boolean nativeRecords;
+
     public Config(String script, String schema, LookupConfig lookup) {
+      this(script, schema, lookup, null, null);
+    }
+
+    public Config(String script, String schema, LookupConfig lookup, @Nullable Long lookupCacheMaxBytes,
+                  @Nullable Boolean nativeRecords) {
       this.script = script;
       this.schema = schema;
       this.lookup = GSON.toJson(lookup);
+      this.lookupCacheMaxBytes = lookupCacheMaxBytes;
+      this.nativeRecords = nativeRecords;
     }
   }
 
@@ -158,15 +173,21 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) {
     try {
-      engine.eval(String.format("var %s = %s;", VARIABLE_NAME, GSON.toJson(input)));
-      Emitter<Map> jsEmitter = new JSEmitter(emitter, schema == null ? input.getSchema() : schema);
-      engine.put(EMITTER_NAME, jsEmitter);
-      invocable.invokeFunction(FUNCTION_NAME);
+      Emitter<Map> scriptEmitter = getJSEmitter(emitter, schema == null ? input.getSchema() : schema);
+      invocable.invokeFunction(FUNCTION_NAME, toScriptRecord(input), scriptEmitter);
     } catch (Exception e) {
       throw new IllegalArgumentException("Could not transform input: " + e.getMessage(), e);
     }
   }
 
+  private JSEmitter getJSEmitter(Emitter<StructuredRecord> emitter, Schema outputSchema) {
+    // reuse the wrapper for as long as the stage emitter and the output schema stay the same
+    if (jsEmitter == null || jsEmitter.emitter != emitter || jsEmitter.schema != outputSchema) {
+      jsEmitter = new JSEmitter(emitter, outputSchema);
+    }
+    return jsEmitter;
+  }
+
   /**
    * Emitter to be used from within JavaScript code
    */
@@ -266,7 +287,8 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
   }
 
   private List jsObject2List(Object object) {
-    if (somValuesMethod != null) {
+    // arrays of native records are already Java lists
+    if (somValuesMethod != null && !(object instanceof List)) {
       // using Nashorn (Java 8+) -- convert ScriptObjectMirror to List
       try {
         return (List) somValuesMethod.invoke(object);
@@ -338,6 +360,14 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     throw new RuntimeException("Unable decode union with schema " + schemas);
   }
 
+  private boolean isNativeRecords() {
+    return config.nativeRecords != null && config.nativeRecords;
+  }
+
+  private Object toScriptRecord(StructuredRecord input) {
+    return isNativeRecords() ? new StructuredRecordMap(input) : GSON.toJson(input);
+  }
+
   private void init(LookupProvider lookup) {
     ScriptEngineManager manager = new ScriptEngineManager();
     engine = manager.getEngineByName("JavaScript");
@@ -358,17 +388,11 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
       throw new IllegalArgumentException("Invalid lookup config. Expected map of string to string", e);
     }
 
-    engine.put(CONTEXT_NAME, new ScriptContext(LOG, metrics, lookup, lookupConfig, js));
+    engine.put(CONTEXT_NAME, new ScriptContext(LOG, metrics, lookup, lookupConfig, js, config.lookupCacheMaxBytes));
 
     try {
-      // this is pretty ugly, but doing this so that we can pass the 'input' json into the transform function.
-      // that is, we want people to implement
-      // function transform(input) { ... }
-      // rather than function transform() { ... } and have them access a global variable in the function
-
-      String script = String.format("function %s() { return transform(%s, %s, %s); }\n%s",
-                                    FUNCTION_NAME, VARIABLE_NAME, EMITTER_NAME, CONTEXT_NAME, config.script);
-      engine.eval(script);
+      engine.eval(ScriptConstants.wrapUserFunction(FUNCTION_NAME, "transform", CONTEXT_NAME, config.script,
+                                                   isNativeRecords(), "emitter"));
     } catch (ScriptException e) {
       throw new IllegalArgumentException("Invalid script: " + e.getMessage(), e);
     }
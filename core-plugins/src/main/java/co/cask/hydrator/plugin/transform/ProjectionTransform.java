@@ -106,8 +106,10 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
   private Set<String> fieldsToKeep = Sets.newHashSet();
   private BiMap<String, String> fieldsToRename = HashBiMap.create();
   private Map<String, Schema.Type> fieldsToConvert = Maps.newHashMap();
-  // cache input schema hash to output schema so we don't have to build it each time
-  private Map<Schema, Schema> schemaCache = Maps.newHashMap();
+  // cache input schema to projection plan so we don't have to build it each time
+  private Map<Schema, ProjectionPlan> planCache = Maps.newHashMap();
+  private Schema lastInputSchema;
+  private ProjectionPlan lastPlan;
 
   @Override
   public void configurePipeline(PipelineConfigurer pipelineConfigurer) throws IllegalArgumentException {
@@ -130,30 +132,16 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
 
   @Override
   public void transform(StructuredRecord valueIn, Emitter<StructuredRecord> emitter) {
-    Schema inputSchema = valueIn.getSchema();
-    Schema outputSchema = getOutputSchema(inputSchema);
-    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
-    for (Schema.Field inputField : inputSchema.getFields()) {
-      String inputFieldName = inputField.getName();
-      if (!fieldsToKeep.isEmpty() && !fieldsToKeep.contains(inputFieldName)) {
-          continue;
-      } else if (fieldsToDrop.contains(inputFieldName)) {
-        continue;
-      }
-      // get the corresponding output field name
-      String outputFieldName = fieldsToRename.get(inputFieldName);
-      if (outputFieldName == null) {
-        outputFieldName = inputFieldName;
-      }
-
-      Schema.Field outputField = outputSchema.getField(outputFieldName);
-      Object inputVal = valueIn.get(inputFieldName);
-
+    ProjectionPlan plan = getPlan(valueIn.getSchema());
+    StructuredRecord.Builder builder = StructuredRecord.builder(plan.outputSchema);
+    for (int i = 0; i < plan.inputFieldNames.length; i++) {
+      Object inputVal = valueIn.get(plan.inputFieldNames[i]);
+      FieldConverter converter = plan.converters[i];
       // if we need to convert the value, convert it. otherwise just pass the value through
-      if (fieldsToConvert.containsKey(inputFieldName)) {
-        convertAndSet(builder, outputFieldName, inputVal, inputField.getSchema(), outputField.getSchema());
+      if (converter == null) {
+        builder.set(plan.outputFieldNames[i], inputVal);
       } else {
-        builder.set(outputFieldName, inputVal);
+        converter.convertAndSet(builder, plan.outputFieldNames[i], inputVal);
       }
     }
     emitter.emit(builder.build());
@@ -204,30 +192,7 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
     }
   }
 
-  private void convertAndSet(StructuredRecord.Builder builder, String fieldName, Object val,
-                             Schema inputSchema, Schema outputSchema) {
-    // guaranteed that if the input type is nullable, the output type is also nullable.
-    Schema.Type inputType = inputSchema.getType();
-    Schema.Type outputType = outputSchema.getType();
-    if (inputSchema.isNullable()) {
-      if (val == null) {
-        builder.set(fieldName, null);
-        return;
-      }
-      inputType = inputSchema.getNonNullable().getType();
-      outputType = outputSchema.getNonNullable().getType();
-    }
-
-    // if the input is a string, try and do some sensible conversion
-    if (inputType == Schema.Type.STRING) {
-      builder.convertAndSet(fieldName, (String) val);
-    } else {
-      // otherwise, just try to cast it.
-      builder.set(fieldName, convertPrimitive(val, inputType, outputType));
-    }
-  }
-
-  private Object convertPrimitive(Object val, Schema.Type inputType, Schema.Type outputType) {
+  private static Object convertPrimitive(Object val, Schema.Type inputType, Schema.Type outputType) {
     if (inputType == outputType) {
       return val;
     }
@@ -320,12 +285,29 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
   }
 
   private Schema getOutputSchema(Schema inputSchema) {
-    Schema output = schemaCache.get(inputSchema);
-    if (output != null) {
-      return output;
+    return getPlan(inputSchema).outputSchema;
+  }
+
+  private ProjectionPlan getPlan(Schema inputSchema) {
+    // records from the same source almost always share the same schema instance,
+    // so check that before falling back to the map, which has to hash the whole schema
+    if (inputSchema == lastInputSchema) {
+      return lastPlan;
     }
+    ProjectionPlan plan = planCache.get(inputSchema);
+    if (plan == null) {
+      plan = createPlan(inputSchema);
+      planCache.put(inputSchema, plan);
+    }
+    lastInputSchema = inputSchema;
+    lastPlan = plan;
+    return plan;
+  }
 
+  private ProjectionPlan createPlan(Schema inputSchema) {
     List<Schema.Field> outputFields = Lists.newArrayList();
+    List<String> inputFieldNames = Lists.newArrayList();
+    List<FieldConverter> converters = Lists.newArrayList();
     for (Schema.Field inputField : inputSchema.getFields()) {
       String inputFieldName = inputField.getName();
       if (fieldsToDrop.contains(inputFieldName)) {
@@ -335,9 +317,11 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
       }
 
       Schema outputFieldSchema = inputField.getSchema();
+      FieldConverter converter = null;
       // if this is a field that will be converted, figure out the desired schema
       if (fieldsToConvert.containsKey(inputFieldName)) {
-        outputFieldSchema = Schema.of(fieldsToConvert.get(inputFieldName));
+        Schema.Type outputFieldType = fieldsToConvert.get(inputFieldName);
+        outputFieldSchema = Schema.of(outputFieldType);
         Schema inputFieldSchema = inputField.getSchema();
         Schema.Type inputFieldType = inputFieldSchema.getType();
 
@@ -350,6 +334,7 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
         if (!inputFieldType.isSimpleType() || inputFieldType == Schema.Type.NULL) {
           throw new IllegalArgumentException("Field " + inputFieldName + " is of unconvertable type " + inputFieldType);
         }
+        converter = createConverter(inputFieldType, outputFieldType);
       }
 
       String outputFieldName = inputFieldName;
@@ -358,10 +343,90 @@ public class ProjectionTransform extends Transform<StructuredRecord, StructuredR
       }
 
       outputFields.add(Schema.Field.of(outputFieldName, outputFieldSchema));
+      inputFieldNames.add(inputFieldName);
+      converters.add(converter);
+    }
+
+    Schema outputSchema = Schema.recordOf(inputSchema.getRecordName() + ".projected", outputFields);
+    String[] outputFieldNames = new String[outputFields.size()];
+    for (int i = 0; i < outputFieldNames.length; i++) {
+      outputFieldNames[i] = outputFields.get(i).getName();
+    }
+    return new ProjectionPlan(outputSchema, inputFieldNames.toArray(new String[inputFieldNames.size()]),
+                              outputFieldNames, converters.toArray(new FieldConverter[converters.size()]));
+  }
+
+  private static FieldConverter createConverter(final Schema.Type inputType, final Schema.Type outputType) {
+    // if the input is a string, try and do some sensible conversion
+    if (inputType == Schema.Type.STRING) {
+      return new FieldConverter() {
+        @Override
+        public void convertAndSet(StructuredRecord.Builder builder, String fieldName, @Nullable Object val) {
+          if (val == null) {
+            builder.set(fieldName, null);
+          } else {
+            builder.convertAndSet(fieldName, (String) val);
+          }
+        }
+      };
+    }
+    if (inputType != outputType && !isConvertible(inputType, outputType)) {
+      throw new IllegalArgumentException("Cannot convert type " + inputType + " to type " + outputType);
+    }
+    // otherwise, just try to cast it.
+    return new FieldConverter() {
+      @Override
+      public void convertAndSet(StructuredRecord.Builder builder, String fieldName, @Nullable Object val) {
+        // guaranteed that if the input type is nullable, the output type is also nullable.
+        builder.set(fieldName, val == null ? null : convertPrimitive(val, inputType, outputType));
+      }
+    };
+  }
+
+  private static boolean isConvertible(Schema.Type inputType, Schema.Type outputType) {
+    switch (inputType) {
+      case BYTES:
+        return outputType != Schema.Type.BYTES;
+      case BOOLEAN:
+        return outputType == Schema.Type.STRING || outputType == Schema.Type.BYTES;
+      case INT:
+        return outputType != Schema.Type.BOOLEAN;
+      case LONG:
+        return outputType != Schema.Type.BOOLEAN && outputType != Schema.Type.INT;
+      case FLOAT:
+        return outputType == Schema.Type.DOUBLE || outputType == Schema.Type.STRING ||
+          outputType == Schema.Type.BYTES;
+      case DOUBLE:
+        return outputType == Schema.Type.STRING || outputType == Schema.Type.BYTES;
+      default:
+        return false;
     }
+  }
+
+  /**
+   * Sets the converted value of a single field on the output record.
+   */
+  private interface FieldConverter {
+    void convertAndSet(StructuredRecord.Builder builder, String fieldName, @Nullable Object val);
+  }
 
-    output = Schema.recordOf(inputSchema.getRecordName() + ".projected", outputFields);
-    schemaCache.put(inputSchema, output);
-    return output;
+  /**
+   * Everything needed to project records of one input schema, resolved once so that the per record work
+   * is just a walk over these arrays. Fields that are dropped do not appear in the plan, and a null converter
+   * means the value is passed through as is.
+   */
+  private static final class ProjectionPlan {
+    private final Schema outputSchema;
+    private final String[] inputFieldNames;
+    private final String[] outputFieldNames;
+    private final FieldConverter[] converters;
+
+    private ProjectionPlan(Schema outputSchema, String[] inputFieldNames, String[] outputFieldNames,
+                           FieldConverter[] converters) {
+      this.outputSchema = outputSchema;
+      this.inputFieldNames = inputFieldNames;
+      this.outputFieldNames = outputFieldNames;
+      this.converters = converters;
+    }
   }
 }
@@ -34,8 +34,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.python.core.Py;
-import org.python.core.PyCode;
 import org.python.core.PyException;
+import org.python.core.PyObject;
 import org.python.util.PythonInterpreter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,15 +55,17 @@ import javax.annotation.Nullable;
 @Name("PythonEvaluator")
 @Description("Executes user-provided Python code that transforms one record into another.")
 public class PythonEvaluator extends Transform<StructuredRecord, StructuredRecord> {
-  private static final String INPUT_STRUCTURED_RECORD_VARIABLE_NAME = "dont_name_your_variable_this1";
-  private static final String EMITTER_VARIABLE_NAME = "dont_name_your_variable_this2";
-  private static final String CONTEXT_NAME = "dont_name_your_context_this";
+  private static final String FUNCTION_NAME = "transform";
   private final Config config;
   private Schema schema;
   private StageMetrics metrics;
   private Logger logger;
   private PythonInterpreter interpreter;
-  private PyCode compiledScript;
+  private PyObject transformFunction;
+  private PyObject pyContext;
+  private Emitter<StructuredRecord> lastEmitter;
+  private Schema lastEmitterSchema;
+  private PyObject pyEmitter;
 
   /**
    * Configuration for the script transform.
@@ -164,10 +166,8 @@ public class PythonEvaluator extends Transform<StructuredRecord, StructuredRecor
   @Override
   public void transform(StructuredRecord input, final Emitter<StructuredRecord> emitter) {
     try {
-      Emitter<Map> pythonEmitter = new PythonEmitter(emitter, schema == null ? input.getSchema() : schema);
-      interpreter.set(INPUT_STRUCTURED_RECORD_VARIABLE_NAME, encode(input, input.getSchema()));
-      interpreter.set(EMITTER_VARIABLE_NAME, pythonEmitter);
-      Py.runCode(compiledScript, interpreter.getLocals(), interpreter.getLocals());
+      PyObject pythonEmitter = getPythonEmitter(emitter, schema == null ? input.getSchema() : schema);
+      transformFunction.__call__(Py.java2py(encode(input, input.getSchema())), pythonEmitter, pyContext);
 
     } catch (PyException e) {
       // We put the stack trace as the exception message, because otherwise the information from PyException is lost.
@@ -343,9 +343,19 @@ public class PythonEvaluator extends Transform<StructuredRecord, StructuredRecor
     throw new RuntimeException("Unable to decode union with schema " + schemas);
   }
 
+  private PyObject getPythonEmitter(Emitter<StructuredRecord> emitter, Schema outputSchema) {
+    // converting the emitter into a Jython proxy is costly, so the proxy is kept until the emitter or schema changes
+    if (pyEmitter == null || emitter != lastEmitter || outputSchema != lastEmitterSchema) {
+      pyEmitter = Py.java2py(new PythonEmitter(emitter, outputSchema));
+      lastEmitter = emitter;
+      lastEmitterSchema = outputSchema;
+    }
+    return pyEmitter;
+  }
+
   private void init() {
     interpreter = new PythonInterpreter();
-    interpreter.set(CONTEXT_NAME, new ScriptContext(
+    pyContext = Py.java2py(new ScriptContext(
       logger, metrics,
       new LookupProvider() {
         @Override
@@ -361,15 +371,14 @@ public class PythonEvaluator extends Transform<StructuredRecord, StructuredRecor
         }
       }));
 
-    // this is pretty ugly, but doing this so that we can pass the 'input' record into the transform function.
-    // that is, we want people to implement
-    // def transform(input, emitter, context): ...
-    // rather than def transform(): ...  and have them access the input, emitter, and context via global variables
-
-    String script = String.format("%s\ntransform(%s, %s, %s)",
-                                  config.script, INPUT_STRUCTURED_RECORD_VARIABLE_NAME,
-                                  EMITTER_VARIABLE_NAME, CONTEXT_NAME);
-    compiledScript = interpreter.compile(script);
+    // run the script once to define the transform function, then call the function directly for each record,
+    // so that the script body doesn't have to be executed again and the function doesn't have to be looked up again
+    interpreter.exec(interpreter.compile(config.script));
+    transformFunction = interpreter.get(FUNCTION_NAME);
+    if (transformFunction == null || !transformFunction.isCallable()) {
+      throw new IllegalArgumentException(
+        "The script must define a function 'transform' that takes a record, an emitter, and a context.");
+    }
     if (config.schema != null) {
       schema = parseJson(config.schema);
     }
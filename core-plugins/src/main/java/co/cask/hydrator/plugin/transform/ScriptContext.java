@@ -37,10 +37,16 @@ public class ScriptContext {
   public ScriptContext(
     Logger logger, StageMetrics metrics, LookupProvider lookup, @Nullable LookupConfig lookupConfig,
     JavaTypeConverters js) {
+    this(logger, metrics, lookup, lookupConfig, js, null);
+  }
+
+  public ScriptContext(
+    Logger logger, StageMetrics metrics, LookupProvider lookup, @Nullable LookupConfig lookupConfig,
+    JavaTypeConverters js, @Nullable Long lookupCacheMaxBytes) {
 
     this.logger = logger;
     this.metrics = metrics;
-    this.lookup = new ScriptLookupProvider(lookup, lookupConfig);
+    this.lookup = new ScriptLookupProvider(lookup, lookupConfig, metrics, lookupCacheMaxBytes);
     this.js = js;
   }
 
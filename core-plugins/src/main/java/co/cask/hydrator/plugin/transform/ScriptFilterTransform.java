@@ -29,6 +29,7 @@ import co.cask.cdap.etl.api.StageMetrics;
 import co.cask.cdap.etl.api.Transform;
 import co.cask.cdap.etl.api.TransformContext;
 import co.cask.hydrator.plugin.ScriptConstants;
+import co.cask.hydrator.plugin.common.StructuredRecordMap;
 import co.cask.hydrator.plugin.common.StructuredRecordSerializer;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
@@ -67,7 +68,6 @@ public class ScriptFilterTransform extends Transform<StructuredRecord, Structure
     .registerTypeAdapter(StructuredRecord.class, new StructuredRecordSerializer())
     .create();
   private static final String FUNCTION_NAME = "dont_name_your_function_this";
-  private static final String VARIABLE_NAME = "dont_name_your_variable_this";
   private static final String CONTEXT_NAME = "dont_name_your_context_this";
 
   private final ScriptFilterConfig scriptFilterConfig;
@@ -102,8 +102,7 @@ public class ScriptFilterTransform extends Transform<StructuredRecord, Structure
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) {
     try {
-      engine.eval(String.format("var %s = %s;", VARIABLE_NAME, GSON.toJson(input)));
-      Boolean shouldFilter = (Boolean) invocable.invokeFunction(FUNCTION_NAME);
+      Boolean shouldFilter = (Boolean) invocable.invokeFunction(FUNCTION_NAME, toScriptRecord(input));
       if (!shouldFilter) {
         emitter.emit(input);
       } else {
@@ -115,6 +114,14 @@ public class ScriptFilterTransform extends Transform<StructuredRecord, Structure
     }
   }
 
+  private boolean isNativeRecords() {
+    return scriptFilterConfig.nativeRecords != null && scriptFilterConfig.nativeRecords;
+  }
+
+  private Object toScriptRecord(StructuredRecord input) {
+    return isNativeRecords() ? new StructuredRecordMap(input) : GSON.toJson(input);
+  }
+
   private void init(LookupProvider lookupProvider) {
     ScriptEngineManager manager = new ScriptEngineManager();
     engine = manager.getEngineByName("JavaScript");
@@ -136,16 +143,11 @@ public class ScriptFilterTransform extends Transform<StructuredRecord, Structure
     }
 
     engine.put(CONTEXT_NAME, new ScriptContext(
-      logger, metrics, lookupProvider, lookupConfig, js));
+      logger, metrics, lookupProvider, lookupConfig, js, scriptFilterConfig.lookupCacheMaxBytes));
 
-    // this is pretty ugly, but doing this so that we can pass the 'input' json into the shouldFilter function.
-    // that is, we want people to implement
-    // function shouldFilter(input) { ... }
-    // rather than function shouldFilter() { ... } and have them access a global variable in the function
     try {
-      String script = String.format("function %s() { return shouldFilter(%s, %s); }\n%s",
-        FUNCTION_NAME, VARIABLE_NAME, CONTEXT_NAME, scriptFilterConfig.script);
-      engine.eval(script);
+      engine.eval(ScriptConstants.wrapUserFunction(FUNCTION_NAME, "shouldFilter", CONTEXT_NAME,
+                                                   scriptFilterConfig.script, isNativeRecords()));
     } catch (ScriptException e) {
       throw new IllegalArgumentException("Invalid script: " + e.getMessage(), e);
     }
@@ -162,5 +164,13 @@ public class ScriptFilterTransform extends Transform<StructuredRecord, Structure
     @Description("Lookup tables to use during transform. Currently supports KeyValueTable.")
     @Nullable
     String lookup;
+
+    @Description(ScriptConstants.LOOKUP_CACHE_MAX_BYTES_DESCRIPTION)
+    @Nullable
+    Long lookupCacheMaxBytes;
+
+    @Description(ScriptConstants.NATIVE_RECORDS_DESCRIPTION)
+    @Nullable
+    Boolean nativeRecords;
   }
 }
@@ -17,8 +17,10 @@ package co.cask.hydrator.plugin.transform;
 
 import co.cask.cdap.etl.api.Lookup;
 import co.cask.cdap.etl.api.LookupTableConfig;
+import co.cask.cdap.etl.api.StageMetrics;
 
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Provides JavaScript-friendly lookup functions for {@link ScriptTransform}.
@@ -30,10 +32,12 @@ public class ScriptLookup {
   private final JavaTypeConverters js;
   private final LookupTableConfig config;
 
-  public ScriptLookup(Lookup<Object> delegate, LookupTableConfig config, JavaTypeConverters js) {
+  public ScriptLookup(Lookup<Object> delegate, LookupTableConfig config, JavaTypeConverters js,
+                      @Nullable StageMetrics metrics, @Nullable Long cacheMaxBytes) {
     this.config = config;
     this.js = js;
-    this.delegate = config.isCacheEnabled() ? new CachingLookup<>(delegate, config.getCacheConfig()) : delegate;
+    this.delegate = config.isCacheEnabled() ?
+      new CachingLookup<>(delegate, config.getCacheConfig(), metrics, cacheMaxBytes) : delegate;
   }
 
   public Object lookup(String key) {
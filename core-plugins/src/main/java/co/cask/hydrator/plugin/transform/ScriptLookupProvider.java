@@ -19,6 +19,11 @@ import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.etl.api.LookupConfig;
 import co.cask.cdap.etl.api.LookupProvider;
 import co.cask.cdap.etl.api.LookupTableConfig;
+import co.cask.cdap.etl.api.StageMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * {@link LookupProvider} implementation for {@link ScriptTransform}.
@@ -27,14 +32,36 @@ public class ScriptLookupProvider {
 
   private final LookupProvider delegate;
   private final LookupConfig config;
+  private final StageMetrics metrics;
+  private final Long cacheMaxBytes;
+  // scripts usually call getLookup() for every record, so lookups are kept to avoid dropping their caches
+  private final Map<String, ScriptLookup> lookups;
+
+  public ScriptLookupProvider(LookupProvider delegate, LookupConfig config, StageMetrics metrics) {
+    this(delegate, config, metrics, null);
+  }
 
-  public ScriptLookupProvider(LookupProvider delegate, LookupConfig config) {
+  public ScriptLookupProvider(LookupProvider delegate, LookupConfig config, StageMetrics metrics,
+                              @Nullable Long cacheMaxBytes) {
     this.delegate = delegate;
     this.config = config;
+    this.metrics = metrics;
+    CachingLookup.checkMaxBytes(cacheMaxBytes);
+    this.cacheMaxBytes = cacheMaxBytes;
+    this.lookups = new HashMap<>();
   }
 
-  @SuppressWarnings("unchecked")
   public ScriptLookup provide(String table, JavaTypeConverters converters) {
+    ScriptLookup lookup = lookups.get(table);
+    if (lookup == null) {
+      lookup = createLookup(table, converters);
+      lookups.put(table, lookup);
+    }
+    return lookup;
+  }
+
+  @SuppressWarnings("unchecked")
+  private ScriptLookup createLookup(String table, JavaTypeConverters converters) {
     if (config == null) {
       throw new RuntimeException("Missing lookup configuration");
     }
@@ -45,6 +72,7 @@ public class ScriptLookupProvider {
     }
 
     DatasetProperties arguments = DatasetProperties.builder().addAll(tableConfig.getDatasetProperties()).build();
-    return new ScriptLookup(delegate.provide(table, arguments.getProperties()), tableConfig, converters);
+    return new ScriptLookup(delegate.provide(table, arguments.getProperties()), tableConfig, converters, metrics,
+                            cacheMaxBytes);
   }
 }
@@ -30,6 +30,7 @@ import co.cask.cdap.etl.api.StageMetrics;
 import co.cask.cdap.etl.api.Transform;
 import co.cask.cdap.etl.api.TransformContext;
 import co.cask.hydrator.plugin.ScriptConstants;
+import co.cask.hydrator.plugin.common.StructuredRecordMap;
 import co.cask.hydrator.plugin.common.StructuredRecordSerializer;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -64,7 +65,6 @@ public class ScriptTransform extends Transform<StructuredRecord, StructuredRecor
     .create();
   private static final Logger LOG = LoggerFactory.getLogger(ScriptTransform.class);
   private static final String FUNCTION_NAME = "dont_name_your_function_this";
-  private static final String VARIABLE_NAME = "dont_name_your_variable_this";
   private static final String CONTEXT_NAME = "dont_name_your_context_this";
   private ScriptEngine engine;
   private Invocable invocable;
@@ -103,10 +103,25 @@ public class ScriptTransform extends Transform<StructuredRecord, StructuredRecor
     @Nullable
     private final String lookup;
 
+    @Description(ScriptConstants.LOOKUP_CACHE_MAX_BYTES_DESCRIPTION)
+    @Nullable
+    private final Long lookupCacheMaxBytes;
+
+    @Description(ScriptConstants.NATIVE_RECORDS_DESCRIPTION)
+    @Nullable
+    private final Boolean nativeRecords;
+
     public Config(String script, String schema, LookupConfig lookup) {
+      this(script, schema, lookup, null, null);
+    }
+
+    public Config(String script, String schema, LookupConfig lookup, @Nullable Long lookupCacheMaxBytes,
+                  @Nullable Boolean nativeRecords) {
       this.script = script;
       this.schema = schema;
       this.lookup = GSON.toJson(lookup);
+      this.lookupCacheMaxBytes = lookupCacheMaxBytes;
+      this.nativeRecords = nativeRecords;
     }
   }
 
@@ -150,8 +165,7 @@ public class ScriptTransform extends Transform<StructuredRecord, StructuredRecor
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) {
     try {
-      engine.eval(String.format("var %s = %s;", VARIABLE_NAME, GSON.toJson(input)));
-      Map scriptOutput = (Map) invocable.invokeFunction(FUNCTION_NAME);
+      Map scriptOutput = (Map) invocable.invokeFunction(FUNCTION_NAME, toScriptRecord(input));
       StructuredRecord output = decodeRecord(scriptOutput, schema == null ? input.getSchema() : schema);
       emitter.emit(output);
     } catch (Exception e) {
@@ -202,7 +216,8 @@ public class ScriptTransform extends Transform<StructuredRecord, StructuredRecor
   }
 
   private List jsObject2List(Object object) {
-    if (somValuesMethod != null) {
+    // arrays of native records are already Java lists
+    if (somValuesMethod != null && !(object instanceof List)) {
       // using Nashorn (Java 8+) -- convert ScriptObjectMirror to List
       try {
         return (List) somValuesMethod.invoke(object);
@@ -274,6 +289,14 @@ public class ScriptTransform extends Transform<StructuredRecord, StructuredRecor
     throw new RuntimeException("Unable decode union with schema " + schemas);
   }
 
+  private boolean isNativeRecords() {
+    return config.nativeRecords != null && config.nativeRecords;
+  }
+
+  private Object toScriptRecord(StructuredRecord input) {
+    return isNativeRecords() ? new StructuredRecordMap(input) : GSON.toJson(input);
+  }
+
   private void init(LookupProvider lookup) {
     ScriptEngineManager manager = new ScriptEngineManager();
     engine = manager.getEngineByName("JavaScript");
@@ -294,17 +317,11 @@ public class ScriptTransform extends Transform<StructuredRecord, StructuredRecor
       throw new IllegalArgumentException("Invalid lookup config. Expected map of string to string", e);
     }
 
-    engine.put(CONTEXT_NAME, new ScriptContext(LOG, metrics, lookup, lookupConfig, js));
+    engine.put(CONTEXT_NAME, new ScriptContext(LOG, metrics, lookup, lookupConfig, js, config.lookupCacheMaxBytes));
 
     try {
-      // this is pretty ugly, but doing this so that we can pass the 'input' json into the transform function.
-      // that is, we want people to implement
-      // function transform(input) { ... }
-      // rather than function transform() { ... } and have them access a global variable in the function
-
-      String script = String.format("function %s() { return transform(%s, %s); }\n%s",
-        FUNCTION_NAME, VARIABLE_NAME, CONTEXT_NAME, config.script);
-      engine.eval(script);
+      engine.eval(ScriptConstants.wrapUserFunction(FUNCTION_NAME, "transform", CONTEXT_NAME, config.script,
+                                                   isNativeRecords()));
     } catch (ScriptException e) {
       throw new IllegalArgumentException("Invalid script: " + e.getMessage(), e);
     }
@@ -34,7 +34,13 @@ public class ValidatorScriptContext extends ScriptContext {
   public ValidatorScriptContext(Logger logger, StageMetrics metrics, LookupProvider lookup,
                                 @Nullable LookupConfig lookupConfig, JavaTypeConverters js,
                                 Map<String, Object> validators) {
-    super(logger, metrics, lookup, lookupConfig, js);
+    this(logger, metrics, lookup, lookupConfig, js, validators, null);
+  }
+
+  public ValidatorScriptContext(Logger logger, StageMetrics metrics, LookupProvider lookup,
+                                @Nullable LookupConfig lookupConfig, JavaTypeConverters js,
+                                Map<String, Object> validators, @Nullable Long lookupCacheMaxBytes) {
+    super(logger, metrics, lookup, lookupConfig, js, lookupCacheMaxBytes);
     this.validators = validators;
   }
 
@@ -32,6 +32,7 @@ import co.cask.cdap.etl.api.Transform;
 import co.cask.cdap.etl.api.TransformContext;
 import co.cask.cdap.etl.api.Validator;
 import co.cask.hydrator.plugin.ScriptConstants;
+import co.cask.hydrator.plugin.common.StructuredRecordMap;
 import co.cask.hydrator.plugin.common.StructuredRecordSerializer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
@@ -96,7 +97,6 @@ public class ValidatorTransform extends Transform<StructuredRecord, StructuredRe
     .registerTypeAdapter(StructuredRecord.class, new StructuredRecordSerializer())
     .create();
   private static final Logger LOG = LoggerFactory.getLogger(ValidatorTransform.class);
-  private static final String VARIABLE_NAME = "dont_name_your_variable_this";
   private static final String FUNCTION_NAME = "dont_name_your_function_this";
   private static final String CONTEXT_NAME = "dont_name_your_context_this";
 
@@ -150,8 +150,7 @@ public class ValidatorTransform extends Transform<StructuredRecord, StructuredRe
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) throws Exception {
     try {
-      engine.eval(String.format("var %s = %s;", VARIABLE_NAME, GSON.toJson(input)));
-      Map result = (Map) invocable.invokeFunction(FUNCTION_NAME);
+      Map result = (Map) invocable.invokeFunction(FUNCTION_NAME, toScriptRecord(input));
 
       Preconditions.checkState(result.containsKey("isValid"),
                                "Result map returned by isValid function did not contain an entry for 'isValid'");
@@ -191,6 +190,14 @@ public class ValidatorTransform extends Transform<StructuredRecord, StructuredRe
     return new InvalidEntry<>(errorCodeInt, (String) result.get("errorMsg"), input);
   }
 
+  private boolean isNativeRecords() {
+    return config.nativeRecords != null && config.nativeRecords;
+  }
+
+  private Object toScriptRecord(StructuredRecord input) {
+    return isNativeRecords() ? new StructuredRecordMap(input) : GSON.toJson(input);
+  }
+
   private void init(List<Validator> validators, LookupProvider lookup) throws ScriptException {
     ScriptEngineManager manager = new ScriptEngineManager();
     engine = manager.getEngineByName("JavaScript");
@@ -221,16 +228,11 @@ public class ValidatorTransform extends Transform<StructuredRecord, StructuredRe
       throw new IllegalArgumentException("Invalid lookup config. Expected map of string to string", e);
     }
 
-    engine.put(CONTEXT_NAME, new ValidatorScriptContext(LOG, metrics, lookup, lookupConfig, js, validatorMap));
+    engine.put(CONTEXT_NAME, new ValidatorScriptContext(LOG, metrics, lookup, lookupConfig, js, validatorMap,
+                                                        config.lookupCacheMaxBytes));
 
-    // this is pretty ugly, but doing this so that we can pass the 'input' json into the isValid function.
-    // that is, we want people to implement
-    // function isValid(input) { ... }
-    // rather than function isValid() { ... } with the input record assigned to the global variable
-    // and have them access the global variable in the function
-    String script = String.format("function %s() { return isValid(%s, %s); }\n%s",
-      FUNCTION_NAME, VARIABLE_NAME, CONTEXT_NAME, config.validationScript);
-    engine.eval(script);
+    engine.eval(ScriptConstants.wrapUserFunction(FUNCTION_NAME, "isValid", CONTEXT_NAME, config.validationScript,
+                                                 isNativeRecords()));
     invocable = (Invocable) engine;
   }
 
@@ -246,5 +248,13 @@ public class ValidatorTransform extends Transform<StructuredRecord, StructuredRe
     @Description("Lookup tables to use during transform. Currently supports KeyValueTable.")
     @Nullable
     String lookup;
+
+    @Description(ScriptConstants.LOOKUP_CACHE_MAX_BYTES_DESCRIPTION)
+    @Nullable
+    Long lookupCacheMaxBytes;
+
+    @Description(ScriptConstants.NATIVE_RECORDS_DESCRIPTION)
+    @Nullable
+    Boolean nativeRecords;
   }
 }
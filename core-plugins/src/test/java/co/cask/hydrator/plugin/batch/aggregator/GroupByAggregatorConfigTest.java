@@ -51,4 +51,35 @@ public class GroupByAggregatorConfigTest {
     );
     Assert.assertEquals(expected, config.getAggregates());
   }
+
+  @Test
+  public void testApproximateFunctionParsing() {
+    GroupByConfig config = new GroupByConfig("user",
+                                             "numItems:countDistinctApprox(item), " +
+                                               "medianPrice : median(price)," +
+                                               "p95 : percentile( price , 95 ) ," +
+                                               "p99_9:percentile(price,99.9)");
+    List<GroupByConfig.FunctionInfo> expected = ImmutableList.of(
+      new GroupByConfig.FunctionInfo("numItems", "item", GroupByConfig.Function.COUNTDISTINCTAPPROX),
+      new GroupByConfig.FunctionInfo("medianPrice", "price", GroupByConfig.Function.MEDIAN),
+      new GroupByConfig.FunctionInfo("p95", "price", GroupByConfig.Function.PERCENTILE, 95d),
+      new GroupByConfig.FunctionInfo("p99_9", "price", GroupByConfig.Function.PERCENTILE, 99.9d)
+    );
+    Assert.assertEquals(expected, config.getAggregates());
+  }
+
+  @Test
+  public void testInvalidPercentiles() {
+    for (String aggregates : ImmutableList.of("p:percentile(price)", "p:percentile(price, high)",
+                                              "p:percentile(price, 101)", "p:percentile(, 50)",
+                                              "p:avg(price, 50)", "p:percentile(*, 50)", "p:median(*)",
+                                              "n:countDistinctApprox(*)", "s:sum(*)")) {
+      try {
+        new GroupByConfig("user", aggregates).getAggregates();
+        Assert.fail("Expected aggregates '" + aggregates + "' to be invalid.");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
 }
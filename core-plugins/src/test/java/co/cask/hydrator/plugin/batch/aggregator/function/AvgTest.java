@@ -59,4 +59,15 @@ public class AvgTest extends NumberTest {
     testFunction(avg, schema, 93d / 4d, -10d, 0d, 3d, 100d);
     testFunction(avg, schema, 0.111d / 4d, 0d, 0.1d, 0.01d, 0.001d);
   }
+
+  @Test
+  public void testMergedAvg() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.DOUBLE)));
+    testMergedFunction(new Avg("x", Schema.of(Schema.Type.DOUBLE)), new Avg("x", Schema.of(Schema.Type.DOUBLE)),
+                       schema, 21d / 6d, 1d, 2d, 3d, 4d, 5d, 6d);
+    testMergedFunction(new Avg("x", Schema.of(Schema.Type.DOUBLE)), new Avg("x", Schema.of(Schema.Type.DOUBLE)),
+                       schema, 93d / 5d, -10d, 0d, 3d, 100d, 0d);
+    testMergedFunction(new Avg("x", Schema.of(Schema.Type.DOUBLE)), new Avg("x", Schema.of(Schema.Type.DOUBLE)),
+                       schema, 3d, 3d);
+  }
 }
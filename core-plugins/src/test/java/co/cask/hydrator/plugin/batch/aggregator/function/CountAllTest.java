@@ -43,4 +43,20 @@ public class CountAllTest {
     count.operateOn(StructuredRecord.builder(schema).set("x", 1).build());
     Assert.assertEquals(3L, count.getAggregate().longValue());
   }
+
+  @Test
+  public void testMergedCountAll() {
+    CountAll count = new CountAll();
+    CountAll other = new CountAll();
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+
+    count.beginFunction();
+    other.beginFunction();
+    count.operateOn(StructuredRecord.builder(schema).set("x", 1).build());
+    other.operateOn(StructuredRecord.builder(schema).set("x", 1).build());
+    other.operateOn(StructuredRecord.builder(schema).set("x", 1).build());
+    count.mergeWith(other);
+    Assert.assertEquals(3L, count.getAggregate().longValue());
+    Assert.assertEquals(2L, other.getAggregate().longValue());
+  }
 }
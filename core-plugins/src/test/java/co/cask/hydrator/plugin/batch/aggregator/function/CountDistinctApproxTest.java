@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.aggregator.function;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class CountDistinctApproxTest {
+
+  @Test
+  public void testSmallCounts() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    CountDistinctApprox count = new CountDistinctApprox("x", schema.getField("x").getSchema());
+
+    count.beginFunction();
+    Assert.assertEquals(0L, count.getAggregate().longValue());
+
+    count.beginFunction();
+    count.operateOn(StructuredRecord.builder(schema).set("x", "a").build());
+    count.operateOn(StructuredRecord.builder(schema).set("x", "b").build());
+    count.operateOn(StructuredRecord.builder(schema).set("x", "a").build());
+    count.operateOn(StructuredRecord.builder(schema).build());
+    Assert.assertEquals(2L, count.getAggregate().longValue());
+  }
+
+  @Test
+  public void testLargeCounts() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.LONG)));
+    CountDistinctApprox count = new CountDistinctApprox("x", Schema.of(Schema.Type.LONG));
+    count.beginFunction();
+    for (long i = 0; i < 200000; i++) {
+      // every value shows up twice
+      count.operateOn(StructuredRecord.builder(schema).set("x", i % 100000).build());
+    }
+    assertWithinError(100000L, count.getAggregate());
+  }
+
+  @Test
+  public void testMerge() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.BYTES)));
+    CountDistinctApprox count = new CountDistinctApprox("x", Schema.of(Schema.Type.BYTES));
+    CountDistinctApprox other = new CountDistinctApprox("x", Schema.of(Schema.Type.BYTES));
+    count.beginFunction();
+    other.beginFunction();
+    // values 0 to 29999 go to one function and 20000 to 49999 to the other
+    for (int i = 0; i < 30000; i++) {
+      count.operateOn(StructuredRecord.builder(schema).set("x", Bytes.toBytes(i)).build());
+      other.operateOn(StructuredRecord.builder(schema).set("x", Bytes.toBytes(i + 20000)).build());
+    }
+    count.mergeWith(other);
+    assertWithinError(50000L, count.getAggregate());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonSimpleType() {
+    new CountDistinctApprox("x", Schema.arrayOf(Schema.of(Schema.Type.INT)));
+  }
+
+  private void assertWithinError(long expected, long actual) {
+    // standard error is about 1.6%, so this should never fail for a fixed hash function
+    Assert.assertTrue(String.format("Estimate %d is too far from %d", actual, expected),
+                      Math.abs(actual - expected) < expected * 0.05d);
+  }
+}
@@ -41,4 +41,21 @@ public class CountTest {
     count.operateOn(StructuredRecord.builder(schema).set("y", 1).build());
     Assert.assertEquals(0L, count.getAggregate().longValue());
   }
+
+  @Test
+  public void testMergedCount() {
+    Count count = new Count("x");
+    Count other = new Count("x");
+    Schema schema = Schema.recordOf(
+      "test",
+      Schema.Field.of("x", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("y", Schema.of(Schema.Type.INT)));
+    count.beginFunction();
+    other.beginFunction();
+    count.operateOn(StructuredRecord.builder(schema).set("x", "abc").set("y", 5).build());
+    other.operateOn(StructuredRecord.builder(schema).set("y", 3).build());
+    other.operateOn(StructuredRecord.builder(schema).set("x", "def").set("y", 3).build());
+    count.mergeWith(other);
+    Assert.assertEquals(2L, count.getAggregate().longValue());
+  }
 }
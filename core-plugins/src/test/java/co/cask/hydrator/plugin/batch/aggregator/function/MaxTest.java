@@ -53,4 +53,16 @@ public class MaxTest extends NumberTest {
     Max max = new Max("x", Schema.of(Schema.Type.DOUBLE));
     testFunction(max, schema, Double.MAX_VALUE, -1.1d, 0d, Double.MAX_VALUE, 500.2d);
   }
+
+  @Test
+  public void testMergedMax() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.LONG)));
+    testMergedFunction(new Max("x", Schema.of(Schema.Type.LONG)), new Max("x", Schema.of(Schema.Type.LONG)),
+                       schema, 500L, -1L, 500L, 0L, 7L);
+    testMergedFunction(new Max("x", Schema.of(Schema.Type.LONG)), new Max("x", Schema.of(Schema.Type.LONG)),
+                       schema, 500L, 7L, 0L, 500L, -1L);
+    // nothing to merge from the other function
+    testMergedFunction(new Max("x", Schema.of(Schema.Type.LONG)), new Max("x", Schema.of(Schema.Type.LONG)),
+                       schema, null);
+  }
 }
@@ -29,12 +29,29 @@ public class NumberTest {
     for (Number num : inputs) {
       func.operateOn(StructuredRecord.builder(schema).set("x", num).build());
     }
+    assertAggregate(expected, func.getAggregate());
+  }
+
+  protected void testMergedFunction(MergeableFunction func, MergeableFunction other, Schema schema,
+                                    Number expected, Number... inputs) {
+    // the first half of the inputs goes to one function and the rest to the other
+    func.beginFunction();
+    other.beginFunction();
+    for (int i = 0; i < inputs.length; i++) {
+      MergeableFunction target = i < inputs.length / 2 ? func : other;
+      target.operateOn(StructuredRecord.builder(schema).set("x", inputs[i]).build());
+    }
+    func.mergeWith(other);
+    assertAggregate(expected, func.getAggregate());
+  }
+
+  private void assertAggregate(Number expected, Object actual) {
     if (expected instanceof Float) {
-      Assert.assertTrue(Math.abs((float) expected - (float) func.getAggregate()) < 0.000001f);
+      Assert.assertTrue(Math.abs((float) expected - (float) actual) < 0.000001f);
     } else if (expected instanceof Double) {
-      Assert.assertTrue(Math.abs((double) expected - (double) func.getAggregate()) < 0.000001d);
+      Assert.assertTrue(Math.abs((double) expected - (double) actual) < 0.000001d);
     } else {
-      Assert.assertEquals(expected, func.getAggregate());
+      Assert.assertEquals(expected, actual);
     }
   }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.aggregator.function;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ */
+public class PercentileTest extends NumberTest {
+
+  @Test
+  public void testSmallGroups() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    testFunction(new Percentile("x", Schema.of(Schema.Type.INT), 50d), schema, 3d, 5, 1, 3, 2, 4);
+    testFunction(new Percentile("x", Schema.of(Schema.Type.INT), 0d), schema, 1d, 5, 1, 3, 2, 4);
+    testFunction(new Percentile("x", Schema.of(Schema.Type.INT), 100d), schema, 5d, 5, 1, 3, 2, 4);
+    testFunction(new Percentile("x", Schema.of(Schema.Type.INT), 90d), schema, 7d, 7);
+    testFunction(new Percentile("x", Schema.of(Schema.Type.INT), 50d), schema, null);
+  }
+
+  @Test
+  public void testLargeGroups() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.DOUBLE)));
+    List<Double> values = new ArrayList<>();
+    for (int i = 0; i < 100000; i++) {
+      values.add((double) i);
+    }
+    Collections.shuffle(values);
+
+    Percentile median = new Percentile("x", Schema.of(Schema.Type.DOUBLE), 50d);
+    Percentile p99 = new Percentile("x", Schema.of(Schema.Type.DOUBLE), 99d);
+    median.beginFunction();
+    p99.beginFunction();
+    for (Double value : values) {
+      StructuredRecord record = StructuredRecord.builder(schema).set("x", value).build();
+      median.operateOn(record);
+      p99.operateOn(record);
+    }
+    assertWithinRankError(50000d, median.getAggregate(), values.size());
+    assertWithinRankError(99000d, p99.getAggregate(), values.size());
+  }
+
+  @Test
+  public void testMerge() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.LONG)));
+    Percentile median = new Percentile("x", Schema.of(Schema.Type.LONG), 50d);
+    Percentile other = new Percentile("x", Schema.of(Schema.Type.LONG), 50d);
+    median.beginFunction();
+    other.beginFunction();
+    // one function sees 0 to 9999 and the other sees 10000 to 39999
+    for (long i = 0; i < 40000; i++) {
+      (i < 10000 ? median : other).operateOn(StructuredRecord.builder(schema).set("x", i).build());
+    }
+    median.mergeWith(other);
+    assertWithinRankError(20000d, median.getAggregate(), 40000);
+  }
+
+  @Test
+  public void testDeterministic() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.LONG)));
+    Double previous = null;
+    for (int run = 0; run < 3; run++) {
+      Percentile median = new Percentile("x", Schema.of(Schema.Type.LONG), 50d);
+      median.beginFunction();
+      for (long i = 0; i < 10000; i++) {
+        median.operateOn(StructuredRecord.builder(schema).set("x", (i * 7919) % 10000).build());
+      }
+      if (previous != null) {
+        Assert.assertEquals(previous, median.getAggregate());
+      }
+      previous = median.getAggregate();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPercentile() {
+    new Percentile("x", Schema.of(Schema.Type.INT), 101d);
+  }
+
+  private void assertWithinRankError(double expected, double actual, int numValues) {
+    // values are the ranks themselves, so the rank error is the difference in values
+    Assert.assertTrue(String.format("Estimate %s is too far from %s", actual, expected),
+                      Math.abs(actual - expected) < numValues * 0.02d);
+  }
+}
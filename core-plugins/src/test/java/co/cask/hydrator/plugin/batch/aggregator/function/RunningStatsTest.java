@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.batch.aggregator.function;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ */
+public class RunningStatsTest {
+
+  @Test
+  public void testMerge() {
+    Random random = new Random(42L);
+    double[] values = new double[1000];
+    for (int i = 0; i < values.length; i++) {
+      // large offset with small spread, which is where naive sum of squares falls apart
+      values[i] = 1000000d + random.nextGaussian() * 3d + (i % 7);
+    }
+
+    RunningStats expected = new RunningStats();
+    for (double value : values) {
+      expected.push(value);
+    }
+
+    // split unevenly into several parts and merge them in order
+    int[] splits = { 0, 1, 10, 400, 999, 1000 };
+    RunningStats merged = new RunningStats();
+    for (int i = 0; i < splits.length - 1; i++) {
+      RunningStats part = new RunningStats();
+      for (int j = splits[i]; j < splits[i + 1]; j++) {
+        part.push(values[j]);
+      }
+      merged.merge(part);
+    }
+
+    assertStatsEqual(expected, merged);
+  }
+
+  @Test
+  public void testMergeEmpty() {
+    RunningStats stats = new RunningStats();
+    stats.push(1d);
+    stats.push(5d);
+    stats.merge(new RunningStats());
+    Assert.assertEquals(2L, stats.count());
+    Assert.assertEquals(3d, stats.mean(), 0.000001d);
+    Assert.assertEquals(8d, stats.variance(), 0.000001d);
+
+    RunningStats empty = new RunningStats();
+    empty.merge(stats);
+    assertStatsEqual(stats, empty);
+  }
+
+  @Test
+  public void testSerialization() {
+    RunningStats stats = new RunningStats();
+    for (double value : new double[] { -10d, 0d, 3d, 100d, 2.5d }) {
+      stats.push(value);
+    }
+    assertStatsEqual(stats, RunningStats.fromBytes(stats.toBytes()));
+
+    RunningStats empty = RunningStats.fromBytes(new RunningStats().toBytes());
+    Assert.assertEquals(0L, empty.count());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidSerialization() {
+    RunningStats.fromBytes(new byte[] { 1, 2, 3 });
+  }
+
+  private void assertStatsEqual(RunningStats expected, RunningStats actual) {
+    Assert.assertEquals(expected.count(), actual.count());
+    Assert.assertEquals(expected.mean(), actual.mean(), 0.000001d);
+    Assert.assertEquals(expected.variance(), actual.variance(), 0.000001d);
+    Assert.assertEquals(expected.stddev(), actual.stddev(), 0.000001d);
+    Assert.assertEquals(expected.skewness(), actual.skewness(), 0.000001d);
+    Assert.assertEquals(expected.kurtosis(), actual.kurtosis(), 0.000001d);
+  }
+}
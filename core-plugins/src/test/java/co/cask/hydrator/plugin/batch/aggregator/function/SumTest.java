@@ -55,4 +55,17 @@ public class SumTest extends NumberTest {
     testFunction(sum, schema, 0d, -1.1d, 1.1d, 0d, -50d, 50d);
     testFunction(sum, schema, 3.14d, 0d, 3.1d, 0.04d);
   }
+
+  @Test
+  public void testMergedSum() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    testMergedFunction(new Sum("x", Schema.of(Schema.Type.INT)), new Sum("x", Schema.of(Schema.Type.INT)),
+                       schema, 3, -100, 0, 3, 100);
+    testMergedFunction(new Sum("x", Schema.of(Schema.Type.INT)), new Sum("x", Schema.of(Schema.Type.INT)),
+                       schema, 5, 5);
+
+    schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.DOUBLE)));
+    testMergedFunction(new Sum("x", Schema.of(Schema.Type.DOUBLE)), new Sum("x", Schema.of(Schema.Type.DOUBLE)),
+                       schema, 3.14d, 0d, 3.1d, 0.04d);
+  }
 }
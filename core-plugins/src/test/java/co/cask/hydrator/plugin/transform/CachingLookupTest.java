@@ -18,7 +18,9 @@ package co.cask.hydrator.plugin.transform;
 
 import co.cask.cdap.etl.api.CacheConfig;
 import co.cask.cdap.etl.api.Lookup;
+import co.cask.hydrator.common.test.MockStageMetrics;
 import com.google.common.base.Predicates;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
@@ -28,6 +30,7 @@ import org.junit.Test;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -98,9 +101,121 @@ public class CachingLookupTest {
       lookup.lookup("foo1", "foo4", "foo2"));
   }
 
+  @Test
+  public void testBatchServedFromCache() {
+    Map<String, String> backing = new HashMap<>();
+    for (int i = 1; i <= 10; i++) {
+      backing.put("foo" + i, Integer.toString(i));
+    }
+
+    MapLookup<String> delegate = new MapLookup<>(backing);
+    CacheConfig config = new CacheConfig(60, 10);
+    CachingLookup<String> lookup = new CachingLookup<>(delegate, config);
+
+    Assert.assertEquals(ImmutableMap.of("foo1", "1", "foo2", "2"), lookup.lookup("foo1", "foo2"));
+    Assert.assertEquals(1, delegate.batchLookups);
+
+    // everything is cached, so the delegate should not be called again
+    Assert.assertEquals(ImmutableMap.of("foo2", "2", "foo1", "1"), lookup.lookup("foo2", "foo1"));
+    Assert.assertEquals("1", lookup.lookup("foo1"));
+    Assert.assertEquals(1, delegate.batchLookups);
+
+    Assert.assertEquals(ImmutableMap.of("foo1", "1", "foo3", "3"), lookup.lookup("foo1", "foo3"));
+    Assert.assertEquals(2, delegate.batchLookups);
+  }
+
+  @Test
+  public void testMetrics() {
+    Map<String, String> backing = new HashMap<>();
+    for (int i = 1; i <= 10; i++) {
+      backing.put("foo" + i, Integer.toString(i));
+    }
+
+    MockStageMetrics metrics = new MockStageMetrics("lookup");
+    CachingLookup<String> lookup = new CachingLookup<>(new MapLookup<>(backing), new CacheConfig(60, 2), metrics);
+
+    Assert.assertEquals("1", lookup.lookup("foo1"));
+    Assert.assertEquals("1", lookup.lookup("foo1"));
+    Assert.assertEquals(1, metrics.getCount(CachingLookup.MISSES_METRIC));
+    Assert.assertEquals(1, metrics.getCount(CachingLookup.HITS_METRIC));
+
+    Assert.assertEquals(ImmutableMap.of("foo1", "1", "foo2", "2", "foo3", "3"), lookup.lookup("foo1", "foo2", "foo3"));
+    Assert.assertEquals(3, metrics.getCount(CachingLookup.MISSES_METRIC));
+    Assert.assertEquals(2, metrics.getCount(CachingLookup.HITS_METRIC));
+    // the cache only holds two entries, so adding the third one evicts one
+    Assert.assertEquals(1, metrics.getCount(CachingLookup.EVICTIONS_METRIC));
+  }
+
+  @Test
+  public void testSubMillisecondLoadTimes() {
+    Map<String, String> backing = new HashMap<>();
+    for (int i = 0; i < 50; i++) {
+      backing.put("foo" + i, Integer.toString(i));
+    }
+
+    MockStageMetrics metrics = new MockStageMetrics("lookup");
+    CachingLookup<String> lookup = new CachingLookup<>(new SlowLookup<>(backing, 200), new CacheConfig(60, 100),
+                                                       metrics);
+    for (int i = 0; i < 50; i++) {
+      lookup.lookup("foo" + i);
+    }
+    // each load takes about 0.2ms, so the total must be counted even though no single load reaches a millisecond
+    Assert.assertTrue(metrics.getCount(CachingLookup.LOAD_TIME_METRIC) >= 9);
+  }
+
+  @Test
+  public void testMaxBytes() {
+    Map<String, byte[]> backing = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      backing.put("foo" + i, new byte[1000]);
+    }
+
+    MockStageMetrics metrics = new MockStageMetrics("lookup");
+    // the entry count limit is ignored when a byte limit is given
+    CachingLookup<byte[]> lookup = new CachingLookup<>(new MapLookup<>(backing), new CacheConfig(60, 1000), metrics,
+                                                       10000L);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(1000, lookup.lookup("foo" + i).length);
+    }
+    // about 1KB per entry, so no more than 10 entries fit in the cache
+    Assert.assertTrue(metrics.getCount(CachingLookup.EVICTIONS_METRIC) >= 90);
+  }
+
+  @Test
+  public void testEntryWeigher() {
+    Assert.assertEquals(1016, CachingLookup.EntryWeigher.estimate(new byte[1000]));
+    Assert.assertEquals(2032, CachingLookup.EntryWeigher.estimate(Strings.repeat("x", 1000)));
+    Assert.assertTrue(CachingLookup.EntryWeigher.estimate(ImmutableMap.of("k", new byte[1000])) > 1016);
+    Assert.assertEquals(0, CachingLookup.EntryWeigher.estimate(null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMaxBytes() {
+    new CachingLookup<>(new MapLookup<>(new HashMap<String, String>()), new CacheConfig(60, 10), null, 0L);
+  }
+
+  private static class SlowLookup<T> extends MapLookup<T> {
+    private final long delayNanos;
+
+    SlowLookup(Map<String, T> backing, long delayMicros) {
+      super(backing);
+      this.delayNanos = TimeUnit.MICROSECONDS.toNanos(delayMicros);
+    }
+
+    @Override
+    public T lookup(String key) {
+      long start = System.nanoTime();
+      while (System.nanoTime() - start < delayNanos) {
+        // busy wait, since sleeping has a granularity of at least a millisecond on many platforms
+      }
+      return super.lookup(key);
+    }
+  }
+
   private static class MapLookup<T> implements Lookup<T> {
 
     private final Map<String, T> backing;
+    private int batchLookups;
 
     public MapLookup(Map<String, T> backing) {
       this.backing = backing;
@@ -118,6 +233,7 @@ public class CachingLookupTest {
 
     @Override
     public Map<String, T> lookup(Set<String> keys) {
+      batchLookups++;
       return Maps.filterKeys(backing, Predicates.in(keys));
     }
   }
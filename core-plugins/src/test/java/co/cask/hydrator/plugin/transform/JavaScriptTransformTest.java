@@ -164,6 +164,38 @@ public class JavaScriptTransformTest {
     Assert.assertEquals(expectedListField, output.get("arrayField"));
   }
 
+  @Test
+  public void testNativeRecords() throws Exception {
+    JavaScriptTransform.Config config = new JavaScriptTransform.Config(
+      "function transform(x, emitter, context) { " +
+        "x.intField = x.intField * 1024; " +
+        "if (x.nullableField != null) { x.arrayField[0] = x.mapField.foo + x.stringField; } emitter.emit(x); }",
+      null, null, null, true);
+    Transform<StructuredRecord, StructuredRecord> transform = new JavaScriptTransform(config);
+    transform.initialize(new MockTransformContext());
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(RECORD1, emitter);
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals(SCHEMA, output.getSchema());
+    Assert.assertTrue((Boolean) output.get("booleanField"));
+    Assert.assertEquals(28 * 1024, output.get("intField"));
+    Assert.assertEquals(99L, output.get("longField"));
+    Assert.assertArrayEquals(Bytes.toBytes("foo"), (byte[]) output.get("bytesField"));
+    Assert.assertEquals("hello", output.get("unionField"));
+    Assert.assertEquals(ImmutableMap.of("foo", 13, "bar", 17), output.get("mapField"));
+    Assert.assertEquals(ImmutableList.of("13bar", "bar", "baz"), output.get("arrayField"));
+    // the input record is not modified
+    Assert.assertEquals(28, RECORD1.get("intField"));
+    emitter.clear();
+
+    transform.transform(RECORD2, emitter);
+    output = emitter.getEmitted().get(0);
+    Assert.assertEquals(-28 * 1024, output.get("intField"));
+    Assert.assertNull(output.get("nullableField"));
+    Assert.assertEquals(3, output.get("unionField"));
+  }
+
   @Test
   public void testSchemaValidation() throws Exception {
     Schema outputSchema = Schema.recordOf(
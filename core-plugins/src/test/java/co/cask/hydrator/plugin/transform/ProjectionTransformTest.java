@@ -174,6 +174,48 @@ public class ProjectionTransformTest {
     Assert.assertEquals(1, output.get("x"));
   }
 
+  @Test
+  public void testMultipleInputSchemas() throws Exception {
+    Schema schema1 = Schema.recordOf("one",
+                                     Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+                                     Schema.Field.of("y", Schema.of(Schema.Type.STRING)));
+    Schema schema2 = Schema.recordOf("two",
+                                     Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                     Schema.Field.of("z", Schema.of(Schema.Type.LONG)));
+    ProjectionTransform.ProjectionTransformConfig config = new ProjectionTransform
+      .ProjectionTransformConfig("z", "y:a", "y:int", null);
+    Transform<StructuredRecord, StructuredRecord> transform = new ProjectionTransform(config);
+    TransformContext transformContext = new MockTransformContext();
+    transform.initialize(transformContext);
+
+    // alternate between the schemas to make sure a cached projection is never applied to the wrong schema
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(schema1).set("x", 1).set("y", "2").build(), emitter);
+    transform.transform(StructuredRecord.builder(schema2).set("y", "3").set("z", 4L).build(), emitter);
+    transform.transform(StructuredRecord.builder(schema2).set("y", null).set("z", 5L).build(), emitter);
+    transform.transform(StructuredRecord.builder(schema1).set("x", 6).set("y", "7").build(), emitter);
+
+    Schema expectedSchema1 = Schema.recordOf("one.projected",
+                                             Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+                                             Schema.Field.of("a", Schema.of(Schema.Type.INT)));
+    Schema expectedSchema2 = Schema.recordOf("two.projected",
+                                             Schema.Field.of("a", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+    StructuredRecord output = emitter.getEmitted().get(0);
+    Assert.assertEquals(expectedSchema1, output.getSchema());
+    Assert.assertEquals(1, output.get("x"));
+    Assert.assertEquals(2, output.get("a"));
+    output = emitter.getEmitted().get(1);
+    Assert.assertEquals(expectedSchema2, output.getSchema());
+    Assert.assertEquals(3, output.get("a"));
+    output = emitter.getEmitted().get(2);
+    Assert.assertEquals(expectedSchema2, output.getSchema());
+    Assert.assertNull(output.get("a"));
+    output = emitter.getEmitted().get(3);
+    Assert.assertEquals(expectedSchema1, output.getSchema());
+    Assert.assertEquals(6, output.get("x"));
+    Assert.assertEquals(7, output.get("a"));
+  }
+
   @Test
   public void testKeepFields() throws Exception {
     Schema schema = Schema.recordOf("three",
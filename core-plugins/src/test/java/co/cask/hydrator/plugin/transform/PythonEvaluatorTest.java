@@ -186,6 +186,32 @@ public class PythonEvaluatorTest {
     Assert.assertEquals(RECORD1, invalidEntry.getInvalidRecord());
   }
 
+  @Test
+  public void testScriptStateKeptAcrossRecords() throws Exception {
+    Schema outputSchema = Schema.recordOf("counter", Schema.Field.of("count", Schema.of(Schema.Type.INT)));
+    PythonEvaluator.Config config = new PythonEvaluator.Config(
+      "counter = [0]\n" +
+        "def transform(input, emitter, context):\n" +
+        "  counter[0] += 1\n" +
+        "  emitter.emit({ 'count': counter[0] })",
+      outputSchema.toString());
+    Transform<StructuredRecord, StructuredRecord> transform = new PythonEvaluator(config);
+    transform.initialize(new MockTransformContext());
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(RECORD1, emitter);
+    transform.transform(RECORD2, emitter);
+    Assert.assertEquals(1, emitter.getEmitted().get(0).get("count"));
+    Assert.assertEquals(2, emitter.getEmitted().get(1).get("count"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingTransformFunction() throws Exception {
+    PythonEvaluator.Config config = new PythonEvaluator.Config("def transform_record(input, emitter): pass", null);
+    Transform<StructuredRecord, StructuredRecord> transform = new PythonEvaluator(config);
+    transform.initialize(new MockTransformContext());
+  }
+
   @Test
   public void testDropAndRename() throws Exception {
     Schema outputSchema = Schema.recordOf(
@@ -78,6 +78,27 @@ public class ScriptFilterTransformTest {
     Assert.assertEquals(input, emitter.getEmitted().iterator().next());
   }
 
+  @Test
+  public void testNativeRecords() throws Exception {
+    ScriptFilterTransform.ScriptFilterConfig config = new ScriptFilterTransform.ScriptFilterConfig();
+    config.script = "function shouldFilter(input) { return input.inner.x * 1024 < 2048; }";
+    config.nativeRecords = true;
+    Schema innerSchema = Schema.recordOf("inner", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    Schema schema = Schema.recordOf("outer", Schema.Field.of("inner", innerSchema));
+    Transform<StructuredRecord, StructuredRecord> transform = new ScriptFilterTransform(config);
+    transform.initialize(new MockTransformContext());
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(StructuredRecord.builder(schema)
+                          .set("inner", StructuredRecord.builder(innerSchema).set("x", 1).build()).build(), emitter);
+    Assert.assertTrue(emitter.getEmitted().isEmpty());
+
+    StructuredRecord input = StructuredRecord.builder(schema)
+      .set("inner", StructuredRecord.builder(innerSchema).set("x", 2).build()).build();
+    transform.transform(input, emitter);
+    Assert.assertEquals(input, emitter.getEmitted().iterator().next());
+  }
+
   @Test
   public void testComplex() throws Exception {
     Schema inner2Schema = Schema.recordOf(
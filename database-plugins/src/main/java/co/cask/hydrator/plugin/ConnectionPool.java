@@ -0,0 +1,559 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import javax.annotation.Nullable;
+
+/**
+ * A pool of JDBC connections shared by the database stages running in the same JVM, keyed by driver, connection
+ * string and credentials. Connections are created directly through the {@link Driver}, so they do not need a
+ * driver to be registered with the {@link java.sql.DriverManager}.
+ *
+ * Closing a connection returned by the pool gives it back to the pool. Uncommitted changes are rolled back, and
+ * auto-commit, the read-only flag, the transaction isolation and the catalog are reset to the values the connection
+ * was opened with before it is reused. Other session state, such as variables or temporary tables created by
+ * arbitrary SQL, cannot be reset through JDBC, so stages that run user SQL get their connections for a session
+ * named after the SQL, and those connections are only reused for the same session.
+ *
+ * At most {@link #MAX_ACTIVE_CONNECTIONS} connections of each key are handed out at the same time. Asking for
+ * another one waits up to {@link #MAX_WAIT_MS} for one of them to be closed, and fails after that. At most
+ * {@link #MAX_IDLE_CONNECTIONS} idle connections are kept for each key, so that the stages of a pipeline run can
+ * reuse them. Connections that have been idle longer than {@link #IDLE_TIMEOUT_MS} are closed whenever the pool is
+ * used, and by a background thread that runs while there are idle connections, so that the pool neither keeps
+ * connections open nor holds on to the driver classes for long after a run.
+ *
+ * Each pooled connection also caches the statements prepared with {@link Connection#prepareStatement(String)}.
+ * Closing such a statement closes its open result set and clears its parameters and batch instead of closing it.
+ */
+public final class ConnectionPool {
+  static final int MAX_ACTIVE_CONNECTIONS = 8;
+  static final int MAX_IDLE_CONNECTIONS = 4;
+  static final long IDLE_TIMEOUT_MS = 60000L;
+  static final long MAX_WAIT_MS = 30000L;
+  static final int STATEMENT_CACHE_SIZE = 32;
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConnectionPool.class);
+  private static final ConnectionPool INSTANCE =
+    new ConnectionPool(MAX_ACTIVE_CONNECTIONS, MAX_IDLE_CONNECTIONS, IDLE_TIMEOUT_MS, MAX_WAIT_MS,
+                       STATEMENT_CACHE_SIZE);
+
+  private final int maxActiveConnections;
+  private final int maxIdleConnections;
+  private final long idleTimeoutMillis;
+  private final long maxWaitMillis;
+  private final int statementCacheSize;
+  private final Map<Key, Integer> activeConnections = new HashMap<>();
+  private final Map<Key, Deque<PooledConnection>> idleConnections = new HashMap<>();
+  private Thread evictor;
+
+  @VisibleForTesting
+  ConnectionPool(int maxActiveConnections, int maxIdleConnections, long idleTimeoutMillis, long maxWaitMillis,
+                 int statementCacheSize) {
+    this.maxActiveConnections = maxActiveConnections;
+    this.maxIdleConnections = maxIdleConnections;
+    this.idleTimeoutMillis = idleTimeoutMillis;
+    this.maxWaitMillis = maxWaitMillis;
+    this.statementCacheSize = statementCacheSize;
+  }
+
+  /**
+   * Returns the pool shared by all the database stages.
+   */
+  public static ConnectionPool get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns an idle connection for the given driver, connection string and credentials, or opens a new one if
+   * there is none.
+   *
+   * @throws SQLException if the connection could not be opened, or if the maximum number of connections are in use
+   *                      and none of them was closed in time
+   */
+  public Connection getConnection(Driver driver, String connectionString,
+                                  @Nullable String user, @Nullable String password) throws SQLException {
+    return getConnection(driver, connectionString, user, password, null);
+  }
+
+  /**
+   * Returns an idle connection for the given driver, connection string, credentials and session, or opens a new one
+   * if there is none. Connections of a session are only reused for the same session, so the session should identify
+   * the session state the caller may change and relies on, such as the SQL it runs.
+   *
+   * @throws SQLException if the connection could not be opened, or if the maximum number of connections are in use
+   *                      and none of them was closed in time
+   */
+  public Connection getConnection(Driver driver, String connectionString, @Nullable String user,
+                                  @Nullable String password, @Nullable String session) throws SQLException {
+    Key key = new Key(driver.getClass(), connectionString, user, password, session);
+    acquire(key);
+    try {
+      PooledConnection pooled = takeIdle(key);
+      if (pooled == null) {
+        pooled = new PooledConnection(key, openConnection(driver, connectionString, user, password));
+      }
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                 new Class<?>[] { Connection.class }, new ConnectionHandler(pooled));
+    } catch (SQLException | RuntimeException e) {
+      releaseActive(key);
+      throw e;
+    }
+  }
+
+  /**
+   * Opens a new connection that is not pooled. Closing the connection closes the physical connection.
+   */
+  public static Connection openConnection(Driver driver, String connectionString,
+                                          @Nullable String user, @Nullable String password) throws SQLException {
+    Properties info = new Properties();
+    if (user != null) {
+      info.put("user", user);
+    }
+    if (password != null) {
+      info.put("password", password);
+    }
+    Connection connection = driver.connect(connectionString, info);
+    if (connection == null) {
+      throw new SQLException(String.format("Driver %s does not accept the connection string '%s'.",
+                                           driver.getClass().getName(), connectionString));
+    }
+    return connection;
+  }
+
+  /**
+   * Closes all the idle connections created by the given driver class.
+   */
+  public void closeIdleConnections(Class<? extends Driver> driverClass) {
+    List<PooledConnection> toClose = new ArrayList<>();
+    synchronized (this) {
+      Iterator<Map.Entry<Key, Deque<PooledConnection>>> iterator = idleConnections.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Key, Deque<PooledConnection>> entry = iterator.next();
+        if (entry.getKey().driverClass == driverClass) {
+          toClose.addAll(entry.getValue());
+          iterator.remove();
+        }
+      }
+    }
+    for (PooledConnection pooled : toClose) {
+      closeQuietly(pooled);
+    }
+  }
+
+  /**
+   * Closes the connections of all keys that have been idle for longer than the idle timeout.
+   */
+  @VisibleForTesting
+  void closeExpiredConnections() {
+    List<PooledConnection> expired = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    synchronized (this) {
+      Iterator<Deque<PooledConnection>> iterator = idleConnections.values().iterator();
+      while (iterator.hasNext()) {
+        Deque<PooledConnection> idle = iterator.next();
+        // the most recently used connections are at the head, so the expired ones are at the tail
+        while (!idle.isEmpty() && now - idle.peekLast().lastUsed > idleTimeoutMillis) {
+          expired.add(idle.removeLast());
+        }
+        // remove empty entries, so that the pool does not keep references to the driver classes
+        if (idle.isEmpty()) {
+          iterator.remove();
+        }
+      }
+    }
+    for (PooledConnection pooled : expired) {
+      closeQuietly(pooled);
+    }
+  }
+
+  /**
+   * Counts a connection of the given key as handed out, waiting for one to be closed if the maximum number of them
+   * are handed out already.
+   */
+  private synchronized void acquire(Key key) throws SQLException {
+    long deadline = System.currentTimeMillis() + maxWaitMillis;
+    Integer active = activeConnections.get(key);
+    while (active != null && active >= maxActiveConnections) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        throw new SQLException(String.format(
+          "Timed out after %d ms waiting for one of the %d open connections to '%s' to be closed.",
+          maxWaitMillis, maxActiveConnections, key.connectionString));
+      }
+      try {
+        wait(remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted while waiting for a connection to " + key.connectionString, e);
+      }
+      active = activeConnections.get(key);
+    }
+    activeConnections.put(key, active == null ? 1 : active + 1);
+  }
+
+  private synchronized void releaseActive(Key key) {
+    Integer active = activeConnections.get(key);
+    if (active == null || active <= 1) {
+      activeConnections.remove(key);
+    } else {
+      activeConnections.put(key, active - 1);
+    }
+    notifyAll();
+  }
+
+  @Nullable
+  private PooledConnection takeIdle(Key key) {
+    closeExpiredConnections();
+    synchronized (this) {
+      Deque<PooledConnection> idle = idleConnections.get(key);
+      if (idle == null) {
+        return null;
+      }
+      PooledConnection result = idle.pop();
+      if (idle.isEmpty()) {
+        idleConnections.remove(key);
+      }
+      return result;
+    }
+  }
+
+  private void release(PooledConnection pooled) {
+    try {
+      returnIdle(pooled);
+    } finally {
+      releaseActive(pooled.key);
+    }
+  }
+
+  private void returnIdle(PooledConnection pooled) {
+    Connection connection = pooled.connection;
+    try {
+      if (connection.isClosed()) {
+        return;
+      }
+      if (!connection.getAutoCommit()) {
+        connection.rollback();
+        connection.setAutoCommit(true);
+      }
+      pooled.resetSessionState();
+    } catch (SQLException e) {
+      LOG.debug("Unable to reset connection to {}, closing it instead of reusing it.", pooled.key.connectionString, e);
+      closeQuietly(pooled);
+      return;
+    }
+
+    pooled.lastUsed = System.currentTimeMillis();
+    closeExpiredConnections();
+    synchronized (this) {
+      Deque<PooledConnection> idle = idleConnections.get(pooled.key);
+      if (idle == null) {
+        idle = new ArrayDeque<>();
+        idleConnections.put(pooled.key, idle);
+      }
+      if (idle.size() < maxIdleConnections) {
+        idle.push(pooled);
+        if (evictor == null) {
+          evictor = new Evictor();
+          evictor.start();
+        }
+        return;
+      }
+    }
+    closeQuietly(pooled);
+  }
+
+  /**
+   * Returns whether the evictor should keep running, and forgets it if not, so that a new one is started once there
+   * are idle connections again.
+   */
+  private synchronized boolean keepEvicting(boolean interrupted) {
+    if (interrupted || idleConnections.isEmpty()) {
+      evictor = null;
+      return false;
+    }
+    return true;
+  }
+
+  private void closeQuietly(PooledConnection pooled) {
+    try {
+      pooled.connection.close();
+    } catch (SQLException e) {
+      LOG.debug("Error closing connection to {}.", pooled.key.connectionString, e);
+    }
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Closes the expired idle connections while there are any, so that they are closed even if the pool is not used
+   * again, and stops once there are none, so that it does not hold on to the pool.
+   */
+  private final class Evictor extends Thread {
+    private Evictor() {
+      super("jdbc-connection-pool-evictor");
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      boolean interrupted = false;
+      while (keepEvicting(interrupted)) {
+        try {
+          Thread.sleep(Math.max(idleTimeoutMillis / 2, 100L));
+          closeExpiredConnections();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * A physical connection along with its prepared statement cache.
+   */
+  private final class PooledConnection {
+    private final Key key;
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+    private final boolean readOnly;
+    private final int transactionIsolation;
+    private final String catalog;
+    private long lastUsed;
+
+    private PooledConnection(Key key, Connection connection) throws SQLException {
+      this.key = key;
+      this.connection = connection;
+      try {
+        this.readOnly = connection.isReadOnly();
+        this.transactionIsolation = connection.getTransactionIsolation();
+        this.catalog = connection.getCatalog();
+      } catch (SQLException e) {
+        connection.close();
+        throw e;
+      }
+      // access ordered, so that the least recently used statement is closed once the cache is full
+      this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+          if (size() <= statementCacheSize) {
+            return false;
+          }
+          try {
+            eldest.getValue().close();
+          } catch (SQLException e) {
+            LOG.debug("Error closing cached statement {}.", eldest.getKey(), e);
+          }
+          return true;
+        }
+      };
+    }
+
+    /**
+     * Resets the connection state that can be changed through JDBC to the values the connection was opened with.
+     */
+    private void resetSessionState() throws SQLException {
+      if (connection.isReadOnly() != readOnly) {
+        connection.setReadOnly(readOnly);
+      }
+      if (connection.getTransactionIsolation() != transactionIsolation) {
+        connection.setTransactionIsolation(transactionIsolation);
+      }
+      if (catalog != null && !catalog.equals(connection.getCatalog())) {
+        connection.setCatalog(catalog);
+      }
+      connection.clearWarnings();
+    }
+
+    /**
+     * Returns a cached statement for the given sql, whose {@link PreparedStatement#getConnection()} returns the
+     * given connection proxy.
+     */
+    private PreparedStatement prepareStatement(String sql, Connection connectionProxy) throws SQLException {
+      if (statementCacheSize <= 0) {
+        return connection.prepareStatement(sql);
+      }
+      PreparedStatement statement = statements.get(sql);
+      if (statement == null || statement.isClosed()) {
+        statement = connection.prepareStatement(sql);
+        statements.put(sql, statement);
+      }
+      return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                                        new Class<?>[] { PreparedStatement.class },
+                                                        new StatementHandler(statement, connectionProxy));
+    }
+  }
+
+  /**
+   * Hands out a pooled connection until it is closed, which gives it back to the pool.
+   */
+  private final class ConnectionHandler implements InvocationHandler {
+    private final PooledConnection pooled;
+    private boolean closed;
+
+    private ConnectionHandler(PooledConnection pooled) {
+      this.pooled = pooled;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Pooled " + pooled.connection;
+        case "isClosed":
+          return closed || pooled.connection.isClosed();
+        case "close":
+          if (!closed) {
+            closed = true;
+            release(pooled);
+          }
+          return null;
+        default:
+          break;
+      }
+      if (closed) {
+        throw new SQLException("Connection is closed.");
+      }
+      if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+        return pooled.prepareStatement((String) args[0], (Connection) proxy);
+      }
+      return ConnectionPool.invoke(pooled.connection, method, args);
+    }
+  }
+
+  /**
+   * Keeps a cached statement open when it is closed by the caller, and resets the state a caller may have left on it.
+   */
+  private static final class StatementHandler implements InvocationHandler {
+    private final PreparedStatement statement;
+    private final Connection connectionProxy;
+    private final List<ResultSet> resultSets;
+
+    private StatementHandler(PreparedStatement statement, Connection connectionProxy) {
+      this.statement = statement;
+      this.connectionProxy = connectionProxy;
+      this.resultSets = new ArrayList<>();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "getConnection":
+          return connectionProxy;
+        case "close":
+          if (!statement.isClosed()) {
+            reset();
+          }
+          return null;
+        default:
+          Object result = ConnectionPool.invoke(statement, method, args);
+          if (result instanceof ResultSet) {
+            // remember the result sets handed out, since the statement is not closed and so would not close them
+            resultSets.add((ResultSet) result);
+          }
+          return result;
+      }
+    }
+
+    private void reset() throws SQLException {
+      for (ResultSet resultSet : resultSets) {
+        resultSet.close();
+      }
+      resultSets.clear();
+      statement.clearBatch();
+      statement.clearParameters();
+      statement.clearWarnings();
+    }
+  }
+
+  /**
+   * Identifies the connections that can be used interchangeably.
+   */
+  private static final class Key {
+    private final Class<? extends Driver> driverClass;
+    private final String connectionString;
+    private final String user;
+    private final String password;
+    private final String session;
+
+    private Key(Class<? extends Driver> driverClass, String connectionString,
+                @Nullable String user, @Nullable String password, @Nullable String session) {
+      this.driverClass = driverClass;
+      this.connectionString = connectionString;
+      this.user = user;
+      this.password = password;
+      this.session = session;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key that = (Key) o;
+      return driverClass == that.driverClass &&
+        Objects.equal(connectionString, that.connectionString) &&
+        Objects.equal(user, that.user) &&
+        Objects.equal(password, that.password) &&
+        Objects.equal(session, that.session);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(driverClass, connectionString, user, password, session);
+    }
+  }
+}
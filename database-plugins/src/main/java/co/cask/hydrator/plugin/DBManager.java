@@ -30,6 +30,7 @@ import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import javax.annotation.Nullable;
 
 /**
  * Class to manage common database operations for Database source and sink plugins.
@@ -38,6 +39,7 @@ public class DBManager implements Destroyable {
   private static final Logger LOG = LoggerFactory.getLogger(DBManager.class);
   private final ConnectionConfig config;
   private DriverCleanup driverCleanup;
+  private Driver driver;
 
   public DBManager(ConnectionConfig config) {
     this.config = config;
@@ -58,30 +60,15 @@ public class DBManager implements Destroyable {
   }
 
   public boolean tableExists(Class<? extends Driver> jdbcDriverClass, String tableName) {
-    try {
-      ensureJDBCDriverIsAvailable(jdbcDriverClass);
-    } catch (IllegalAccessException | InstantiationException | SQLException e) {
-      LOG.error("Unable to load or register JDBC driver {} while checking for the existence of the database table {}.",
+    try (Connection connection = getConnection(jdbcDriverClass)) {
+      DatabaseMetaData metadata = connection.getMetaData();
+      try (ResultSet rs = metadata.getTables(null, null, tableName, null)) {
+        return rs.next();
+      }
+    } catch (IllegalAccessException | InstantiationException e) {
+      LOG.error("Unable to load JDBC driver {} while checking for the existence of the database table {}.",
                 jdbcDriverClass, tableName, e);
       throw Throwables.propagate(e);
-    }
-
-    Connection connection;
-    try {
-      if (config.user == null) {
-        connection = DriverManager.getConnection(config.connectionString);
-      } else {
-        connection = DriverManager.getConnection(config.connectionString, config.user, config.password);
-      }
-
-      try {
-        DatabaseMetaData metadata = connection.getMetaData();
-        try (ResultSet rs = metadata.getTables(null, null, tableName, null)) {
-          return rs.next();
-        }
-      } finally {
-        connection.close();
-      }
     } catch (SQLException e) {
       LOG.error("Exception while trying to check the existence of database table {} for connection {}.",
                 tableName, config.connectionString, e);
@@ -89,6 +76,34 @@ public class DBManager implements Destroyable {
     }
   }
 
+  /**
+   * Returns a connection from the shared {@link ConnectionPool}. The connection is created directly through the
+   * driver, so the driver does not have to be registered with the {@link DriverManager}. Closing the connection
+   * returns it to the pool.
+   */
+  public Connection getConnection(Class<? extends Driver> jdbcDriverClass)
+    throws IllegalAccessException, InstantiationException, SQLException {
+    return getConnection(jdbcDriverClass, null);
+  }
+
+  /**
+   * Returns a connection from the shared {@link ConnectionPool} that is only reused for the given session, for
+   * running arbitrary SQL that may change the state of the session. Closing the connection returns it to the pool.
+   */
+  public Connection getConnection(Class<? extends Driver> jdbcDriverClass, @Nullable String session)
+    throws IllegalAccessException, InstantiationException, SQLException {
+    return ConnectionPool.get().getConnection(getDriver(jdbcDriverClass), config.connectionString,
+                                              config.user, config.password, session);
+  }
+
+  private Driver getDriver(Class<? extends Driver> jdbcDriverClass)
+    throws IllegalAccessException, InstantiationException {
+    if (driver == null || driver.getClass() != jdbcDriverClass) {
+      driver = jdbcDriverClass.newInstance();
+    }
+    return driver;
+  }
+
   /**
    * Ensures that the JDBC Driver specified in configuration is available and can be loaded. Also registers it with
    * {@link DriverManager} if it is not already registered.
@@ -104,5 +119,6 @@ public class DBManager implements Destroyable {
     if (driverCleanup != null) {
       driverCleanup.destroy();
     }
+    driver = null;
   }
 }
@@ -26,7 +26,6 @@ import java.io.BufferedReader;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Date;
@@ -58,6 +57,16 @@ public class DBRecord implements Writable, DBWritable {
    */
   private int [] columnTypes;
 
+  /**
+   * The {@link ResultSet} that was last read from, along with the schema, field names and sql types of its columns.
+   * A record reader reuses the same {@link DBRecord} for all rows of a split, so these only need to be computed once
+   * per split instead of once per row.
+   */
+  private ResultSet lastResultSet;
+  private Schema lastSchema;
+  private String [] fieldNames;
+  private int [] sqlColumnTypes;
+
   /**
    * Used to construct a DBRecord from a StructuredRecord in the ETL Pipeline
    *
@@ -92,16 +101,27 @@ public class DBRecord implements Writable, DBWritable {
    * @param resultSet the {@link ResultSet} to build the {@link StructuredRecord} from
    */
   public void readFields(ResultSet resultSet) throws SQLException {
+    if (resultSet != lastResultSet) {
+      initReadMetadata(resultSet);
+    }
+    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(lastSchema);
+    for (int i = 0; i < fieldNames.length; i++) {
+      recordBuilder.set(fieldNames[i], readValue(resultSet, i + 1, sqlColumnTypes[i]));
+    }
+    record = recordBuilder.build();
+  }
+
+  private void initReadMetadata(ResultSet resultSet) throws SQLException {
     ResultSetMetaData metadata = resultSet.getMetaData();
     List<Schema.Field> schemaFields = DBUtils.getSchemaFields(resultSet);
-    Schema schema = Schema.recordOf("dbRecord", schemaFields);
-    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
+    fieldNames = new String[schemaFields.size()];
+    sqlColumnTypes = new int[schemaFields.size()];
     for (int i = 0; i < schemaFields.size(); i++) {
-      Schema.Field field = schemaFields.get(i);
-      int sqlColumnType = metadata.getColumnType(i + 1);
-      recordBuilder.set(field.getName(), transformValue(sqlColumnType, resultSet.getObject(field.getName())));
+      fieldNames[i] = schemaFields.get(i).getName();
+      sqlColumnTypes[i] = metadata.getColumnType(i + 1);
     }
-    record = recordBuilder.build();
+    lastSchema = Schema.recordOf("dbRecord", schemaFields);
+    lastResultSet = resultSet;
   }
 
   public void write(DataOutput out) throws IOException {
@@ -132,6 +152,94 @@ public class DBRecord implements Writable, DBWritable {
     }
   }
 
+  /**
+   * Appends the {@link #record} as one line of tab separated text, in the format that is understood by bulk load
+   * commands like PostgreSQL's COPY and MySQL's LOAD DATA. Null values are written as \N, and backslashes, tabs
+   * and line breaks in strings are escaped with a backslash.
+   *
+   * @param out the {@link StringBuilder} to append the line to
+   */
+  public void writeText(StringBuilder out) {
+    List<Schema.Field> schemaFields = record.getSchema().getFields();
+    for (int i = 0; i < schemaFields.size(); i++) {
+      Schema.Field field = schemaFields.get(i);
+      if (i > 0) {
+        out.append('\t');
+      }
+      writeText(out, getNonNullableType(field), record.get(field.getName()), i);
+    }
+    out.append('\n');
+  }
+
+  private void writeText(StringBuilder out, Schema.Type fieldType, @Nullable Object fieldValue, int fieldIndex) {
+    if (fieldValue == null) {
+      out.append("\\N");
+      return;
+    }
+    switch (fieldType) {
+      case NULL:
+        out.append("\\N");
+        break;
+      case STRING:
+        escapeText(out, (String) fieldValue);
+        break;
+      case BOOLEAN:
+        // both 1 and 0 are understood for boolean as well as for bit and tinyint columns
+        out.append((Boolean) fieldValue ? '1' : '0');
+        break;
+      case LONG:
+        // write date, timestamp or long appropriately
+        long longValue = (Long) fieldValue;
+        switch (columnTypes[fieldIndex]) {
+          case Types.DATE:
+            out.append(new Date(longValue));
+            break;
+          case Types.TIME:
+            out.append(new Time(longValue));
+            break;
+          case Types.TIMESTAMP:
+            out.append(new Timestamp(longValue));
+            break;
+          default:
+            out.append(longValue);
+            break;
+        }
+        break;
+      case INT:
+      case FLOAT:
+      case DOUBLE:
+        out.append(fieldValue);
+        break;
+      default:
+        throw new IllegalArgumentException(
+          String.format("Unsupported datatype %s for bulk loading column '%s'. Please remove this column, " +
+                          "transform it to a supported type, or write without bulk loading.",
+                        fieldType, record.getSchema().getFields().get(fieldIndex).getName()));
+    }
+  }
+
+  private void escapeText(StringBuilder out, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        default:
+          out.append(c);
+      }
+    }
+  }
+
   private Schema.Type getNonNullableType(Schema.Field field) {
     Schema.Type type;
     if (field.getSchema().isNullable()) {
@@ -146,19 +254,54 @@ public class DBRecord implements Writable, DBWritable {
     return type;
   }
 
+  /**
+   * Reads the value of a column with the getter matching its sql type, so that primitive columns don't have to go
+   * through {@link ResultSet#getObject(int)} and a conversion of the returned object.
+   */
+  @Nullable
+  private Object readValue(ResultSet resultSet, int columnIndex, int sqlColumnType) throws SQLException {
+    Object value;
+    switch (sqlColumnType) {
+      case Types.BOOLEAN:
+      case Types.BIT:
+        value = resultSet.getBoolean(columnIndex);
+        break;
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+        value = resultSet.getInt(columnIndex);
+        break;
+      case Types.BIGINT:
+        value = resultSet.getLong(columnIndex);
+        break;
+      case Types.REAL:
+      case Types.FLOAT:
+        value = resultSet.getFloat(columnIndex);
+        break;
+      case Types.NUMERIC:
+      case Types.DECIMAL:
+      case Types.DOUBLE:
+        value = resultSet.getDouble(columnIndex);
+        break;
+      case Types.DATE:
+        Date date = resultSet.getDate(columnIndex);
+        return date == null ? null : date.getTime();
+      case Types.TIME:
+        Time time = resultSet.getTime(columnIndex);
+        return time == null ? null : time.getTime();
+      case Types.TIMESTAMP:
+        Timestamp timestamp = resultSet.getTimestamp(columnIndex);
+        return timestamp == null ? null : timestamp.getTime();
+      default:
+        return transformValue(sqlColumnType, resultSet.getObject(columnIndex));
+    }
+    return resultSet.wasNull() ? null : value;
+  }
+
   @Nullable
   private Object transformValue(int sqlColumnType, Object original) throws SQLException {
     if (original != null) {
       switch (sqlColumnType) {
-        case Types.NUMERIC:
-        case Types.DECIMAL:
-          return ((BigDecimal) original).doubleValue();
-        case Types.DATE:
-          return ((Date) original).getTime();
-        case Types.TIME:
-          return ((Time) original).getTime();
-        case Types.TIMESTAMP:
-          return ((Timestamp) original).getTime();
         case Types.BLOB:
           Object toReturn;
           Blob blob = (Blob) original;
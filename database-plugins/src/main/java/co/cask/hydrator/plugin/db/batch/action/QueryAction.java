@@ -23,13 +23,12 @@ import co.cask.cdap.etl.api.PipelineConfigurer;
 import co.cask.cdap.etl.api.batch.BatchActionContext;
 import co.cask.cdap.etl.api.batch.PostAction;
 import co.cask.hydrator.plugin.DBManager;
+import co.cask.hydrator.plugin.DBUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.Driver;
-import java.sql.DriverManager;
-import java.sql.SQLException;
 import java.sql.Statement;
 
 /**
@@ -58,32 +57,25 @@ public class QueryAction extends PostAction {
     Class<? extends Driver> driverClass = batchContext.loadPluginClass(JDBC_PLUGIN_ID);
     DBManager dbManager = new DBManager(config);
 
-    try {
-      dbManager.ensureJDBCDriverIsAvailable(driverClass);
-
-      try (Connection connection = getConnection()) {
+    // the query can change the session state, so its connection is only reused for the same query
+    try (Connection connection = dbManager.getConnection(driverClass, config.query)) {
+      if (!config.enableAutoCommit) {
+        connection.setAutoCommit(false);
+      }
+      try (Statement statement = connection.createStatement()) {
+        statement.execute(config.query);
         if (!config.enableAutoCommit) {
-          connection.setAutoCommit(false);
-        }
-        try (Statement statement = connection.createStatement()) {
-          statement.execute(config.query);
-          if (!config.enableAutoCommit) {
-            connection.commit();
-          }
+          connection.commit();
         }
       }
     } catch (Exception e) {
       LOG.error("Error running query {}.", config.query, e);
     } finally {
-      dbManager.destroy();
-    }
-  }
-
-  private Connection getConnection() throws SQLException {
-    if (config.user == null) {
-      return DriverManager.getConnection(config.connectionString);
-    } else {
-      return DriverManager.getConnection(config.connectionString, config.user, config.password);
+      try {
+        DBUtils.cleanup(driverClass);
+      } finally {
+        dbManager.destroy();
+      }
     }
   }
 
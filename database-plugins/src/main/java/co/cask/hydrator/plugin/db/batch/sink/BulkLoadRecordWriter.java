@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.db.batch.sink;
+
+import co.cask.hydrator.plugin.DBRecord;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.db.DBWritable;
+import org.apache.hadoop.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link RecordWriter} that writes {@link DBRecord DBRecords} as text rows and loads every batch of rows with a
+ * {@link BulkLoader}, instead of binding each value to an insert statement. The rows are encoded as they are
+ * written into a buffer that is reused for every batch, so that a batch is only held in memory once.
+ *
+ * @param <K> the type of record to write
+ * @param <V> the value type, which is ignored
+ */
+class BulkLoadRecordWriter<K extends DBWritable, V> extends RecordWriter<K, V> {
+  private static final Logger LOG = LoggerFactory.getLogger(BulkLoadRecordWriter.class);
+
+  private final Connection connection;
+  private final BulkLoader loader;
+  private final String table;
+  private final String[] fieldNames;
+  private final int batchSize;
+  private final long commitInterval;
+  private final StringBuilder row;
+  private final RowBuffer rows;
+  private final Writer rowWriter;
+  private int batchedRecords;
+  private long uncommittedRecords;
+  // set once a batch failed and the transaction was rolled back, so that close does not commit a partial task
+  private boolean failed;
+
+  BulkLoadRecordWriter(Connection connection, BulkLoader loader, String table, String[] fieldNames,
+                       int batchSize, long commitInterval) {
+    this.connection = connection;
+    this.loader = loader;
+    this.table = table;
+    this.fieldNames = fieldNames;
+    this.batchSize = batchSize;
+    this.commitInterval = commitInterval;
+    this.row = new StringBuilder();
+    this.rows = new RowBuffer();
+    this.rowWriter = new OutputStreamWriter(rows, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void write(K key, V value) throws IOException {
+    if (!(key instanceof DBRecord)) {
+      throw new IOException(String.format("Bulk loading is only supported for %s, but got %s.",
+                                          DBRecord.class.getName(), key.getClass().getName()));
+    }
+    if (failed) {
+      throw new IOException("Cannot write to the database after a failed bulk load.");
+    }
+    row.setLength(0);
+    ((DBRecord) key).writeText(row);
+    rowWriter.append(row);
+    batchedRecords++;
+    if (batchedRecords < batchSize) {
+      return;
+    }
+    try {
+      loadBatch();
+      if (commitInterval > 0 && uncommittedRecords >= commitInterval) {
+        connection.commit();
+        uncommittedRecords = 0;
+      }
+    } catch (SQLException e) {
+      failed = true;
+      batchedRecords = 0;
+      uncommittedRecords = 0;
+      rows.reset();
+      rollback();
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException {
+    try {
+      if (failed) {
+        return;
+      }
+      if (batchedRecords > 0) {
+        loadBatch();
+      }
+      if (uncommittedRecords > 0) {
+        connection.commit();
+      }
+    } catch (SQLException e) {
+      rollback();
+      throw new IOException(e.getMessage(), e);
+    } finally {
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
+  }
+
+  private void loadBatch() throws IOException, SQLException {
+    rowWriter.flush();
+    loader.load(connection, table, fieldNames, rows.toInputStream());
+    rows.reset();
+    uncommittedRecords += batchedRecords;
+    batchedRecords = 0;
+  }
+
+  private void rollback() {
+    try {
+      connection.rollback();
+    } catch (SQLException e) {
+      LOG.warn(StringUtils.stringifyException(e));
+    }
+  }
+
+  /**
+   * A {@link ByteArrayOutputStream} whose content can be read without copying it.
+   */
+  private static final class RowBuffer extends ByteArrayOutputStream {
+    InputStream toInputStream() {
+      return new ByteArrayInputStream(buf, 0, count);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.db.batch.sink;
+
+import com.google.common.base.Joiner;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.annotation.Nullable;
+
+/**
+ * Loads rows into a table using a database specific bulk load command instead of batched inserts.
+ * The rows are given as tab separated text, as written by {@link co.cask.hydrator.plugin.DBRecord#writeText}.
+ * Driver classes are only available through the JDBC plugin, so vendor APIs are called through reflection.
+ */
+abstract class BulkLoader {
+  static final String POSTGRESQL = "postgresql";
+  static final String MYSQL = "mysql";
+
+  /**
+   * Returns the {@link BulkLoader} with the given name, or null if no bulk loader should be used.
+   *
+   * @throws IllegalArgumentException if there is no bulk loader with the given name
+   */
+  @Nullable
+  static BulkLoader forName(@Nullable String name, ClassLoader driverClassLoader) {
+    if (name == null || name.isEmpty()) {
+      return null;
+    }
+    switch (name.toLowerCase()) {
+      case POSTGRESQL:
+        return new PostgresBulkLoader(driverClassLoader);
+      case MYSQL:
+        return new MySQLBulkLoader(driverClassLoader);
+      default:
+        throw new IllegalArgumentException(String.format("Invalid bulk load mode '%s'. Must be '%s' or '%s'.",
+                                                         name, POSTGRESQL, MYSQL));
+    }
+  }
+
+  /**
+   * Loads the given rows into the table.
+   *
+   * @param connection the connection to load with
+   * @param table the table to load into
+   * @param fieldNames the columns to load, in the order they appear in each row
+   * @param rows the rows to load, as utf-8 encoded tab separated text
+   */
+  abstract void load(Connection connection, String table, String[] fieldNames, InputStream rows)
+    throws SQLException;
+
+  /**
+   * Calls a vendor method through reflection, unwrapping the exceptions it throws.
+   */
+  static Object invoke(Object target, Class<?> targetClass, String methodName,
+                       Class<?>[] parameterTypes, Object... args) throws SQLException {
+    try {
+      return targetClass.getMethod(methodName, parameterTypes).invoke(target, args);
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof SQLException) {
+        throw (SQLException) e.getCause();
+      }
+      throw new SQLException(e.getCause());
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new SQLException(String.format("The JDBC driver does not support %s.%s.",
+                                           targetClass.getName(), methodName), e);
+    }
+  }
+
+  static Class<?> loadClass(ClassLoader classLoader, String... classNames) throws SQLException {
+    for (String className : classNames) {
+      try {
+        return classLoader.loadClass(className);
+      } catch (ClassNotFoundException e) {
+        // try the next one
+      }
+    }
+    throw new SQLException(String.format("Could not find any of the driver classes %s required for bulk loading. " +
+                                           "Please check that the JDBC plugin is for the right database.",
+                                         Joiner.on(", ").join(classNames)));
+  }
+
+  /**
+   * Uses COPY FROM STDIN through the CopyManager of the PostgreSQL driver.
+   */
+  private static final class PostgresBulkLoader extends BulkLoader {
+    private final ClassLoader driverClassLoader;
+
+    PostgresBulkLoader(ClassLoader driverClassLoader) {
+      this.driverClassLoader = driverClassLoader;
+    }
+
+    @Override
+    void load(Connection connection, String table, String[] fieldNames, InputStream rows) throws SQLException {
+      Class<?> pgConnectionClass = loadClass(driverClassLoader, "org.postgresql.PGConnection");
+      Object copyManager = invoke(connection.unwrap(pgConnectionClass), pgConnectionClass, "getCopyAPI",
+                                  new Class<?>[0]);
+      String query = String.format("COPY %s (%s) FROM STDIN", table, Joiner.on(",").join(fieldNames));
+      invoke(copyManager, copyManager.getClass(), "copyIn", new Class<?>[] { String.class, InputStream.class },
+             query, rows);
+    }
+  }
+
+  /**
+   * Uses LOAD DATA LOCAL INFILE with the input stream of the statement set to the rows. This requires local infile
+   * to be allowed by the server and by the connection string, for example with 'allowLoadLocalInfile=true'.
+   */
+  private static final class MySQLBulkLoader extends BulkLoader {
+    private final ClassLoader driverClassLoader;
+
+    MySQLBulkLoader(ClassLoader driverClassLoader) {
+      this.driverClassLoader = driverClassLoader;
+    }
+
+    @Override
+    void load(Connection connection, String table, String[] fieldNames, InputStream rows) throws SQLException {
+      Class<?> mysqlStatementClass = loadClass(driverClassLoader, "com.mysql.cj.jdbc.JdbcStatement",
+                                               "com.mysql.jdbc.Statement");
+      // the utf8 character set of MySQL only covers characters of up to three bytes
+      String query = String.format("LOAD DATA LOCAL INFILE 'stream' INTO TABLE %s CHARACTER SET utf8mb4 (%s)",
+                                   table, Joiner.on(",").join(fieldNames));
+      try (Statement statement = connection.createStatement()) {
+        invoke(statement.unwrap(mysqlStatementClass), mysqlStatementClass, "setLocalInfileInputStream",
+               new Class<?>[] { InputStream.class }, rows);
+        statement.executeUpdate(query);
+      }
+    }
+  }
+}
@@ -40,6 +40,7 @@ import co.cask.hydrator.plugin.FieldCase;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapred.lib.db.DBConfiguration;
@@ -48,7 +49,6 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.Driver;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.Statement;
@@ -57,6 +57,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import javax.annotation.Nullable;
 
 
 /**
@@ -151,15 +152,7 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
 
   private void setResultSetMetadata() throws Exception {
     Map<String, Integer> columnToType = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-    dbManager.ensureJDBCDriverIsAvailable(driverClass);
-
-    Connection connection;
-    if (dbSinkConfig.user == null) {
-      connection = DriverManager.getConnection(dbSinkConfig.connectionString);
-    } else {
-      connection = DriverManager.getConnection(dbSinkConfig.connectionString, dbSinkConfig.user, dbSinkConfig.password);
-    }
-
+    Connection connection = dbManager.getConnection(driverClass);
     try {
       try (Statement statement = connection.createStatement();
            // Run a query against the DB table that returns 0 records, but returns valid ResultSetMetadata
@@ -200,6 +193,10 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
   public static class DBSinkConfig extends DBConfig {
     public static final String COLUMNS = "columns";
     public static final String TABLE_NAME = "tableName";
+    public static final String BATCH_SIZE = "batchSize";
+    public static final String COMMIT_INTERVAL = "commitInterval";
+    public static final String CONNECTIONS = "connections";
+    public static final String BULK_LOAD = "bulkLoad";
 
     @Name(COLUMNS)
     @Description("Comma-separated list of columns in the specified table to export to.")
@@ -209,6 +206,59 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
     @Description("Name of the database table to write to.")
     public String tableName;
 
+    @Name(BATCH_SIZE)
+    @Description("Number of records to add to a JDBC batch before executing it. Defaults to 1000.")
+    @Nullable
+    public Integer batchSize;
+
+    @Name(COMMIT_INTERVAL)
+    @Description("Number of records to write before committing the transaction. Records are committed after the " +
+      "batch that reaches this number is executed. If not set or set to 0, each task commits all of its records " +
+      "in a single transaction when it finishes. Note that if a task fails after a commit, records committed by " +
+      "that task will be written again when the task is retried.")
+    @Nullable
+    public Long commitInterval;
+
+    @Name(CONNECTIONS)
+    @Description("Number of connections each task uses to write to the database. Records are spread across " +
+      "the connections and each connection writes its batches on its own thread and commits its own " +
+      "transaction. Defaults to 1.")
+    @Nullable
+    public Integer connections;
+
+    @Name(BULK_LOAD)
+    @Description("Database specific bulk load command to write with, instead of batches of insert statements. " +
+      "Can be 'postgresql', which uses COPY FROM STDIN, or 'mysql', which uses LOAD DATA LOCAL INFILE. " +
+      "Each batch of records is loaded with one command. Bytes fields are not supported when bulk loading. " +
+      "If not set, records are written with batches of insert statements.")
+    @Nullable
+    public String bulkLoad;
+
+    public DBSinkConfig() {
+      batchSize = ETLDBOutputFormat.DEFAULT_BATCH_SIZE;
+      commitInterval = 0L;
+      connections = 1;
+    }
+
+    @Override
+    public void validate() {
+      super.validate();
+      Preconditions.checkArgument(batchSize == null || batchSize > 0,
+                                  "Invalid batch size %s. The batch size must be a positive number.", batchSize);
+      Preconditions.checkArgument(commitInterval == null || commitInterval >= 0,
+                                  "Invalid commit interval %s. The commit interval cannot be negative.",
+                                  commitInterval);
+      Preconditions.checkArgument(connections == null || connections > 0,
+                                  "Invalid number of connections %s. At least one connection is required.",
+                                  connections);
+      if (!Strings.isNullOrEmpty(bulkLoad)) {
+        Preconditions.checkArgument(
+          BulkLoader.POSTGRESQL.equalsIgnoreCase(bulkLoad) || BulkLoader.MYSQL.equalsIgnoreCase(bulkLoad),
+          "Invalid bulk load mode '%s'. Must be '%s' or '%s'.", bulkLoad, BulkLoader.POSTGRESQL, BulkLoader.MYSQL);
+        Preconditions.checkArgument(connections == null || connections == 1,
+                                    "Bulk loading can only be used with a single connection.");
+      }
+    }
   }
 
   private static class DBOutputFormatProvider implements OutputFormatProvider {
@@ -228,6 +278,18 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
       }
       conf.put(DBConfiguration.OUTPUT_TABLE_NAME_PROPERTY, dbSinkConfig.tableName);
       conf.put(DBConfiguration.OUTPUT_FIELD_NAMES_PROPERTY, dbSinkConfig.columns);
+      if (dbSinkConfig.batchSize != null) {
+        conf.put(ETLDBOutputFormat.BATCH_SIZE, String.valueOf(dbSinkConfig.batchSize));
+      }
+      if (dbSinkConfig.commitInterval != null) {
+        conf.put(ETLDBOutputFormat.COMMIT_INTERVAL, String.valueOf(dbSinkConfig.commitInterval));
+      }
+      if (dbSinkConfig.bulkLoad != null) {
+        conf.put(ETLDBOutputFormat.BULK_LOAD, dbSinkConfig.bulkLoad);
+      }
+      if (dbSinkConfig.connections != null) {
+        conf.put(ETLDBOutputFormat.CONNECTIONS, String.valueOf(dbSinkConfig.connections));
+      }
     }
 
     @Override
@@ -36,6 +36,8 @@ import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class that extends {@link DBOutputFormat} to load the database driver class correctly.
@@ -47,6 +49,11 @@ import java.sql.SQLException;
  */
 public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<K, V> {
   public static final String AUTO_COMMIT_ENABLED = "co.cask.hydrator.db.output.autocommit.enabled";
+  public static final String BATCH_SIZE = "co.cask.hydrator.db.output.batch.size";
+  public static final String COMMIT_INTERVAL = "co.cask.hydrator.db.output.commit.interval";
+  public static final String CONNECTIONS = "co.cask.hydrator.db.output.connections";
+  public static final String BULK_LOAD = "co.cask.hydrator.db.output.bulk.load";
+  public static final int DEFAULT_BATCH_SIZE = 1000;
 
   private static final Logger LOG = LoggerFactory.getLogger(ETLDBOutputFormat.class);
   private Driver driver;
@@ -62,13 +69,38 @@ public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<
     if (fieldNames == null) {
       fieldNames = new String[dbConf.getOutputFieldCount()];
     }
+    final int batchSize = conf.getInt(BATCH_SIZE, DEFAULT_BATCH_SIZE);
+    final long commitInterval = conf.getLong(COMMIT_INTERVAL, 0L);
+    int connections = conf.getInt(CONNECTIONS, 1);
 
     try {
+      final BulkLoader bulkLoader = BulkLoader.forName(conf.get(BULK_LOAD), conf.getClassLoader());
+      if (bulkLoader != null) {
+        return new BulkLoadRecordWriter<K, V>(getConnection(conf), bulkLoader, tableName, fieldNames,
+                                              batchSize, commitInterval) {
+          @Override
+          public void close(TaskAttemptContext context) throws IOException {
+            try {
+              super.close(context);
+            } finally {
+              deregisterDriverShim();
+            }
+          }
+        };
+      }
+      if (connections > 1) {
+        return getParallelRecordWriter(conf, constructQuery(tableName, fieldNames), connections,
+                                       batchSize, commitInterval);
+      }
       Connection connection = getConnection(conf);
       PreparedStatement statement = connection.prepareStatement(constructQuery(tableName, fieldNames));
       return new DBRecordWriter(connection, statement) {
 
-        private boolean emptyData = true;
+        // records added to the current batch, and records executed since the last commit
+        private int batchedRecords;
+        private long uncommittedRecords;
+        // set once a batch failed and the transaction was rolled back, so that close does not commit a partial task
+        private boolean failed;
 
         //Implementation of the close method below is the exact implementation in DBOutputFormat except that
         //we check if there is any data to be written and if not, we skip executeBatch call.
@@ -77,8 +109,13 @@ public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<
         @Override
         public void close(TaskAttemptContext context) throws IOException {
           try {
-            if (!emptyData) {
-              getStatement().executeBatch();
+            if (failed) {
+              return;
+            }
+            if (batchedRecords > 0) {
+              executeBatch();
+            }
+            if (uncommittedRecords > 0) {
               getConnection().commit();
             }
           } catch (SQLException e) {
@@ -95,19 +132,45 @@ public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<
             } catch (SQLException ex) {
               throw new IOException(ex.getMessage());
             }
+            deregisterDriverShim();
           }
+        }
 
+        @Override
+        public void write(K key, V value) throws IOException {
+          if (failed) {
+            throw new IOException("Cannot write to the database after a failed batch.");
+          }
+          super.write(key, value);
+          batchedRecords++;
+          // execute the batch once it is full, instead of buffering every record of the task in the driver
+          if (batchedRecords < batchSize) {
+            return;
+          }
           try {
-            DriverManager.deregisterDriver(driverShim);
+            executeBatch();
+            if (commitInterval > 0 && uncommittedRecords >= commitInterval) {
+              getConnection().commit();
+              uncommittedRecords = 0;
+            }
           } catch (SQLException e) {
-            throw new IOException(e);
+            failed = true;
+            batchedRecords = 0;
+            uncommittedRecords = 0;
+            try {
+              getStatement().clearBatch();
+              getConnection().rollback();
+            } catch (SQLException ex) {
+              LOG.warn(StringUtils.stringifyException(ex));
+            }
+            throw new IOException(e.getMessage(), e);
           }
         }
 
-        @Override
-        public void write(K key, V value) throws IOException {
-          super.write(key, value);
-          emptyData = false;
+        private void executeBatch() throws SQLException {
+          getStatement().executeBatch();
+          uncommittedRecords += batchedRecords;
+          batchedRecords = 0;
         }
       };
     } catch (Exception ex) {
@@ -115,6 +178,43 @@ public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<
     }
   }
 
+  private RecordWriter<K, V> getParallelRecordWriter(Configuration conf, String query, int connections,
+                                                     int batchSize, long commitInterval) throws SQLException {
+    List<Connection> connectionList = new ArrayList<>(connections);
+    try {
+      for (int i = 0; i < connections; i++) {
+        connectionList.add(getConnection(conf));
+      }
+      return new ParallelDBRecordWriter<K, V>(connectionList, query, batchSize, commitInterval) {
+        @Override
+        public void close(TaskAttemptContext context) throws IOException {
+          try {
+            super.close(context);
+          } finally {
+            deregisterDriverShim();
+          }
+        }
+      };
+    } catch (RuntimeException | SQLException e) {
+      for (Connection connection : connectionList) {
+        try {
+          connection.close();
+        } catch (SQLException ex) {
+          LOG.warn(StringUtils.stringifyException(ex));
+        }
+      }
+      throw e;
+    }
+  }
+
+  private void deregisterDriverShim() throws IOException {
+    try {
+      DriverManager.deregisterDriver(driverShim);
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
   private Connection getConnection(Configuration conf) {
     Connection connection;
     try {
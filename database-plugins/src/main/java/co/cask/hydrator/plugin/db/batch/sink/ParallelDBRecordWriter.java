@@ -0,0 +1,231 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.db.batch.sink;
+
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.db.DBWritable;
+import org.apache.hadoop.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RecordWriter} that writes to the database through several connections, each on its own thread.
+ * Records are distributed round robin across the connections. Each connection executes its own batches and commits
+ * its own transaction, so if the task fails, the records already committed by some of the connections will be
+ * written again when the task is retried.
+ *
+ * @param <K> the type of record to write
+ * @param <V> the value type, which is ignored
+ */
+class ParallelDBRecordWriter<K extends DBWritable, V> extends RecordWriter<K, V> {
+  static final String COUNTER_GROUP = "Database Sink";
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelDBRecordWriter.class);
+  private static final Object END = new Object();
+
+  private final List<ConnectionWriter> writers;
+  private final int batchSize;
+  private final long commitInterval;
+  private volatile boolean aborted;
+  private int next;
+
+  ParallelDBRecordWriter(List<Connection> connections, String query,
+                         int batchSize, long commitInterval) throws SQLException {
+    this.batchSize = batchSize;
+    this.commitInterval = commitInterval;
+    this.writers = new ArrayList<>(connections.size());
+    for (Connection connection : connections) {
+      writers.add(new ConnectionWriter(writers.size(), connection, connection.prepareStatement(query)));
+    }
+    for (ConnectionWriter writer : writers) {
+      writer.start();
+    }
+  }
+
+  @Override
+  public void write(K key, V value) throws IOException {
+    ConnectionWriter writer = writers.get(next);
+    next = (next + 1) % writers.size();
+    try {
+      writer.add(key);
+    } catch (IOException e) {
+      aborted = true;
+      throw e;
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException {
+    Throwable failure = null;
+    for (ConnectionWriter writer : writers) {
+      if (writer.failure != null) {
+        aborted = true;
+      }
+    }
+    for (ConnectionWriter writer : writers) {
+      writer.finish();
+    }
+    for (ConnectionWriter writer : writers) {
+      try {
+        writer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for database writers to finish.", e);
+      }
+      if (failure == null) {
+        failure = writer.failure;
+      }
+      increment(context, String.format("connection.%d.records", writer.id), writer.writtenRecords);
+      increment(context, String.format("connection.%d.write.ms", writer.id),
+                TimeUnit.NANOSECONDS.toMillis(writer.writeNanos));
+      LOG.debug("Connection {} wrote {} records in {} ms.", writer.id, writer.writtenRecords,
+                TimeUnit.NANOSECONDS.toMillis(writer.writeNanos));
+    }
+    if (failure != null) {
+      throw new IOException(failure.getMessage(), failure);
+    }
+  }
+
+  private void increment(TaskAttemptContext context, String name, long amount) {
+    Counter counter = context.getCounter(COUNTER_GROUP, name);
+    // some contexts, like ones created for local testing, don't support counters
+    if (counter != null) {
+      counter.increment(amount);
+    }
+  }
+
+  /**
+   * Writes the records handed to it to one connection, on its own thread.
+   */
+  private final class ConnectionWriter extends Thread {
+    private final int id;
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final BlockingQueue<Object> queue;
+    private int batchedRecords;
+    private long uncommittedRecords;
+    // only read after the thread has been joined
+    private long writtenRecords;
+    private long writeNanos;
+    private volatile Throwable failure;
+
+    ConnectionWriter(int id, Connection connection, PreparedStatement statement) {
+      super("db-writer-" + id);
+      setDaemon(true);
+      this.id = id;
+      this.connection = connection;
+      this.statement = statement;
+      this.queue = new ArrayBlockingQueue<>(batchSize);
+    }
+
+    void add(Object record) throws IOException {
+      try {
+        while (!queue.offer(record, 1, TimeUnit.SECONDS)) {
+          checkFailure();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while writing to the database.", e);
+      }
+      checkFailure();
+    }
+
+    void finish() throws IOException {
+      try {
+        while (isAlive() && !queue.offer(END, 1, TimeUnit.SECONDS)) {
+          // keep trying until the writer takes the end marker or stops because of a failure
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while closing database writers.", e);
+      }
+    }
+
+    private void checkFailure() throws IOException {
+      if (failure != null) {
+        throw new IOException(failure.getMessage(), failure);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        Object record = queue.take();
+        while (record != END) {
+          if (!aborted) {
+            ((DBWritable) record).write(statement);
+            statement.addBatch();
+            batchedRecords++;
+            if (batchedRecords >= batchSize) {
+              executeBatch();
+            }
+          }
+          record = queue.take();
+        }
+        if (aborted) {
+          connection.rollback();
+        } else {
+          if (batchedRecords > 0) {
+            executeBatch();
+          }
+          if (uncommittedRecords > 0) {
+            connection.commit();
+          }
+        }
+      } catch (Throwable t) {
+        failure = t;
+        aborted = true;
+        try {
+          connection.rollback();
+        } catch (SQLException e) {
+          LOG.warn(StringUtils.stringifyException(e));
+        }
+      } finally {
+        try {
+          statement.close();
+          connection.close();
+        } catch (SQLException e) {
+          LOG.warn(StringUtils.stringifyException(e));
+        }
+      }
+    }
+
+    private void executeBatch() throws SQLException {
+      long start = System.nanoTime();
+      statement.executeBatch();
+      uncommittedRecords += batchedRecords;
+      writtenRecords += batchedRecords;
+      batchedRecords = 0;
+      if (commitInterval > 0 && uncommittedRecords >= commitInterval) {
+        connection.commit();
+        uncommittedRecords = 0;
+      }
+      writeNanos += System.nanoTime() - start;
+    }
+  }
+}
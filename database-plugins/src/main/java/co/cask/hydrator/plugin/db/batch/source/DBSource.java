@@ -19,10 +19,12 @@ package co.cask.hydrator.plugin.db.batch.source;
 import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.batch.Input;
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.dataset.lib.KeyValue;
+import co.cask.cdap.api.dataset.lib.KeyValueTable;
 import co.cask.cdap.api.plugin.EndpointPluginContext;
 import co.cask.cdap.api.plugin.PluginConfig;
 import co.cask.cdap.api.plugin.PluginProperties;
@@ -71,6 +73,7 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
   private final DBSourceConfig sourceConfig;
   private final DBManager dbManager;
   private Class<? extends Driver> driverClass;
+  private String nextWatermark;
 
   public DBSource(DBSourceConfig sourceConfig) {
     super(new ReferencePluginConfig(sourceConfig.referenceName));
@@ -94,6 +97,26 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
         hasOneSplit = true;
       }
     }
+    if (sourceConfig.fetchSize != null && sourceConfig.fetchSize < 1) {
+      throw new IllegalArgumentException(
+        "Invalid value for fetchSize. Must be at least 1, but got " + sourceConfig.fetchSize);
+    }
+    if (sourceConfig.watermarkColumn != null) {
+      if (sourceConfig.watermarkTableName == null || sourceConfig.watermarkTableName.isEmpty()) {
+        throw new IllegalArgumentException("The watermarkTableName must be specified if watermarkColumn is set.");
+      }
+      if (!HighWatermark.isUnqualifiedColumn(sourceConfig.watermarkColumn)) {
+        throw new IllegalArgumentException(String.format(
+          "The watermarkColumn '%s' must be an unqualified column name, such as 'updated' rather than " +
+            "'table.updated', since it is read through a query that wraps the importQuery.",
+          sourceConfig.watermarkColumn));
+      }
+      if (!sourceConfig.getImportQuery().contains("$CONDITIONS")) {
+        throw new IllegalArgumentException(String.format("Import Query %s must contain the string '$CONDITIONS' " +
+                                                           "if watermarkColumn is set.", sourceConfig.importQuery));
+      }
+      pipelineConfigurer.createDataset(sourceConfig.watermarkTableName, KeyValueTable.class.getName());
+    }
     if (!hasOneSplit) {
       if (!sourceConfig.getImportQuery().contains("$CONDITIONS")) {
         throw new IllegalArgumentException(String.format("Import Query %s must contain the string '$CONDITIONS'.",
@@ -102,8 +125,10 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
       if (sourceConfig.splitBy == null || sourceConfig.splitBy.isEmpty()) {
         throw new IllegalArgumentException("The splitBy must be specified if numSplits is not set to 1.");
       }
-      if (sourceConfig.boundingQuery == null || sourceConfig.boundingQuery.isEmpty()) {
-        throw new IllegalArgumentException("The boundingQuery must be specified if numSplits is not set to 1.");
+      if (!sourceConfig.useQuantileSplits() &&
+        (sourceConfig.boundingQuery == null || sourceConfig.boundingQuery.isEmpty())) {
+        throw new IllegalArgumentException("The boundingQuery must be specified if numSplits is not set to 1 " +
+                                             "and quantileSplits is not set to true.");
       }
     }
   }
@@ -201,8 +226,24 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
       DBConfiguration.configureDB(hConf, driverClass.getName(), sourceConfig.connectionString,
                                   sourceConfig.user, sourceConfig.password);
     }
-    DataDrivenETLDBInputFormat.setInput(hConf, DBRecord.class,
-                                        sourceConfig.getImportQuery(), sourceConfig.getBoundingQuery(),
+    String importQuery = sourceConfig.getImportQuery();
+    String boundingQuery = sourceConfig.getBoundingQuery();
+    if (sourceConfig.watermarkColumn != null) {
+      KeyValueTable watermarkTable = context.getDataset(sourceConfig.watermarkTableName);
+      byte[] lastWatermarkBytes = watermarkTable.read(sourceConfig.referenceName);
+      String lastWatermark = lastWatermarkBytes == null ? null : Bytes.toString(lastWatermarkBytes);
+      try (Connection connection = dbManager.getConnection(driverClass)) {
+        nextWatermark = HighWatermark.getNext(connection, importQuery, sourceConfig.watermarkColumn, lastWatermark);
+      }
+      String condition = HighWatermark.getCondition(sourceConfig.watermarkColumn, lastWatermark, nextWatermark);
+      LOG.info("Reading rows past watermark {} up to {} of column {}.",
+               lastWatermark, nextWatermark, sourceConfig.watermarkColumn);
+      importQuery = HighWatermark.addCondition(importQuery, condition);
+      if (boundingQuery != null) {
+        boundingQuery = boundingQuery.replace("$CONDITIONS", condition);
+      }
+    }
+    DataDrivenETLDBInputFormat.setInput(hConf, DBRecord.class, importQuery, boundingQuery,
                                         sourceConfig.getEnableAutoCommit());
     if (sourceConfig.numSplits == null || sourceConfig.numSplits != 1) {
       hConf.set(DBConfiguration.INPUT_ORDER_BY_PROPERTY, sourceConfig.splitBy);
@@ -210,10 +251,23 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
     if (sourceConfig.numSplits != null) {
       hConf.setInt(MRJobConfig.NUM_MAPS, sourceConfig.numSplits);
     }
+    hConf.setBoolean(DataDrivenETLDBInputFormat.QUANTILE_SPLITS, sourceConfig.useQuantileSplits());
+    if (sourceConfig.fetchSize != null) {
+      hConf.setInt(DataDrivenETLDBInputFormat.FETCH_SIZE, sourceConfig.fetchSize);
+    }
     context.setInput(Input.of(sourceConfig.referenceName,
                               new SourceInputFormatProvider(DataDrivenETLDBInputFormat.class, hConf)));
   }
 
+  @Override
+  public void onRunFinish(boolean succeeded, BatchSourceContext context) {
+    super.onRunFinish(succeeded, context);
+    if (succeeded && sourceConfig.watermarkColumn != null && nextWatermark != null) {
+      KeyValueTable watermarkTable = context.getDataset(sourceConfig.watermarkTableName);
+      watermarkTable.write(sourceConfig.referenceName, nextWatermark);
+    }
+  }
+
   @Override
   public void initialize(BatchRuntimeContext context) throws Exception {
     super.initialize(context);
@@ -247,6 +301,10 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
     public static final String BOUNDING_QUERY = "boundingQuery";
     public static final String SPLIT_BY = "splitBy";
     public static final String NUM_SPLITS = "numSplits";
+    public static final String QUANTILE_SPLITS = "quantileSplits";
+    public static final String FETCH_SIZE = "fetchSize";
+    public static final String WATERMARK_COLUMN = "watermarkColumn";
+    public static final String WATERMARK_TABLE_NAME = "watermarkTableName";
 
     @Name(IMPORT_QUERY)
     @Description("The SELECT query to use to import data from the specified table. " +
@@ -265,7 +323,9 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
 
     @Nullable
     @Name(SPLIT_BY)
-    @Description("Field Name which will be used to generate splits. This is required unless numSplits is set to one.")
+    @Description("Field Name which will be used to generate splits. This is required unless numSplits is set to one. " +
+      "If quantileSplits is true, this must be the unqualified name of a column returned by the importQuery, " +
+      "since it is referenced from a query that wraps the importQuery.")
     String splitBy;
 
     @Nullable
@@ -275,6 +335,46 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
       "execution framework will pick a value.")
     Integer numSplits;
 
+    @Nullable
+    @Name(QUANTILE_SPLITS)
+    @Description("Whether to use quantiles of the 'splitBy' field values as split boundaries, so that each split " +
+      "reads about the same number of rows even if the values are skewed. When the splits are generated, the " +
+      "values are counted, and the boundaries are taken from a random sample of about 1000 values per split " +
+      "(at least 10000) for MySQL, PostgreSQL, Oracle, SQL Server, DB2, H2 and HSQLDB. For other databases, " +
+      "the values are read in order, so an index on the field is recommended. The field can be of any type the " +
+      "database can order, such as a number, date, timestamp, or string, and no boundingQuery is needed. " +
+      "Defaults to false, which divides the range returned by the boundingQuery evenly.")
+    Boolean quantileSplits;
+
+    @Nullable
+    @Name(FETCH_SIZE)
+    @Description("The number of rows to fetch from the database at a time when reading a split. Rows are read " +
+      "with a forward-only, read-only cursor, so memory use does not grow with the size of the split. " +
+      "Defaults to 1000, except for MySQL, where rows are streamed one at a time unless a fetch size is given " +
+      "and 'useCursorFetch=true' is set in the connection string. PostgreSQL only honors the fetch size if " +
+      "enableAutoCommit is false.")
+    Integer fetchSize;
+
+    @Nullable
+    @Name(WATERMARK_COLUMN)
+    @Description("Column whose values only grow, such as an auto-increment id or a last-modified timestamp, used " +
+      "to read only new rows. If set, each run only reads the rows whose value is greater than the maximum value " +
+      "read by the last successful run, by adding a condition to '$CONDITIONS'. If the boundingQuery contains " +
+      "'$CONDITIONS', it is replaced with the same condition. This must be the unqualified name of a column " +
+      "returned by the importQuery, since the maximum value is read through a query that wraps the importQuery. " +
+      "If not specified, every run reads all the rows.")
+    String watermarkColumn;
+
+    @Nullable
+    @Name(WATERMARK_TABLE_NAME)
+    @Description("Name of the table used to keep track of the maximum value of the watermarkColumn read by the " +
+      "last successful run. Required if the watermarkColumn is set.")
+    String watermarkTableName;
+
+    private boolean useQuantileSplits() {
+      return quantileSplits != null && quantileSplits;
+    }
+
     private String getImportQuery() {
       return cleanQuery(importQuery);
     }
@@ -22,12 +22,15 @@ import co.cask.hydrator.plugin.db.batch.NoOpCommitConnection;
 import com.google.common.base.Throwables;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
 import org.apache.hadoop.mapreduce.lib.db.DBInputFormat;
 import org.apache.hadoop.mapreduce.lib.db.DBWritable;
 import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBInputFormat;
+import org.apache.hadoop.mapreduce.lib.db.OracleDBRecordReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,12 +39,16 @@ import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
 
 /**
  * Class that extends {@link DBInputFormat} to load the database driver class correctly.
  */
 public class DataDrivenETLDBInputFormat extends DataDrivenDBInputFormat {
   public static final String AUTO_COMMIT_ENABLED = "co.cask.hydrator.db.autocommit.enabled";
+  public static final String QUANTILE_SPLITS = "co.cask.hydrator.db.quantile.splits";
+  public static final String FETCH_SIZE = "co.cask.hydrator.db.fetch.size";
+  public static final int DEFAULT_FETCH_SIZE = 1000;
 
   private static final Logger LOG = LoggerFactory.getLogger(DataDrivenETLDBInputFormat.class);
   private Driver driver;
@@ -108,9 +115,27 @@ public class DataDrivenETLDBInputFormat extends DataDrivenDBInputFormat {
     return this.connection;
   }
 
+  @Override
+  public List<InputSplit> getSplits(JobContext job) throws IOException {
+    Configuration conf = job.getConfiguration();
+    int numSplits = conf.getInt(MRJobConfig.NUM_MAPS, 1);
+    if (!conf.getBoolean(QUANTILE_SPLITS, false) || numSplits == 1) {
+      return super.getSplits(job);
+    }
+    try {
+      String dbProductName = getDBProductName();
+      return new QuantileSplitter(dbProductName, getFetchSize(conf, dbProductName))
+        .getSplits(getConnection(), getDBConf().getInputQuery(), getDBConf().getInputOrderBy(), numSplits);
+    } catch (SQLException e) {
+      throw new IOException(e);
+    } finally {
+      closeConnection();
+    }
+  }
+
   @Override
   protected RecordReader createDBRecordReader(DBInputSplit split, Configuration conf) throws IOException {
-    final RecordReader dbRecordReader = super.createDBRecordReader(split, conf);
+    final RecordReader dbRecordReader = createStreamingRecordReader(split, conf);
     return new RecordReader() {
       @Override
       public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
@@ -149,6 +174,41 @@ public class DataDrivenETLDBInputFormat extends DataDrivenDBInputFormat {
     };
   }
 
+  @SuppressWarnings("unchecked")
+  private RecordReader createStreamingRecordReader(DBInputSplit split, Configuration conf) throws IOException {
+    DBConfiguration dbConf = getDBConf();
+    String dbProductName = getDBProductName();
+    int fetchSize = getFetchSize(conf, dbProductName);
+    LOG.debug("Creating db record reader for db product {} with fetch size {}.", dbProductName, fetchSize);
+    if (dbProductName.startsWith("POSTGRESQL") && conf.getBoolean(AUTO_COMMIT_ENABLED, false)) {
+      LOG.warn("The PostgreSQL driver ignores the fetch size when auto-commit is enabled, " +
+                 "so the whole result of each split will be held in memory.");
+    }
+    try {
+      if (dbProductName.startsWith("ORACLE")) {
+        // same as the OracleDataDrivenDBRecordReader used by DataDrivenDBInputFormat
+        OracleDBRecordReader.setSessionTimeZone(conf, getConnection());
+      }
+      return new StreamingDBRecordReader(split, dbConf.getInputClass(), conf, getConnection(), dbConf,
+                                         dbConf.getInputConditions(), dbConf.getInputFieldNames(),
+                                         dbConf.getInputTableName(), dbProductName, fetchSize);
+    } catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Returns the fetch size to use for the given database. If none is configured, MySQL gets the streaming hint,
+   * since Connector/J buffers the whole result for any other value unless cursor fetch is enabled in the URL.
+   */
+  static int getFetchSize(Configuration conf, String dbProductName) {
+    int fetchSize = conf.getInt(FETCH_SIZE, 0);
+    if (fetchSize > 0) {
+      return fetchSize;
+    }
+    return dbProductName.startsWith("MYSQL") ? Integer.MIN_VALUE : DEFAULT_FETCH_SIZE;
+  }
+
   @Override
   protected void closeConnection() {
     super.closeConnection();
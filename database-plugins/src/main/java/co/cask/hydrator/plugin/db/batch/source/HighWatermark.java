@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.db.batch.source;
+
+import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBInputFormat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Builds the conditions for incremental reads, which only read the rows whose watermark column is greater than
+ * the watermark stored by the previous successful run.
+ *
+ * The new watermark is looked up before the run starts and is used as the upper bound of the read, so rows that
+ * are inserted while the run is in progress are left for the next run instead of being skipped.
+ * Watermarks are kept as sql literals, so they can be put into the queries as is.
+ */
+final class HighWatermark {
+  // a plain identifier, or an identifier quoted with double quotes, back ticks or brackets
+  private static final Pattern UNQUALIFIED_COLUMN =
+    Pattern.compile("[A-Za-z_][\\w$#]*|\"[^\"]+\"|`[^`]+`|\\[[^\\]]+\\]");
+
+  private HighWatermark() {
+  }
+
+  /**
+   * Returns whether the given column is a single, unqualified column name, which is required since the column is
+   * referenced through an alias of the import query.
+   */
+  static boolean isUnqualifiedColumn(String column) {
+    return UNQUALIFIED_COLUMN.matcher(column.trim()).matches();
+  }
+
+  /**
+   * Returns the maximum value of the watermark column that is greater than the last watermark, as a sql literal.
+   *
+   * @param connection the connection to run the query with
+   * @param importQuery the import query, containing the $CONDITIONS string
+   * @param column the watermark column
+   * @param lastWatermark the watermark of the last successful run, or null if there is none
+   * @return the new watermark, or null if there are no rows past the last watermark
+   */
+  @Nullable
+  static String getNext(Connection connection, String importQuery, String column,
+                        @Nullable String lastWatermark) throws SQLException {
+    String condition = lastWatermark == null ? "1 = 1" : String.format("%s > %s", column, lastWatermark);
+    String query = String.format("SELECT MAX(%s) FROM (%s) t", column,
+                                 importQuery.replace(DataDrivenDBInputFormat.SUBSTITUTE_TOKEN, "(" + condition + ")"));
+    try (Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(query)) {
+      resultSet.next();
+      Object value = resultSet.getObject(1);
+      return value == null ? null : QuantileSplitter.toLiteral(value, column);
+    }
+  }
+
+  /**
+   * Returns the condition that selects the rows past the last watermark, up to and including the new one.
+   *
+   * @param column the watermark column
+   * @param lastWatermark the watermark of the last successful run, or null if there is none
+   * @param nextWatermark the watermark of this run, or null if there are no new rows
+   */
+  static String getCondition(String column, @Nullable String lastWatermark, @Nullable String nextWatermark) {
+    if (nextWatermark == null) {
+      return "1 = 0";
+    }
+    if (lastWatermark == null) {
+      return String.format("%s <= %s", column, nextWatermark);
+    }
+    return String.format("%s > %s AND %s <= %s", column, lastWatermark, column, nextWatermark);
+  }
+
+  /**
+   * Adds the condition to the $CONDITIONS string of the query, keeping the $CONDITIONS string for the splits.
+   */
+  static String addCondition(String query, String condition) {
+    return query.replace(DataDrivenDBInputFormat.SUBSTITUTE_TOKEN,
+                         String.format("(%s) AND %s", condition, DataDrivenDBInputFormat.SUBSTITUTE_TOKEN));
+  }
+}
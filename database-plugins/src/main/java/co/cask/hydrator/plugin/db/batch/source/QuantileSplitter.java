@@ -0,0 +1,230 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.db.batch.source;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBInputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Generates splits whose boundaries are quantiles of the split column values, so that each split holds about the
+ * same number of rows even if the values are skewed. Unlike the splitters of {@link DataDrivenDBInputFormat}, this
+ * works for any column the database can order, such as numbers, dates, timestamps and strings.
+ *
+ * The values are counted first. If there are more values than needed for the sample, the quantiles are taken from a
+ * random sample of the values that the database selects with its random number function, so only the sample is
+ * sorted and sent to the client. For databases without a known random function, or for small results, all values
+ * are read in the order given by the database until the last boundary is found. In both cases the boundaries are
+ * values ordered by the database, which makes sure the split conditions never overlap, even for string collations
+ * that differ from Java's ordering.
+ *
+ * The split column is referenced through an alias of the import query, so it must be an unqualified column name.
+ */
+class QuantileSplitter {
+  private static final Logger LOG = LoggerFactory.getLogger(QuantileSplitter.class);
+  private static final int DEFAULT_SAMPLE_ROWS_PER_SPLIT = 1000;
+  private static final int MIN_SAMPLE_ROWS = 10000;
+
+  private final String dbProductName;
+  private final int fetchSize;
+  private final int sampleRowsPerSplit;
+
+  /**
+   * @param dbProductName the upper case name of the database product, used to pick the sampling function
+   * @param fetchSize the fetch size to read the split column values with
+   */
+  QuantileSplitter(String dbProductName, int fetchSize) {
+    this(dbProductName, fetchSize, DEFAULT_SAMPLE_ROWS_PER_SPLIT);
+  }
+
+  @VisibleForTesting
+  QuantileSplitter(String dbProductName, int fetchSize, int sampleRowsPerSplit) {
+    this.dbProductName = dbProductName;
+    this.fetchSize = fetchSize;
+    this.sampleRowsPerSplit = sampleRowsPerSplit;
+  }
+
+  /**
+   * Generates the splits for the given query.
+   *
+   * @param connection the connection to read the split column with
+   * @param importQuery the import query, containing the $CONDITIONS string
+   * @param splitBy the unqualified column to split by
+   * @param numSplits the number of splits to generate
+   * @return the splits, which might be fewer than requested if there are not enough distinct values
+   */
+  List<InputSplit> getSplits(Connection connection, String importQuery, String splitBy,
+                             int numSplits) throws SQLException {
+    String query = importQuery.replace(DataDrivenDBInputFormat.SUBSTITUTE_TOKEN, "(1 = 1)");
+    long count;
+    boolean hasNulls;
+    try (Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery(
+           String.format("SELECT COUNT(%s), COUNT(*) FROM (%s) t", splitBy, query))) {
+      resultSet.next();
+      count = resultSet.getLong(1);
+      hasNulls = resultSet.getLong(2) > count;
+    }
+
+    List<Object> boundaries = new ArrayList<>(numSplits);
+    if (count > 0 && numSplits > 1) {
+      long sampleRows = Math.max(MIN_SAMPLE_ROWS, (long) sampleRowsPerSplit * numSplits);
+      String samplePredicate = count > sampleRows ? getSamplePredicate((double) sampleRows / count) : null;
+      if (samplePredicate == null) {
+        if (count > sampleRows) {
+          LOG.warn("Sampling is not supported for database {}, so all {} values of {} are read to find the " +
+                     "split boundaries.", dbProductName, count, splitBy);
+        }
+        boundaries = getBoundaries(connection, String.format(
+          "SELECT %s FROM (%s) t WHERE %s IS NOT NULL ORDER BY %s", splitBy, query, splitBy, splitBy),
+                                   count, numSplits);
+      } else {
+        boundaries = getSampledBoundaries(connection, String.format(
+          "SELECT %s FROM (%s) t WHERE %s IS NOT NULL AND %s ORDER BY %s",
+          splitBy, query, splitBy, samplePredicate, splitBy), numSplits);
+      }
+    }
+    LOG.debug("Found {} split boundaries for {} values of {}.", boundaries.size(), count, splitBy);
+
+    List<InputSplit> splits = new ArrayList<>(boundaries.size() + 2);
+    String lower = String.format("%s IS NOT NULL", splitBy);
+    for (Object boundary : boundaries) {
+      String literal = toLiteral(boundary, splitBy);
+      splits.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(lower, String.format("%s < %s", splitBy, literal)));
+      lower = String.format("%s >= %s", splitBy, literal);
+    }
+    splits.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(lower, String.format("%s IS NOT NULL", splitBy)));
+    if (hasNulls) {
+      String isNull = String.format("%s IS NULL", splitBy);
+      splits.add(new DataDrivenDBInputFormat.DataDrivenDBInputSplit(isNull, isNull));
+    }
+    return splits;
+  }
+
+  /**
+   * Returns a condition that is true for about the given fraction of rows, or null if the random function of the
+   * database is not known.
+   */
+  @Nullable
+  @VisibleForTesting
+  String getSamplePredicate(double fraction) {
+    // avoid scientific notation for small fractions
+    String literal = BigDecimal.valueOf(fraction).stripTrailingZeros().toPlainString();
+    if (dbProductName.startsWith("MYSQL") || dbProductName.startsWith("HSQL") || dbProductName.startsWith("H2") ||
+      dbProductName.startsWith("DB2")) {
+      return String.format("RAND() < %s", literal);
+    }
+    if (dbProductName.startsWith("POSTGRESQL")) {
+      return String.format("RANDOM() < %s", literal);
+    }
+    if (dbProductName.startsWith("ORACLE")) {
+      return String.format("DBMS_RANDOM.VALUE < %s", literal);
+    }
+    if (dbProductName.startsWith("MICROSOFT SQL SERVER")) {
+      // RAND() is evaluated once per query in SQL Server, while NEWID() is evaluated for every row
+      return String.format("ABS(CHECKSUM(NEWID())) %% 1000000 < %d", (long) (fraction * 1000000));
+    }
+    return null;
+  }
+
+  /**
+   * Reads the ordered values of the given query until all boundaries are found. The boundary of split i is the
+   * value at position i * count / numSplits.
+   */
+  private List<Object> getBoundaries(Connection connection, String query, long count,
+                                     int numSplits) throws SQLException {
+    List<Object> boundaries = new ArrayList<>(numSplits);
+    try (Statement statement = connection.createStatement()) {
+      statement.setFetchSize(fetchSize);
+      try (ResultSet resultSet = statement.executeQuery(query)) {
+        int nextSplit = 1;
+        long nextPosition = count / numSplits;
+        long position = 0;
+        while (nextSplit < numSplits && resultSet.next()) {
+          if (position == nextPosition) {
+            addBoundary(boundaries, resultSet.getObject(1));
+            nextSplit++;
+            nextPosition = nextSplit * count / numSplits;
+          }
+          position++;
+        }
+      }
+    }
+    return boundaries;
+  }
+
+  /**
+   * Reads all values of the given sample query and returns its quantiles.
+   */
+  private List<Object> getSampledBoundaries(Connection connection, String query,
+                                            int numSplits) throws SQLException {
+    List<Object> sample = new ArrayList<>();
+    try (Statement statement = connection.createStatement()) {
+      statement.setFetchSize(fetchSize);
+      try (ResultSet resultSet = statement.executeQuery(query)) {
+        while (resultSet.next()) {
+          sample.add(resultSet.getObject(1));
+        }
+      }
+    }
+    LOG.debug("Sampled {} values to find the split boundaries.", sample.size());
+    List<Object> boundaries = new ArrayList<>(numSplits);
+    for (int split = 1; split < numSplits && !sample.isEmpty(); split++) {
+      addBoundary(boundaries, sample.get((int) ((long) split * sample.size() / numSplits)));
+    }
+    return boundaries;
+  }
+
+  private static void addBoundary(List<Object> boundaries, Object value) {
+    if (boundaries.isEmpty() || !boundaries.get(boundaries.size() - 1).equals(value)) {
+      boundaries.add(value);
+    }
+  }
+
+  /**
+   * Returns the value as a sql literal. Dates and timestamps are written in JDBC escape format, in the same way
+   * as the date splitter of {@link DataDrivenDBInputFormat} does.
+   */
+  static String toLiteral(Object value, String column) {
+    if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).toPlainString();
+    }
+    if (value instanceof Number) {
+      return value.toString();
+    }
+    if (value instanceof Date) {
+      return String.format("'%s'", value);
+    }
+    if (value instanceof String) {
+      return String.format("'%s'", ((String) value).replace("'", "''"));
+    }
+    throw new IllegalArgumentException(String.format("Cannot use values of column '%s' of type %s in a condition.",
+                                                     column, value.getClass().getName()));
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.db.batch.source;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
+import org.apache.hadoop.mapreduce.lib.db.DBInputFormat;
+import org.apache.hadoop.mapreduce.lib.db.DBWritable;
+import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBRecordReader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A {@link DataDrivenDBRecordReader} that runs the split query with a forward-only, read-only cursor and the
+ * given fetch size, so that drivers can stream the rows instead of buffering the whole result of the split.
+ *
+ * @param <T> the type of record read
+ */
+class StreamingDBRecordReader<T extends DBWritable> extends DataDrivenDBRecordReader<T> {
+  private final int fetchSize;
+
+  StreamingDBRecordReader(DBInputFormat.DBInputSplit split, Class<T> inputClass, Configuration conf,
+                          Connection conn, DBConfiguration dbConfig, String cond, String[] fields, String table,
+                          String dbProduct, int fetchSize) throws SQLException {
+    super(split, inputClass, conf, conn, dbConfig, cond, fields, table, dbProduct);
+    this.fetchSize = fetchSize;
+  }
+
+  @Override
+  protected ResultSet executeQuery(String query) throws SQLException {
+    PreparedStatement statement = getConnection().prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+                                                                   ResultSet.CONCUR_READ_ONLY);
+    setStatement(statement);
+    statement.setFetchSize(fetchSize);
+    return statement.executeQuery();
+  }
+}
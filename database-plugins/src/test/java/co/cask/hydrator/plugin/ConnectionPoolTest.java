@@ -0,0 +1,294 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin;
+
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Tests for {@link ConnectionPool}
+ */
+public class ConnectionPoolTest {
+  private static final String URL = "jdbc:hsqldb:mem:pooltest";
+
+  @Test
+  public void testConnectionReused() throws Exception {
+    ConnectionPool pool = new ConnectionPool(2, 1, 60000, 1000, 10);
+    Driver driver = new JDBCDriver();
+
+    Connection connection = pool.getConnection(driver, URL, "SA", "");
+    Connection physical = connection.unwrap(Connection.class);
+    Connection other = pool.getConnection(driver, URL, "SA", "");
+    Assert.assertNotSame(physical, other.unwrap(Connection.class));
+    connection.close();
+    Assert.assertTrue(connection.isClosed());
+    try {
+      connection.createStatement();
+      Assert.fail("A closed connection should not be usable.");
+    } catch (SQLException e) {
+      // expected
+    }
+
+    connection = pool.getConnection(driver, URL, "SA", "");
+    Assert.assertSame(physical, connection.unwrap(Connection.class));
+    Assert.assertFalse(connection.isClosed());
+
+    // only one idle connection is kept, so the other one is closed
+    connection.close();
+    Connection otherPhysical = other.unwrap(Connection.class);
+    other.close();
+    Assert.assertTrue(otherPhysical.isClosed());
+    Assert.assertFalse(physical.isClosed());
+
+    // different credentials do not share connections
+    Connection differentUser = pool.getConnection(driver, URL, "SA", null);
+    Assert.assertNotSame(physical, differentUser.unwrap(Connection.class));
+    differentUser.close();
+
+    pool.closeIdleConnections(JDBCDriver.class);
+    Assert.assertTrue(physical.isClosed());
+  }
+
+  @Test
+  public void testIdleTimeout() throws Exception {
+    ConnectionPool pool = new ConnectionPool(2, 1, 0, 1000, 10);
+    Driver driver = new JDBCDriver();
+    Connection connection = pool.getConnection(driver, URL, "SA", "");
+    Connection physical = connection.unwrap(Connection.class);
+    connection.close();
+    Thread.sleep(10);
+
+    connection = pool.getConnection(driver, URL, "SA", "");
+    Assert.assertNotSame(physical, connection.unwrap(Connection.class));
+    Assert.assertTrue(physical.isClosed());
+    connection.close();
+    pool.closeIdleConnections(JDBCDriver.class);
+  }
+
+  @Test
+  public void testUncommittedChangesRolledBack() throws Exception {
+    ConnectionPool pool = new ConnectionPool(2, 1, 60000, 1000, 10);
+    Driver driver = new JDBCDriver();
+    try (Connection connection = pool.getConnection(driver, URL, "SA", "");
+         Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE rollbacktest (ID INT)");
+    }
+
+    try (Connection connection = pool.getConnection(driver, URL, "SA", "")) {
+      connection.setAutoCommit(false);
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("INSERT INTO rollbacktest VALUES (1)");
+      }
+    }
+
+    try (Connection connection = pool.getConnection(driver, URL, "SA", "")) {
+      Assert.assertTrue(connection.getAutoCommit());
+      try (Statement statement = connection.createStatement();
+           ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM rollbacktest")) {
+        resultSet.next();
+        Assert.assertEquals(0, resultSet.getInt(1));
+      }
+    }
+    pool.closeIdleConnections(JDBCDriver.class);
+  }
+
+  @Test
+  public void testStatementCache() throws Exception {
+    ConnectionPool pool = new ConnectionPool(2, 1, 60000, 1000, 1);
+    Driver driver = new JDBCDriver();
+    PreparedStatement first;
+    try (Connection connection = pool.getConnection(driver, URL, "SA", "")) {
+      try (PreparedStatement statement = connection.prepareStatement("VALUES (CAST(? AS INT))")) {
+        first = statement.unwrap(PreparedStatement.class);
+        statement.setInt(1, 5);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          resultSet.next();
+          Assert.assertEquals(5, resultSet.getInt(1));
+        }
+      }
+      Assert.assertFalse(first.isClosed());
+    }
+
+    try (Connection connection = pool.getConnection(driver, URL, "SA", "")) {
+      try (PreparedStatement statement = connection.prepareStatement("VALUES (CAST(? AS INT))")) {
+        Assert.assertSame(first, statement.unwrap(PreparedStatement.class));
+      }
+      // the cache only holds one statement, so preparing another one closes the first
+      try (PreparedStatement statement = connection.prepareStatement("VALUES (CAST(? AS INT), CAST(? AS INT))")) {
+        Assert.assertNotSame(first, statement.unwrap(PreparedStatement.class));
+      }
+      Assert.assertTrue(first.isClosed());
+    }
+    pool.closeIdleConnections(JDBCDriver.class);
+  }
+
+  @Test
+  public void testExpiredConnectionsOfOtherKeysClosed() throws Exception {
+    ConnectionPool pool = new ConnectionPool(2, 1, 0, 1000, 10);
+    Driver driver = new JDBCDriver();
+    Connection connection = pool.getConnection(driver, URL, "SA", "");
+    Connection physical = connection.unwrap(Connection.class);
+    connection.close();
+    Thread.sleep(10);
+
+    // using the pool for different credentials closes the expired connection
+    pool.getConnection(driver, URL, "SA", null).close();
+    Assert.assertTrue(physical.isClosed());
+    pool.closeIdleConnections(JDBCDriver.class);
+  }
+
+  @Test
+  public void testSessionStateReset() throws Exception {
+    ConnectionPool pool = new ConnectionPool(2, 1, 60000, 1000, 10);
+    Driver driver = new JDBCDriver();
+    int isolation;
+    try (Connection connection = pool.getConnection(driver, URL, "SA", "")) {
+      isolation = connection.getTransactionIsolation();
+      connection.setReadOnly(true);
+      connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    }
+    try (Connection connection = pool.getConnection(driver, URL, "SA", "")) {
+      Assert.assertFalse(connection.isReadOnly());
+      Assert.assertEquals(isolation, connection.getTransactionIsolation());
+    }
+    pool.closeIdleConnections(JDBCDriver.class);
+  }
+
+  @Test
+  public void testCachedStatementReset() throws Exception {
+    ConnectionPool pool = new ConnectionPool(2, 1, 60000, 1000, 10);
+    Driver driver = new JDBCDriver();
+    try (Connection connection = pool.getConnection(driver, URL, "SA", "");
+         Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE batchtest (ID INT)");
+    }
+
+    ResultSet leftOpen;
+    try (Connection connection = pool.getConnection(driver, URL, "SA", "")) {
+      PreparedStatement statement = connection.prepareStatement("INSERT INTO batchtest VALUES (?)");
+      Assert.assertSame(connection, statement.getConnection());
+      // a batch that is never executed
+      statement.setInt(1, 1);
+      statement.addBatch();
+      statement.close();
+
+      PreparedStatement query = connection.prepareStatement("SELECT COUNT(*) FROM batchtest");
+      leftOpen = query.executeQuery();
+      query.close();
+      Assert.assertTrue(leftOpen.isClosed());
+    }
+
+    try (Connection connection = pool.getConnection(driver, URL, "SA", "")) {
+      try (PreparedStatement statement = connection.prepareStatement("INSERT INTO batchtest VALUES (?)")) {
+        statement.setInt(1, 2);
+        statement.addBatch();
+        Assert.assertEquals(1, statement.executeBatch().length);
+      }
+      try (Statement statement = connection.createStatement();
+           ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM batchtest")) {
+        resultSet.next();
+        Assert.assertEquals(1, resultSet.getInt(1));
+      }
+    }
+    pool.closeIdleConnections(JDBCDriver.class);
+  }
+
+  @Test
+  public void testMaxActiveConnections() throws Exception {
+    ConnectionPool pool = new ConnectionPool(1, 1, 60000, 500, 10);
+    Driver driver = new JDBCDriver();
+    Connection connection = pool.getConnection(driver, URL, "SA", "");
+    try {
+      pool.getConnection(driver, URL, "SA", "");
+      Assert.fail("Expected no second connection to be handed out.");
+    } catch (SQLException e) {
+      // expected
+    }
+    // the limit is per key
+    pool.getConnection(driver, URL, "SA", null).close();
+
+    // a waiting caller gets the connection once it is closed
+    final Connection held = connection;
+    Thread closer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(20);
+          held.close();
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    closer.start();
+    connection = pool.getConnection(driver, URL, "SA", "");
+    closer.join();
+    connection.close();
+    pool.closeIdleConnections(JDBCDriver.class);
+  }
+
+  @Test
+  public void testSessionConnections() throws Exception {
+    ConnectionPool pool = new ConnectionPool(2, 1, 60000, 1000, 10);
+    Driver driver = new JDBCDriver();
+    Connection connection = pool.getConnection(driver, URL, "SA", "", "SET SCHEMA INFORMATION_SCHEMA");
+    Connection physical = connection.unwrap(Connection.class);
+    connection.close();
+
+    // connections of a session are not reused without the session or for another session
+    try (Connection other = pool.getConnection(driver, URL, "SA", "")) {
+      Assert.assertNotSame(physical, other.unwrap(Connection.class));
+    }
+    try (Connection other = pool.getConnection(driver, URL, "SA", "", "SET SCHEMA PUBLIC")) {
+      Assert.assertNotSame(physical, other.unwrap(Connection.class));
+    }
+    try (Connection same = pool.getConnection(driver, URL, "SA", "", "SET SCHEMA INFORMATION_SCHEMA")) {
+      Assert.assertSame(physical, same.unwrap(Connection.class));
+    }
+    pool.closeIdleConnections(JDBCDriver.class);
+  }
+
+  @Test
+  public void testIdleConnectionsEvicted() throws Exception {
+    ConnectionPool pool = new ConnectionPool(2, 1, 0, 1000, 10);
+    Connection connection = pool.getConnection(new JDBCDriver(), URL, "SA", "");
+    Connection physical = connection.unwrap(Connection.class);
+    connection.close();
+    Assert.assertFalse(physical.isClosed());
+
+    // the connection is closed in the background, without using the pool again
+    for (int i = 0; i < 50 && !physical.isClosed(); i++) {
+      Thread.sleep(100);
+    }
+    Assert.assertTrue(physical.isClosed());
+  }
+
+  @Test
+  public void testUnpooledConnection() throws Exception {
+    Connection connection = ConnectionPool.openConnection(new JDBCDriver(), URL, "SA", "");
+    connection.close();
+    Assert.assertTrue(connection.isClosed());
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+/**
+ * Unit Tests for {@link DBRecord}.
+ */
+public class DBRecordTest {
+
+  @Test
+  public void testReadFields() throws Exception {
+    Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    try (Connection conn = DriverManager.getConnection("jdbc:hsqldb:mem:dbrecordtest", "SA", "")) {
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("CREATE TABLE readtest (ID INT NOT NULL, BIG BIGINT, NUM DECIMAL(10, 2), " +
+                       "TS TIMESTAMP, NAME VARCHAR(10))");
+      }
+      try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO readtest VALUES (?, ?, ?, ?, ?)")) {
+        stmt.setInt(1, 1);
+        stmt.setLong(2, 100L);
+        stmt.setBigDecimal(3, new BigDecimal("3.25"));
+        stmt.setTimestamp(4, new Timestamp(1000L));
+        stmt.setString(5, "one");
+        stmt.executeUpdate();
+        stmt.setInt(1, 2);
+        stmt.setNull(2, Types.BIGINT);
+        stmt.setNull(3, Types.DECIMAL);
+        stmt.setNull(4, Types.TIMESTAMP);
+        stmt.setNull(5, Types.VARCHAR);
+        stmt.executeUpdate();
+      }
+
+      DBRecord dbRecord = new DBRecord();
+      try (Statement stmt = conn.createStatement();
+           ResultSet resultSet = stmt.executeQuery("SELECT * FROM readtest ORDER BY ID")) {
+        Assert.assertTrue(resultSet.next());
+        dbRecord.readFields(resultSet);
+        StructuredRecord first = dbRecord.getRecord();
+        Assert.assertEquals(1, first.get("ID"));
+        Assert.assertEquals(100L, first.get("BIG"));
+        Assert.assertEquals(3.25d, first.get("NUM"));
+        Assert.assertEquals(1000L, first.get("TS"));
+        Assert.assertEquals("one", first.get("NAME"));
+
+        Assert.assertTrue(resultSet.next());
+        dbRecord.readFields(resultSet);
+        StructuredRecord second = dbRecord.getRecord();
+        // the schema is computed once for the result set and reused for the following rows
+        Assert.assertSame(first.getSchema(), second.getSchema());
+        Assert.assertEquals(Schema.of(Schema.Type.INT), second.getSchema().getField("ID").getSchema());
+        Assert.assertEquals(2, second.get("ID"));
+        Assert.assertNull(second.get("BIG"));
+        Assert.assertNull(second.get("NUM"));
+        Assert.assertNull(second.get("TS"));
+        Assert.assertNull(second.get("NAME"));
+      }
+    }
+  }
+
+  @Test
+  public void testWriteText() throws Exception {
+    Schema schema = Schema.recordOf(
+      "record",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("flag", Schema.of(Schema.Type.BOOLEAN)),
+      Schema.Field.of("ts", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    int[] columnTypes = { Types.INTEGER, Types.BOOLEAN, Types.TIMESTAMP, Types.VARCHAR };
+
+    StringBuilder text = new StringBuilder();
+    new DBRecord(StructuredRecord.builder(schema)
+                   .set("id", 1).set("flag", true).set("ts", 1000L).set("name", "a\tb\\c\nd").build(),
+                 columnTypes).writeText(text);
+    new DBRecord(StructuredRecord.builder(schema)
+                   .set("id", 2).set("flag", false).set("ts", 2000L).set("name", null).build(),
+                 columnTypes).writeText(text);
+    Assert.assertEquals("1\t1\t" + new Timestamp(1000L) + "\ta\\tb\\\\c\\nd\n" +
+                          "2\t0\t" + new Timestamp(2000L) + "\t\\N\n", text.toString());
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.db.batch.sink;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.hydrator.plugin.DBRecord;
+import com.google.common.io.ByteStreams;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link BulkLoadRecordWriter} and {@link BulkLoader}
+ */
+public class BulkLoadRecordWriterTest {
+  private static final Schema SCHEMA = Schema.recordOf("record", Schema.Field.of("ID", Schema.of(Schema.Type.INT)));
+
+  @Test
+  public void testBatches() throws Exception {
+    Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:bulkloadtest", "SA", "");
+    connection.setAutoCommit(false);
+    RecordingBulkLoader loader = new RecordingBulkLoader();
+    BulkLoadRecordWriter<DBRecord, NullWritable> writer =
+      new BulkLoadRecordWriter<>(connection, loader, "bulktest", new String[] { "ID" }, 2, 0);
+
+    for (int i = 0; i < 5; i++) {
+      writer.write(new DBRecord(StructuredRecord.builder(SCHEMA).set("ID", i).build(), new int[] { Types.INTEGER }),
+                   null);
+    }
+    // two full batches are loaded while writing, the rest when closing
+    Assert.assertEquals(2, loader.batches.size());
+    writer.close(new TaskAttemptContextImpl(new Configuration(), new TaskAttemptID()));
+    Assert.assertEquals(3, loader.batches.size());
+    Assert.assertEquals("0\n1\n", loader.batches.get(0));
+    Assert.assertEquals("2\n3\n", loader.batches.get(1));
+    Assert.assertEquals("4\n", loader.batches.get(2));
+    Assert.assertTrue(connection.isClosed());
+  }
+
+  @Test
+  public void testFailedBatch() throws Exception {
+    Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:bulkloadtest", "SA", "");
+    connection.setAutoCommit(false);
+    RecordingBulkLoader loader = new RecordingBulkLoader();
+    loader.failures = 1;
+    BulkLoadRecordWriter<DBRecord, NullWritable> writer =
+      new BulkLoadRecordWriter<>(connection, loader, "bulktest", new String[] { "ID" }, 2, 0);
+
+    writer.write(new DBRecord(StructuredRecord.builder(SCHEMA).set("ID", 0).build(), new int[] { Types.INTEGER }),
+                 null);
+    try {
+      writer.write(new DBRecord(StructuredRecord.builder(SCHEMA).set("ID", 1).build(), new int[] { Types.INTEGER }),
+                   null);
+      Assert.fail("Expected the failed bulk load to fail the write");
+    } catch (IOException e) {
+      // expected
+    }
+    // the failed batch is neither loaded again nor committed when closing
+    writer.close(new TaskAttemptContextImpl(new Configuration(), new TaskAttemptID()));
+    Assert.assertTrue(loader.batches.isEmpty());
+    Assert.assertTrue(connection.isClosed());
+  }
+
+  @Test
+  public void testForName() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    Assert.assertNull(BulkLoader.forName(null, classLoader));
+    Assert.assertNull(BulkLoader.forName("", classLoader));
+    Assert.assertNotNull(BulkLoader.forName("PostgreSQL", classLoader));
+    Assert.assertNotNull(BulkLoader.forName("mysql", classLoader));
+    try {
+      BulkLoader.forName("oracle", classLoader);
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static class RecordingBulkLoader extends BulkLoader {
+    private final List<String> batches = new ArrayList<>();
+    private int failures;
+
+    @Override
+    void load(Connection connection, String table, String[] fieldNames, InputStream rows) throws SQLException {
+      if (failures > 0) {
+        failures--;
+        throw new SQLException("Failed to load the batch.");
+      }
+      try {
+        batches.add(new String(ByteStreams.toByteArray(rows), StandardCharsets.UTF_8));
+      } catch (IOException e) {
+        throw new SQLException(e);
+      }
+    }
+  }
+}
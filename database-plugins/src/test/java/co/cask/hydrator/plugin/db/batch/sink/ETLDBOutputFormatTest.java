@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.db.batch.sink;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.hydrator.plugin.DBRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * Tests for {@link ETLDBOutputFormat}
+ */
+public class ETLDBOutputFormatTest {
+  private static final String URL = "jdbc:hsqldb:mem:outputformattest";
+  private static final Schema SCHEMA = Schema.recordOf("record", Schema.Field.of("ID", Schema.of(Schema.Type.INT)));
+
+  private static Connection conn;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    conn = DriverManager.getConnection(URL, "SA", "");
+    try (Statement stmt = conn.createStatement()) {
+      // use mvcc so that the rows committed so far can be counted while the writer has an open transaction
+      stmt.execute("SET DATABASE TRANSACTION CONTROL MVCC");
+      stmt.execute("CREATE TABLE writetest (ID INT NOT NULL)");
+      stmt.execute("CREATE TABLE paralleltest (ID INT NOT NULL)");
+      stmt.execute("CREATE TABLE failuretest (ID INT NOT NULL)");
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    conn.close();
+  }
+
+  @Test
+  public void testBatchSizeAndCommitInterval() throws Exception {
+    Configuration conf = createConf("writetest");
+    conf.setInt(ETLDBOutputFormat.BATCH_SIZE, 2);
+    conf.setLong(ETLDBOutputFormat.COMMIT_INTERVAL, 4);
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+
+    RecordWriter<DBRecord, NullWritable> writer = new ETLDBOutputFormat<DBRecord, NullWritable>()
+      .getRecordWriter(context);
+    for (int i = 0; i < 5; i++) {
+      writer.write(new DBRecord(StructuredRecord.builder(SCHEMA).set("ID", i).build(), new int[] { Types.INTEGER }),
+                   null);
+      // records are only visible to other connections once they have been committed
+      Assert.assertEquals(i < 3 ? 0 : 4, countRows("writetest"));
+    }
+    writer.close(context);
+    Assert.assertEquals(5, countRows("writetest"));
+  }
+
+  @Test
+  public void testFailedBatchIsNotCommitted() throws Exception {
+    Configuration conf = createConf("failuretest");
+    conf.setInt(ETLDBOutputFormat.BATCH_SIZE, 2);
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+    Schema schema = Schema.recordOf("record", Schema.Field.of("ID", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+
+    RecordWriter<DBRecord, NullWritable> writer = new ETLDBOutputFormat<DBRecord, NullWritable>()
+      .getRecordWriter(context);
+    Integer[] ids = { 0, 1, 2, null };
+    try {
+      for (Integer id : ids) {
+        writer.write(new DBRecord(StructuredRecord.builder(schema).set("ID", id).build(),
+                                  new int[] { Types.INTEGER }), null);
+      }
+      Assert.fail("Expected the batch with a null id to fail");
+    } catch (IOException e) {
+      // expected
+    }
+    // the task is rolled back as a whole, so the records of the batch that succeeded must not be committed either
+    writer.close(context);
+    Assert.assertEquals(0, countRows("failuretest"));
+  }
+
+  @Test
+  public void testMultipleConnections() throws Exception {
+    Configuration conf = createConf("paralleltest");
+    conf.setInt(ETLDBOutputFormat.BATCH_SIZE, 3);
+    conf.setInt(ETLDBOutputFormat.CONNECTIONS, 3);
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+
+    RecordWriter<DBRecord, NullWritable> writer = new ETLDBOutputFormat<DBRecord, NullWritable>()
+      .getRecordWriter(context);
+    for (int i = 0; i < 100; i++) {
+      writer.write(new DBRecord(StructuredRecord.builder(SCHEMA).set("ID", i).build(), new int[] { Types.INTEGER }),
+                   null);
+    }
+    writer.close(context);
+    Assert.assertEquals(100, countRows("paralleltest"));
+    try (Statement stmt = conn.createStatement();
+         ResultSet resultSet = stmt.executeQuery("SELECT COUNT(DISTINCT ID) FROM paralleltest")) {
+      resultSet.next();
+      Assert.assertEquals(100, resultSet.getInt(1));
+    }
+  }
+
+  private Configuration createConf(String table) {
+    Configuration conf = new Configuration();
+    conf.set(DBConfiguration.DRIVER_CLASS_PROPERTY, "org.hsqldb.jdbc.JDBCDriver");
+    conf.set(DBConfiguration.URL_PROPERTY, URL);
+    conf.set(DBConfiguration.USERNAME_PROPERTY, "SA");
+    conf.set(DBConfiguration.PASSWORD_PROPERTY, "");
+    conf.set(DBConfiguration.OUTPUT_TABLE_NAME_PROPERTY, table);
+    conf.set(DBConfiguration.OUTPUT_FIELD_NAMES_PROPERTY, "ID");
+    return conf;
+  }
+
+  private int countRows(String table) throws SQLException {
+    try (Statement stmt = conn.createStatement();
+         ResultSet resultSet = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+      resultSet.next();
+      return resultSet.getInt(1);
+    }
+  }
+}
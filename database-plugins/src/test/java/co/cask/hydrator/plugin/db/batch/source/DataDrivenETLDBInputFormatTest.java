@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.db.batch.source;
+
+import co.cask.hydrator.plugin.DBRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
+import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBInputFormat;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link DataDrivenETLDBInputFormat}
+ */
+public class DataDrivenETLDBInputFormatTest {
+  private static final String URL = "jdbc:hsqldb:mem:inputformattest";
+
+  private static Connection conn;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    conn = DriverManager.getConnection(URL, "SA", "");
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE numbers (ID INT, NAME VARCHAR(10))");
+    }
+    try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO numbers VALUES (?, ?)")) {
+      for (int i = 1; i <= 25; i++) {
+        stmt.setInt(1, i);
+        stmt.setString(2, "n" + i);
+        stmt.executeUpdate();
+      }
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    conn.close();
+  }
+
+  @Test
+  public void testFetchSize() {
+    Configuration conf = new Configuration();
+    Assert.assertEquals(DataDrivenETLDBInputFormat.DEFAULT_FETCH_SIZE,
+                        DataDrivenETLDBInputFormat.getFetchSize(conf, "POSTGRESQL"));
+    Assert.assertEquals(Integer.MIN_VALUE, DataDrivenETLDBInputFormat.getFetchSize(conf, "MYSQL"));
+
+    conf.setInt(DataDrivenETLDBInputFormat.FETCH_SIZE, 50);
+    Assert.assertEquals(50, DataDrivenETLDBInputFormat.getFetchSize(conf, "POSTGRESQL"));
+    Assert.assertEquals(50, DataDrivenETLDBInputFormat.getFetchSize(conf, "MYSQL"));
+  }
+
+  @Test
+  public void testReadWithSmallFetchSize() throws Exception {
+    Configuration conf = new Configuration();
+    DBConfiguration.configureDB(conf, "org.hsqldb.jdbc.JDBCDriver", URL, "SA", "");
+    DataDrivenETLDBInputFormat.setInput(conf, DBRecord.class, "SELECT * FROM numbers WHERE $CONDITIONS",
+                                        "SELECT MIN(ID), MAX(ID) FROM numbers", false);
+    conf.set(DBConfiguration.INPUT_ORDER_BY_PROPERTY, "ID");
+    // smaller than the number of rows in the split, so the rows have to be fetched in several round trips
+    conf.setInt(DataDrivenETLDBInputFormat.FETCH_SIZE, 3);
+
+    DataDrivenETLDBInputFormat inputFormat = new DataDrivenETLDBInputFormat();
+    inputFormat.setConf(conf);
+    RecordReader reader = inputFormat.createDBRecordReader(
+      new DataDrivenDBInputFormat.DataDrivenDBInputSplit("ID >= 5", "ID < 20"), conf);
+    List<Integer> ids = new ArrayList<>();
+    try {
+      while (reader.nextKeyValue()) {
+        ids.add(((DBRecord) reader.getCurrentValue()).getRecord().<Integer>get("ID"));
+      }
+    } finally {
+      reader.close();
+    }
+
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 5; i < 20; i++) {
+      expected.add(i);
+    }
+    Assert.assertEquals(expected, ids);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.db.batch.source;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * Tests for {@link HighWatermark}
+ */
+public class HighWatermarkTest {
+  private static final String QUERY = "SELECT * FROM events WHERE $CONDITIONS";
+
+  private static Connection conn;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    conn = DriverManager.getConnection("jdbc:hsqldb:mem:watermarktest", "SA", "");
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE events (ID INT, UPDATED TIMESTAMP)");
+    }
+    insert(1, 10);
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    conn.close();
+  }
+
+  @Test
+  public void testUnqualifiedColumn() {
+    Assert.assertTrue(HighWatermark.isUnqualifiedColumn("updated"));
+    Assert.assertTrue(HighWatermark.isUnqualifiedColumn("last_modified"));
+    Assert.assertTrue(HighWatermark.isUnqualifiedColumn("\"Last Modified\""));
+    Assert.assertTrue(HighWatermark.isUnqualifiedColumn("`updated`"));
+    Assert.assertFalse(HighWatermark.isUnqualifiedColumn("events.updated"));
+    Assert.assertFalse(HighWatermark.isUnqualifiedColumn("e.\"updated\""));
+    Assert.assertFalse(HighWatermark.isUnqualifiedColumn("MAX(updated)"));
+  }
+
+  @Test
+  public void testIncrementalReads() throws Exception {
+    // first run reads everything
+    String watermark = HighWatermark.getNext(conn, QUERY, "ID", null);
+    Assert.assertEquals("10", watermark);
+    Assert.assertEquals(10, countRows(HighWatermark.getCondition("ID", null, watermark)));
+
+    // no new rows
+    String next = HighWatermark.getNext(conn, QUERY, "ID", watermark);
+    Assert.assertNull(next);
+    Assert.assertEquals(0, countRows(HighWatermark.getCondition("ID", watermark, next)));
+
+    insert(11, 15);
+    next = HighWatermark.getNext(conn, QUERY, "ID", watermark);
+    Assert.assertEquals("15", next);
+    Assert.assertEquals(5, countRows(HighWatermark.getCondition("ID", watermark, next)));
+  }
+
+  @Test
+  public void testTimestampWatermark() throws Exception {
+    String lastWatermark = QuantileSplitter.toLiteral(new Timestamp(5), "UPDATED");
+    String watermark = HighWatermark.getNext(conn, QUERY, "UPDATED", lastWatermark);
+    Assert.assertNotNull(watermark);
+    String condition = HighWatermark.getCondition("UPDATED", lastWatermark, watermark);
+    Assert.assertEquals(countRows("1 = 1") - 5, countRows(condition));
+  }
+
+  @Test
+  public void testAddCondition() {
+    Assert.assertEquals("SELECT * FROM events WHERE (ID > 5) AND $CONDITIONS",
+                        HighWatermark.addCondition(QUERY, "ID > 5"));
+  }
+
+  private static void insert(int from, int to) throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO events VALUES (?, ?)")) {
+      for (int i = from; i <= to; i++) {
+        stmt.setInt(1, i);
+        stmt.setTimestamp(2, new Timestamp(i));
+        stmt.executeUpdate();
+      }
+    }
+  }
+
+  private static int countRows(String condition) throws SQLException {
+    String query = HighWatermark.addCondition(QUERY, condition).replace("$CONDITIONS", "(1 = 1)");
+    try (Statement stmt = conn.createStatement();
+         ResultSet resultSet = stmt.executeQuery(query)) {
+      int count = 0;
+      while (resultSet.next()) {
+        count++;
+      }
+      return count;
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.db.batch.source;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBInputFormat;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link QuantileSplitter}
+ */
+public class QuantileSplitterTest {
+  private static final String QUERY = "SELECT * FROM skewed WHERE $CONDITIONS";
+  private static final QuantileSplitter SPLITTER = new QuantileSplitter("HSQL DATABASE ENGINE", 1000);
+
+  private static Connection conn;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    Class.forName("org.hsqldb.jdbc.JDBCDriver");
+    conn = DriverManager.getConnection("jdbc:hsqldb:mem:splittertest", "SA", "");
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE skewed (ID INT, NAME VARCHAR(10), CONSTANT INT)");
+    }
+    // ids 1 to 90 followed by a big gap and ids 1000 to 1009, plus a row with a null id
+    try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO skewed VALUES (?, ?, 1)")) {
+      for (int i = 1; i <= 100; i++) {
+        int id = i <= 90 ? i : 910 + i;
+        stmt.setInt(1, id);
+        stmt.setString(2, String.format("n%04d", id));
+        stmt.executeUpdate();
+      }
+      stmt.setNull(1, Types.INTEGER);
+      stmt.setNull(2, Types.VARCHAR);
+      stmt.executeUpdate();
+    }
+    try (Statement stmt = conn.createStatement()) {
+      stmt.execute("CREATE TABLE large (ID INT)");
+    }
+    // 20000 rows, where half of the ids are 0 to 9999 and the other half are spread up to 10 million
+    try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO large VALUES (?)")) {
+      for (int i = 0; i < 20000; i++) {
+        stmt.setInt(1, i < 10000 ? i : i * 500);
+        stmt.addBatch();
+      }
+      stmt.executeBatch();
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    conn.close();
+  }
+
+  @Test
+  public void testSkewedNumbers() throws Exception {
+    List<InputSplit> splits = SPLITTER.getSplits(conn, QUERY, "ID", 4);
+    // four splits with a quarter of the values each, and one for the null value
+    Assert.assertEquals(5, splits.size());
+    Assert.assertEquals(ImmutableList.of(25, 25, 25, 25, 1), countRows(splits));
+  }
+
+  @Test
+  public void testStrings() throws Exception {
+    List<InputSplit> splits = SPLITTER.getSplits(conn, QUERY, "NAME", 5);
+    Assert.assertEquals(ImmutableList.of(20, 20, 20, 20, 20, 1), countRows(splits));
+  }
+
+  @Test
+  public void testDuplicateBoundaries() throws Exception {
+    List<InputSplit> splits = SPLITTER.getSplits(conn, QUERY, "CONSTANT", 4);
+    Assert.assertEquals(ImmutableList.of(0, 101), countRows(splits));
+  }
+
+  @Test
+  public void testSampledSplits() throws Exception {
+    // 4 splits with 100 sampled rows each would be 400 rows, but at least 10000 rows are sampled
+    QuantileSplitter splitter = new QuantileSplitter("HSQL DATABASE ENGINE", 1000, 100);
+    List<InputSplit> splits = splitter.getSplits(conn, "SELECT * FROM large WHERE $CONDITIONS", "ID", 4);
+    Assert.assertEquals(4, splits.size());
+    int total = 0;
+    for (int count : countRows(splits, "large")) {
+      // a sample of about half the rows puts each quantile well within 10% of 5000
+      Assert.assertTrue("Unbalanced split with " + count + " rows", Math.abs(count - 5000) < 500);
+      total += count;
+    }
+    Assert.assertEquals(20000, total);
+  }
+
+  @Test
+  public void testSamplePredicates() {
+    Assert.assertEquals("RAND() < 0.00001", new QuantileSplitter("MYSQL", 1000).getSamplePredicate(0.00001));
+    Assert.assertEquals("RANDOM() < 0.5", new QuantileSplitter("POSTGRESQL", 1000).getSamplePredicate(0.5));
+    Assert.assertEquals("ABS(CHECKSUM(NEWID())) % 1000000 < 250000",
+                        new QuantileSplitter("MICROSOFT SQL SERVER", 1000).getSamplePredicate(0.25));
+    Assert.assertNull(new QuantileSplitter("NETEZZA", 1000).getSamplePredicate(0.5));
+  }
+
+  private List<Integer> countRows(List<InputSplit> splits) throws SQLException {
+    return countRows(splits, "skewed");
+  }
+
+  private List<Integer> countRows(List<InputSplit> splits, String table) throws SQLException {
+    List<Integer> counts = new ArrayList<>();
+    for (InputSplit split : splits) {
+      DataDrivenDBInputFormat.DataDrivenDBInputSplit dbSplit = (DataDrivenDBInputFormat.DataDrivenDBInputSplit) split;
+      String query = String.format("SELECT COUNT(*) FROM %s WHERE ( %s ) AND ( %s )",
+                                   table, dbSplit.getLowerClause(), dbSplit.getUpperClause());
+      try (Statement stmt = conn.createStatement();
+           ResultSet resultSet = stmt.executeQuery(query)) {
+        resultSet.next();
+        counts.add(resultSet.getInt(1));
+      }
+    }
+    return counts;
+  }
+}
@@ -31,9 +31,11 @@ import java.util.Map;
  */
 public class MockRealtimeContext implements RealtimeContext {
   private final PluginProperties pluginProperties;
+  private final MockStageMetrics metrics;
 
   public MockRealtimeContext(Map<String, String> properties) {
     this.pluginProperties = PluginProperties.builder().addAll(properties).build();
+    this.metrics = new MockStageMetrics("singleStage");
   }
 
   public MockRealtimeContext() {
@@ -47,7 +49,11 @@ public class MockRealtimeContext implements RealtimeContext {
 
   @Override
   public StageMetrics getMetrics() {
-    return NoopMetrics.INSTANCE;
+    return metrics;
+  }
+
+  public MockStageMetrics getMockMetrics() {
+    return metrics;
   }
 
   @Override
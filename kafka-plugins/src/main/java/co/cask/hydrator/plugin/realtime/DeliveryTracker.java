@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.realtime;
+
+import co.cask.cdap.etl.api.StageMetrics;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks the records sent asynchronously by a {@link KafkaProducer} sink until they are acknowledged.
+ *
+ * At most a fixed number of records are in flight: {@link #beforeSend()} blocks while the limit is reached.
+ * {@link #awaitAll()} waits for every record sent so far and fails if any of them could not be delivered.
+ * The callbacks only update counters; the metrics are reported by the writing thread through
+ * {@link #reportMetrics(StageMetrics)}.
+ */
+final class DeliveryTracker {
+  static final String SUCCESS_METRIC = "kafka.async.success";
+  static final String ERROR_METRIC = "kafka.async.error";
+  static final String LATENCY_METRIC_PREFIX = "kafka.send.latency.";
+  static final String MAX_LATENCY_METRIC = "kafka.send.latency.max.ms";
+
+  // upper bounds in milliseconds of the latency buckets; a last bucket counts the latencies above all of them
+  static final long[] LATENCY_BUCKETS = { 5, 10, 50, 100, 500, 1000, 5000 };
+
+  private final int maxInFlight;
+  private final Semaphore inFlight;
+  private final AtomicReference<Exception> firstError = new AtomicReference<>();
+  private final AtomicInteger successes = new AtomicInteger();
+  private final AtomicInteger errors = new AtomicInteger();
+  private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+  private final AtomicLong maxLatency = new AtomicLong();
+
+  DeliveryTracker(int maxInFlight) {
+    this.maxInFlight = maxInFlight;
+    this.inFlight = new Semaphore(maxInFlight);
+  }
+
+  /**
+   * Waits until another record can be sent. The returned callback must be given to the send call; if the send
+   * call throws, {@link Callback#onCompletion} must be called with the exception.
+   */
+  Callback beforeSend() throws InterruptedException {
+    inFlight.acquire();
+    final long startNanos = System.nanoTime();
+    return new Callback() {
+      @Override
+      public void onCompletion(RecordMetadata metadata, Exception exception) {
+        try {
+          if (exception == null) {
+            successes.incrementAndGet();
+            recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+          } else {
+            errors.incrementAndGet();
+            firstError.compareAndSet(null, exception);
+          }
+        } finally {
+          inFlight.release();
+        }
+      }
+    };
+  }
+
+  /**
+   * Records the latency of a record that was acknowledged.
+   */
+  void recordLatency(long millis) {
+    int bucket = 0;
+    while (bucket < LATENCY_BUCKETS.length && millis > LATENCY_BUCKETS[bucket]) {
+      bucket++;
+    }
+    latencies.incrementAndGet(bucket);
+    long max = maxLatency.get();
+    while (millis > max && !maxLatency.compareAndSet(max, millis)) {
+      max = maxLatency.get();
+    }
+  }
+
+  /**
+   * Waits until every record sent so far has been acknowledged or has failed.
+   *
+   * @throws IOException if any of the records could not be delivered since the last call
+   */
+  void awaitAll() throws IOException, InterruptedException {
+    inFlight.acquire(maxInFlight);
+    inFlight.release(maxInFlight);
+    Exception error = firstError.getAndSet(null);
+    if (error != null) {
+      throw new IOException(String.format("Failed to send records to Kafka: %s", error.getMessage()), error);
+    }
+  }
+
+  /**
+   * Reports the number of records delivered and failed and the latency histogram since the last call.
+   */
+  void reportMetrics(StageMetrics metrics) {
+    int count = successes.getAndSet(0);
+    if (count > 0) {
+      metrics.count(SUCCESS_METRIC, count);
+    }
+    count = errors.getAndSet(0);
+    if (count > 0) {
+      metrics.count(ERROR_METRIC, count);
+    }
+    for (int i = 0; i <= LATENCY_BUCKETS.length; i++) {
+      count = (int) latencies.getAndSet(i, 0);
+      if (count > 0) {
+        metrics.count(getLatencyMetric(i), count);
+      }
+    }
+    metrics.gauge(MAX_LATENCY_METRIC, maxLatency.getAndSet(0));
+  }
+
+  /**
+   * Returns the name of the metric counting the latencies in the given bucket, such as 'kafka.send.latency.le.10ms'
+   * or 'kafka.send.latency.gt.5000ms' for the last one.
+   */
+  static String getLatencyMetric(int bucket) {
+    if (bucket < LATENCY_BUCKETS.length) {
+      return LATENCY_METRIC_PREFIX + "le." + LATENCY_BUCKETS[bucket] + "ms";
+    }
+    return LATENCY_METRIC_PREFIX + "gt." + LATENCY_BUCKETS[LATENCY_BUCKETS.length - 1] + "ms";
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.realtime;
+
+/**
+ * Adjusts the fetch size of a Kafka partition based on how long a poll cycle takes, from the start of one poll to
+ * the start of the next one, which includes processing the emitted records in the rest of the pipeline.
+ *
+ * While the cycles stay within the target latency, the fetch size of a partition is doubled whenever a fetch
+ * returned at least half of it, up to the maximum. When a cycle exceeds the target latency, the fetch size is
+ * halved, down to {@link #MIN_FETCH_SIZE}. A fetch that returns nothing although the partition has unread
+ * messages means that the next message does not fit, so the fetch size is doubled in that case as well.
+ */
+final class FetchSizeController {
+  static final int MIN_FETCH_SIZE = 64 * 1024;
+
+  private final long targetLatencyMillis;
+  private final int maxFetchSize;
+
+  FetchSizeController(long targetLatencyMillis, int maxFetchSize) {
+    this.targetLatencyMillis = targetLatencyMillis;
+    this.maxFetchSize = Math.max(MIN_FETCH_SIZE, maxFetchSize);
+  }
+
+  /**
+   * Returns the fetch size to use for the next fetch of a partition.
+   *
+   * @param fetchSize the fetch size of the last fetch
+   * @param bytesRead the number of bytes returned by the last fetch
+   * @param lag the number of unread messages in the partition at the time of the last fetch, or -1 if unknown
+   * @param cycleMillis the duration of the last poll cycle
+   */
+  int getNextFetchSize(int fetchSize, long bytesRead, long lag, long cycleMillis) {
+    if (bytesRead == 0 && lag > 0) {
+      return grow(fetchSize);
+    }
+    if (cycleMillis > targetLatencyMillis) {
+      return Math.max(MIN_FETCH_SIZE, fetchSize / 2);
+    }
+    if (bytesRead >= fetchSize / 2) {
+      return grow(fetchSize);
+    }
+    return fetchSize;
+  }
+
+  private int grow(int fetchSize) {
+    return (int) Math.min((long) maxFetchSize, 2L * fetchSize);
+  }
+}
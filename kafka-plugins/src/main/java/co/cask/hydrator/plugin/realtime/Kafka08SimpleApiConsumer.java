@@ -150,6 +150,8 @@ public class Kafka08SimpleApiConsumer extends KafkaSimpleApiConsumer<String, Byt
       return Iterators.emptyIterator();
     }
 
+    consumerInfo.setLag(response.highWatermark(topic, partition) - readOffset);
+
     // Returns an Iterator of message
     final long fetchReadOffset = readOffset;
     final Iterator<MessageAndOffset> messages = response.messageSet(topic, partition).iterator();
@@ -25,9 +25,10 @@ import org.apache.twill.kafka.client.TopicPartition;
  */
 public final class KafkaConsumerInfo<OFFSET> {
   private final TopicPartition topicPartition;
-  private final int fetchSize;
+  private int fetchSize;
   private OFFSET readOffset;
   private OFFSET pendingReadOffset;
+  private long lag = -1;
 
   public KafkaConsumerInfo(TopicPartition topicPartition, int fetchSize, OFFSET readOffset) {
     this.topicPartition = topicPartition;
@@ -43,6 +44,21 @@ public final class KafkaConsumerInfo<OFFSET> {
     return fetchSize;
   }
 
+  void setFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * Returns the number of unread messages in the partition at the time of the last fetch, or -1 if unknown.
+   */
+  public long getLag() {
+    return lag;
+  }
+
+  void setLag(long lag) {
+    this.lag = lag;
+  }
+
   public OFFSET getReadOffset() {
     return pendingReadOffset != null ? pendingReadOffset : readOffset;
   }
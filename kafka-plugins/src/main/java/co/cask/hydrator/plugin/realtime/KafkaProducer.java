@@ -20,34 +20,31 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.cdap.api.data.format.StructuredRecord;
-import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.etl.api.PipelineConfigurer;
 import co.cask.cdap.etl.api.realtime.DataWriter;
 import co.cask.cdap.etl.api.realtime.RealtimeContext;
-import co.cask.cdap.format.StructuredRecordStringConverter;
 import co.cask.hydrator.common.ReferencePluginConfig;
 import co.cask.hydrator.common.ReferenceRealtimeSink;
-import com.google.common.collect.Lists;
 import kafka.producer.ProducerConfig;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
 import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.apache.kafka.clients.producer.RecordMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.StringWriter;
-import java.util.List;
 import java.util.Properties;
+import javax.annotation.Nullable;
 
 /**
  * Implementation of Kafka Realtime Producer Hydrator plugin. 
  * 
  * The producer has the capability to transform a {@link StructuredRecord}
- * into a CSV or JSON record and push it on to one or more Kafka topics. 
+ * into a CSV, JSON or Avro record and push it on to one or more Kafka topics. 
  * Producer can use one of the fields in the input records to partition the 
  * data. It can also be configured to operate in sync or async mode.  
+ *
+ * In async mode, the records of a batch are sent without waiting for each of them, with at most a configurable
+ * number of records in flight. The write of a batch only returns once every record has been acknowledged,
+ * and fails if any of them could not be delivered, so that the batch is retried.
  */
 @Plugin(type = "realtimesink")
 @Name("KafkaProducer")
@@ -63,7 +60,11 @@ public class KafkaProducer extends ReferenceRealtimeSink<StructuredRecord> {
   private static final String KEY_SERIALIZER = "key.serializer";
   private static final String VAL_SERIALIZER = "value.serializer";
   private static final String CLIENT_ID = "client.id";
-  private static final String ACKS_REQUIRED = "request.required.acks";
+  private static final String ACKS_REQUIRED = "acks";
+  private static final String LINGER_MS = "linger.ms";
+  private static final String BATCH_SIZE = "batch.size";
+  private static final String MAX_IN_FLIGHT = "max.in.flight";
+  private static final int DEFAULT_MAX_IN_FLIGHT = 1000;
 
   // Kafka properties
   private final Properties props = new Properties();
@@ -72,13 +73,19 @@ public class KafkaProducer extends ReferenceRealtimeSink<StructuredRecord> {
   private ProducerConfig kafkaConfig;
   
   // Kafka producer handle
-  private org.apache.kafka.clients.producer.KafkaProducer<String, String> producer;
+  private org.apache.kafka.clients.producer.KafkaProducer<String, byte[]> producer;
+
+  // Serializer for the message bodies, which reuses its buffers across records
+  private RecordSerializer serializer;
   
   // Plugin context
   private RealtimeContext context;
   
   // If Async mode
   private boolean isAsync = false;
+
+  // Tracks the records sent until they are acknowledged
+  private DeliveryTracker deliveryTracker;
   
   // List of Kafka topics.
   private String[] topics;
@@ -98,7 +105,20 @@ public class KafkaProducer extends ReferenceRealtimeSink<StructuredRecord> {
       throw new IllegalArgumentException("Async flag has to be either TRUE or FALSE.");
     }
     
-    // Validations to be added.
+    if (producerConfig.maxInFlight != null && producerConfig.maxInFlight < 1) {
+      throw new IllegalArgumentException(String.format("Invalid value %d for '%s'. It must be at least 1.",
+                                                       producerConfig.maxInFlight, MAX_IN_FLIGHT));
+    }
+    if (producerConfig.lingerMs != null && producerConfig.lingerMs < 0) {
+      throw new IllegalArgumentException(String.format("Invalid value %d for '%s'. It must not be negative.",
+                                                       producerConfig.lingerMs, LINGER_MS));
+    }
+    if (producerConfig.batchSize != null && producerConfig.batchSize < 0) {
+      throw new IllegalArgumentException(String.format("Invalid value %d for '%s'. It must not be negative.",
+                                                       producerConfig.batchSize, BATCH_SIZE));
+    }
+    // fails for an unknown format
+    RecordSerializer.create(producerConfig.format);
   }
 
   @Override
@@ -112,83 +132,37 @@ public class KafkaProducer extends ReferenceRealtimeSink<StructuredRecord> {
     // Configure the properties for kafka.
     props.put(BROKER_LIST, producerConfig.brokers);
     props.put(KEY_SERIALIZER, "org.apache.kafka.common.serialization.StringSerializer");
-    props.put(VAL_SERIALIZER, "org.apache.kafka.common.serialization.StringSerializer");
+    props.put(VAL_SERIALIZER, "org.apache.kafka.common.serialization.ByteArraySerializer");
     props.put(CLIENT_ID, "kafka-producer-" + context.getInstanceId());
     if (producerConfig.async.equalsIgnoreCase("TRUE")) {
       props.put(ACKS_REQUIRED, "1");
       isAsync = true;
     }
+    if (producerConfig.lingerMs != null) {
+      props.put(LINGER_MS, producerConfig.lingerMs.toString());
+    }
+    if (producerConfig.batchSize != null) {
+      props.put(BATCH_SIZE, producerConfig.batchSize.toString());
+    }
+    deliveryTracker = new DeliveryTracker(producerConfig.maxInFlight == null ?
+                                            DEFAULT_MAX_IN_FLIGHT : producerConfig.maxInFlight);
     
     //config = new ProducerConfig(props);
-    producer = new org.apache.kafka.clients.producer.KafkaProducer<String, String>(props);
+    producer = new org.apache.kafka.clients.producer.KafkaProducer<String, byte[]>(props);
+    serializer = RecordSerializer.create(producerConfig.format);
     
   }
   
   @Override
   public int write(Iterable<StructuredRecord> objects, final DataWriter dataWriter) throws Exception {
     int count = 0;
-    List<Schema.Field> fields;
-    
+
     // For each object
     for (StructuredRecord object : objects) {
-      fields = object.getSchema().getFields();
-
       // Depending on the configuration create a body that needs to be 
       // built and pushed to Kafka. 
-      String body = "";
-      if (producerConfig.format.equalsIgnoreCase("JSON")) {
-        body = StructuredRecordStringConverter.toJsonString(object);
-      } else {
-        // Extract all values from the structured record
-        List<Object> objs = Lists.newArrayList();
-        for (Schema.Field field : fields) {
-          objs.add(object.get(field.getName()));
-        }
-
-        StringWriter writer = new StringWriter();
-        CSVPrinter printer = null;
-        
-        try {
-          CSVFormat csvFileFormat;
-          switch(producerConfig.format.toLowerCase()) {
-            case "csv":
-              csvFileFormat = CSVFormat.Predefined.Default.getFormat();
-              printer = new CSVPrinter(writer, csvFileFormat);
-              break;
-
-            case "excel":
-              csvFileFormat = CSVFormat.Predefined.Excel.getFormat();
-              printer = new CSVPrinter(writer, csvFileFormat);
-              break;
-
-            case "mysql":
-              csvFileFormat = CSVFormat.Predefined.MySQL.getFormat();
-              printer = new CSVPrinter(writer, csvFileFormat);
-              break;
-
-            case "tdf":
-              csvFileFormat = CSVFormat.Predefined.TDF.getFormat();
-              printer = new CSVPrinter(writer, csvFileFormat);
-              break;
+      byte[] body = serializer.serialize(object);
 
-            case "rfc4180":
-              csvFileFormat = CSVFormat.Predefined.TDF.getFormat();
-              printer = new CSVPrinter(writer, csvFileFormat);
-              break;
-          }
-          
-          if (printer != null) {
-            printer.printRecord(objs);
-            body = writer.toString();
-          }      
-          
-        } finally {
-          if (printer != null) {
-            printer.close();
-          }
-        }
-      }
-      
       // Message key.
       String key = "no_key";
       if (producerConfig.key != null) {
@@ -208,25 +182,29 @@ public class KafkaProducer extends ReferenceRealtimeSink<StructuredRecord> {
       for (String topic : topics) {
         partitionKey = partitionKey % producer.partitionsFor(topic).size();
         if (isAsync) {
-          producer.send(new ProducerRecord<String, String>(topic, partitionKey, key, body), new Callback() {
-            @Override
-            public void onCompletion(RecordMetadata meta, Exception e) {
-              if (meta != null) {
-                context.getMetrics().count("kafka.async.success", 1);
-              }
-              
-              if (e != null) {
-                context.getMetrics().count("kafka.async.error", 1);  
-              }
-            }
-          });
+          // Blocks while too many records are in flight
+          Callback callback = deliveryTracker.beforeSend();
+          try {
+            producer.send(new ProducerRecord<String, byte[]>(topic, partitionKey, key, body), callback);
+          } catch (Exception e) {
+            callback.onCompletion(null, e);
+          }
         } else {
           // Waits infinitely to push the message through. 
-          producer.send(new ProducerRecord<String, String>(topic, partitionKey, key, body)).get();
+          long start = System.currentTimeMillis();
+          producer.send(new ProducerRecord<String, byte[]>(topic, partitionKey, key, body)).get();
+          deliveryTracker.recordLatency(System.currentTimeMillis() - start);
         }
         context.getMetrics().count("kafka.producer.count", 1);
       }
     }
+
+    try {
+      // Only return once the whole batch is acknowledged, so that a failed batch is retried.
+      deliveryTracker.awaitAll();
+    } finally {
+      deliveryTracker.reportMetrics(context.getMetrics());
+    }
     return count;
   }
   
@@ -268,12 +246,37 @@ public class KafkaProducer extends ReferenceRealtimeSink<StructuredRecord> {
     @Description("List of topics to which message needs to be published")
     private String topics;
     
+    @Name(MAX_IN_FLIGHT)
+    @Description("The maximum number of records that are sent but not yet acknowledged in async mode. " +
+      "Sending blocks while this limit is reached. Defaults to 1000.")
+    @Nullable
+    private Integer maxInFlight;
+
+    @Name(LINGER_MS)
+    @Description("The time in milliseconds that the producer waits for more records to batch together " +
+      "before sending the records of a partition. Defaults to the Kafka producer default of 0.")
+    @Nullable
+    private Integer lingerMs;
+
+    @Name(BATCH_SIZE)
+    @Description("The maximum size in bytes of a batch of records sent to a partition at once. " +
+      "Defaults to the Kafka producer default of 16384.")
+    @Nullable
+    private Integer batchSize;
+
     @Name("format")
-    @Description("Format a structured record should be converted to")
+    @Description("Format a structured record should be converted to. One of 'JSON', 'AVRO' (Avro binary encoding " +
+      "of the record schema, without any header), 'CSV', 'EXCEL', 'MYSQL', 'TDF' or 'RFC4180'.")
     private String format;
     
     public Config(String brokers, String async, String partitionField, String key, String topics,
                   String format) {
+      this(brokers, async, partitionField, key, topics, format, null, null, null);
+    }
+
+    public Config(String brokers, String async, String partitionField, String key, String topics,
+                  String format, @Nullable Integer maxInFlight, @Nullable Integer lingerMs,
+                  @Nullable Integer batchSize) {
       super(String.format("Kafka_%s", topics));
       this.brokers = brokers;
       this.async = async;
@@ -281,6 +284,9 @@ public class KafkaProducer extends ReferenceRealtimeSink<StructuredRecord> {
       this.key = key;
       this.topics = topics;
       this.format = format;
+      this.maxInFlight = maxInFlight;
+      this.lingerMs = lingerMs;
+      this.batchSize = batchSize;
     }
   }
 }
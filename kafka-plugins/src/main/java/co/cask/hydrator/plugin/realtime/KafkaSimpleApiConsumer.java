@@ -19,15 +19,18 @@ package co.cask.hydrator.plugin.realtime;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.etl.api.Emitter;
+import co.cask.cdap.etl.api.StageMetrics;
 import co.cask.cdap.etl.api.realtime.RealtimeContext;
 import co.cask.cdap.etl.api.realtime.SourceState;
 import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.twill.kafka.client.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,8 +39,14 @@ import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 
 /**
@@ -56,6 +65,10 @@ public abstract class KafkaSimpleApiConsumer<KEY, PAYLOAD, OFFSET> {
   private static final Logger LOG = LoggerFactory.getLogger(KafkaSimpleApiConsumer.class);
 
   protected static final int SO_TIMEOUT = 5 * 1000;           // 5 seconds.
+  private static final int MAX_FETCH_THREADS = 16;
+
+  static final String BYTES_READ_METRIC = "bytes.read";
+  static final String BYTES_PER_SEC_METRIC = "bytes.per.sec";
 
   protected final KafkaSource kafkaSource;
 
@@ -76,6 +89,11 @@ public abstract class KafkaSimpleApiConsumer<KEY, PAYLOAD, OFFSET> {
   private DefaultKafkaConfigurer kafkaConfigurer;
 
   private volatile Map<TopicPartition, KafkaConsumerInfo<OFFSET>> consumerInfos;
+  private final Map<TopicPartition, Future<Iterator<KafkaMessage<OFFSET>>>> pendingFetches = new HashMap<>();
+  private ExecutorService fetchExecutor;
+  // null if the fetch sizes are fixed
+  private FetchSizeController fetchSizeController;
+  private long lastPollMillis = -1;
 
   protected KafkaSimpleApiConsumer(KafkaSource kafkaSource) {
     this.kafkaSource = kafkaSource;
@@ -113,6 +131,12 @@ public abstract class KafkaSimpleApiConsumer<KEY, PAYLOAD, OFFSET> {
     }
 
     kafkaConfig = new KafkaConfig(kafkaConfigurer.getZookeeper(), kafkaConfigurer.getBrokers());
+
+    KafkaSource.KafkaPluginConfig pluginConfig = kafkaSource.getConfig();
+    if (pluginConfig != null && pluginConfig.getTargetLatencyMs() != null) {
+      fetchSizeController = new FetchSizeController(pluginConfig.getTargetLatencyMs(),
+                                                    pluginConfig.getMaxFetchSize());
+    }
   }
 
   /**
@@ -150,20 +174,51 @@ public abstract class KafkaSimpleApiConsumer<KEY, PAYLOAD, OFFSET> {
   /**
    * Will be called by external source to start poll the Kafka messages one at the time.
    *
+   * The partitions are fetched concurrently, so that a slow or empty partition does not hold up the others.
+   * Once the messages of a poll are emitted and their offsets saved, the next fetch of every partition is started,
+   * so that it runs while the emitted records are being processed.
+   *
+   * If a target latency is configured, the fetch size of every partition is adjusted before the next fetch,
+   * based on how long it took since the previous poll, so that slow downstream stages lead to smaller fetches
+   * instead of large batches building up in memory.
+   *
    * @param emitter instance of {@link Emitter} to emit the messages.
    */
   public void pollMessages(Emitter<StructuredRecord> emitter) throws Exception {
     // Configure consumers late to read from SourceState
     if (consumerInfos == null) {
-        consumerInfos = createConsumerInfos(kafkaConfigurer.getTopicPartitions());
+      consumerInfos = createConsumerInfos(kafkaConfigurer.getTopicPartitions());
+      int threads = Math.max(1, Math.min(consumerInfos.size(), MAX_FETCH_THREADS));
+      fetchExecutor = Executors.newFixedThreadPool(
+        threads, new ThreadFactoryBuilder().setDaemon(true).setNameFormat(getName() + "-fetch-%d").build());
     }
 
+    // Fetch the partitions that have no fetch in flight. A prefetch that came back empty is issued again,
+    // since new messages may have arrived since then.
+    for (KafkaConsumerInfo<OFFSET> info : consumerInfos.values()) {
+      Future<Iterator<KafkaMessage<OFFSET>>> pending = pendingFetches.get(info.getTopicPartition());
+      if (pending == null || isDoneAndEmpty(pending)) {
+        fetch(info);
+      }
+    }
+
+    // The time between two polls covers the processing of the records emitted by the previous one
+    long pollMillis = System.currentTimeMillis();
+    long cycleMillis = lastPollMillis < 0 ? 0 : pollMillis - lastPollMillis;
+    lastPollMillis = pollMillis;
+
     boolean infosUpdated = false;
+    long totalBytes = 0;
     // Poll for messages from Kafka
     for (KafkaConsumerInfo<OFFSET> info : consumerInfos.values()) {
-      Iterator<KafkaMessage<OFFSET>> iterator = readMessages(info);
+      Iterator<KafkaMessage<OFFSET>> iterator = getFetched(info);
+      long bytes = 0;
       while (iterator.hasNext()) {
         KafkaMessage<OFFSET> message = iterator.next();
+        bytes += message.getPayload().remaining();
+        if (message.getKey() != null) {
+          bytes += message.getKey().remaining();
+        }
         processMessage(message, emitter);
 
         // Update the read offset
@@ -172,12 +227,82 @@ public abstract class KafkaSimpleApiConsumer<KEY, PAYLOAD, OFFSET> {
       if (info.hasPendingChanges()) {
         infosUpdated = true;
       }
+      totalBytes += bytes;
+      adjustFetchSize(info, bytes, cycleMillis);
     }
 
     // Save new offset if there is at least one message processed, or even if the offset simply changed.
     if (infosUpdated) {
       saveReadOffsets(Maps.transformValues(consumerInfos, consumerToOffset));
     }
+
+    StageMetrics metrics = getContext().getMetrics();
+    if (totalBytes > 0) {
+      metrics.count(BYTES_READ_METRIC, (int) Math.min(totalBytes, Integer.MAX_VALUE));
+    }
+    if (cycleMillis > 0) {
+      metrics.gauge(BYTES_PER_SEC_METRIC, totalBytes * 1000 / cycleMillis);
+    }
+
+    for (KafkaConsumerInfo<OFFSET> info : consumerInfos.values()) {
+      fetch(info);
+    }
+  }
+
+  /**
+   * Updates the fetch size of the given partition if adaptive fetch sizing is enabled, and reports the lag and
+   * fetch size of the partition.
+   */
+  private void adjustFetchSize(KafkaConsumerInfo<OFFSET> info, long bytesRead, long cycleMillis) {
+    if (fetchSizeController != null) {
+      info.setFetchSize(fetchSizeController.getNextFetchSize(info.getFetchSize(), bytesRead,
+                                                             info.getLag(), cycleMillis));
+    }
+    StageMetrics metrics = getContext().getMetrics();
+    // the topic is part of the name, since partitions of different topics have the same numbers
+    TopicPartition topicPartition = info.getTopicPartition();
+    String prefix = topicPartition.getTopic() + ".partition." + topicPartition.getPartition() + ".";
+    metrics.gauge(prefix + "fetch.size", info.getFetchSize());
+    if (info.getLag() >= 0) {
+      metrics.gauge(prefix + "lag", info.getLag());
+    }
+  }
+
+  /**
+   * Starts reading the messages of the given partition from its current read offset in the fetch thread pool.
+   */
+  private void fetch(final KafkaConsumerInfo<OFFSET> info) {
+    pendingFetches.put(info.getTopicPartition(), fetchExecutor.submit(new Callable<Iterator<KafkaMessage<OFFSET>>>() {
+      @Override
+      public Iterator<KafkaMessage<OFFSET>> call() throws Exception {
+        return readMessages(info);
+      }
+    }));
+  }
+
+  /**
+   * Waits for the fetch of the given partition to complete and returns its messages.
+   */
+  private Iterator<KafkaMessage<OFFSET>> getFetched(KafkaConsumerInfo<OFFSET> info) throws Exception {
+    Future<Iterator<KafkaMessage<OFFSET>>> future = pendingFetches.remove(info.getTopicPartition());
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private boolean isDoneAndEmpty(Future<Iterator<KafkaMessage<OFFSET>>> future) throws InterruptedException {
+    if (!future.isDone()) {
+      return false;
+    }
+    try {
+      return !future.get().hasNext();
+    } catch (ExecutionException e) {
+      // keep it, so that the failure is reported by the poll
+      return false;
+    }
   }
 
   /**
@@ -211,7 +336,9 @@ public abstract class KafkaSimpleApiConsumer<KEY, PAYLOAD, OFFSET> {
    * Should be called for clean up.
    */
   public void destroy() {
-    // no-op
+    if (fetchExecutor != null) {
+      fetchExecutor.shutdownNow();
+    }
   }
 
   /**
@@ -27,6 +27,7 @@ import co.cask.cdap.api.flow.flowlet.StreamEvent;
 import co.cask.cdap.api.plugin.PluginConfig;
 import co.cask.cdap.etl.api.Emitter;
 import co.cask.cdap.etl.api.PipelineConfigurer;
+import co.cask.cdap.etl.api.StageMetrics;
 import co.cask.cdap.etl.api.realtime.RealtimeContext;
 import co.cask.cdap.etl.api.realtime.RealtimeSource;
 import co.cask.cdap.etl.api.realtime.SourceState;
@@ -68,10 +69,14 @@ public class KafkaSource extends ReferenceRealtimeSource<StructuredRecord> {
   public static final String KAFKA_ZOOKEEPER = "kafka.zookeeper";
   public static final String KAFKA_BROKERS = "kafka.brokers";
   public static final String KAFKA_INITIAL_OFFSET = "kafka.initial.offset";
+  public static final String KAFKA_TARGET_LATENCY = "kafka.target.latency.ms";
+  public static final String KAFKA_MAX_FETCH_SIZE = "kafka.max.fetch.size";
   public static final String SCHEMA = "schema";
   public static final String FORMAT = "format";
+  public static final String FORMAT_FALLBACK_METRIC = "format.fallback";
 
   private static final String FORMAT_SETTING_PREFIX = "format.setting.";
+  private static final int DEFAULT_MAX_FETCH_SIZE = 8 * 1024 * 1024;
 
   private static final Schema DEFAULT_SCHEMA = Schema.recordOf("Kafka Message",
                                                                Schema.Field.of(MESSAGE, Schema.of(Schema.Type.BYTES)),
@@ -79,6 +84,8 @@ public class KafkaSource extends ReferenceRealtimeSource<StructuredRecord> {
                                                                  Schema.of(Schema.Type.STRING))));
   private KafkaSimpleApiConsumer kafkaConsumer;
   private KafkaPluginConfig config;
+  private RecordFormat<StreamEvent, StructuredRecord> format;
+  private StageMetrics metrics;
 
   private boolean logException;
 
@@ -94,6 +101,15 @@ public class KafkaSource extends ReferenceRealtimeSource<StructuredRecord> {
   @Override
   public void configurePipeline(PipelineConfigurer pipelineConfigurer) {
     super.configurePipeline(pipelineConfigurer);
+    if (config.targetLatencyMs != null && config.targetLatencyMs <= 0) {
+      throw new IllegalArgumentException(String.format("Invalid value %d for '%s'. It must be positive.",
+                                                       config.targetLatencyMs, KAFKA_TARGET_LATENCY));
+    }
+    if (config.maxFetchSize != null && config.maxFetchSize < FetchSizeController.MIN_FETCH_SIZE) {
+      throw new IllegalArgumentException(String.format("Invalid value %d for '%s'. It must be at least %d.",
+                                                       config.maxFetchSize, KAFKA_MAX_FETCH_SIZE,
+                                                       FetchSizeController.MIN_FETCH_SIZE));
+    }
     // check the schema if there is one
     if (!Strings.isNullOrEmpty(config.schema)) {
       config.parseSchema();
@@ -113,10 +129,10 @@ public class KafkaSource extends ReferenceRealtimeSource<StructuredRecord> {
 
     kafkaConsumer = new Kafka08SimpleApiConsumer(this);
     kafkaConsumer.initialize(context);
+    metrics = context.getMetrics();
+    // created once, since parsing the schema and initializing the format is expensive compared to reading a message
     if (!Strings.isNullOrEmpty(config.format)) {
-      FormatSpecification spec = config.getFormatSpec();
-      RecordFormat<ByteBuffer, StructuredRecord> format = RecordFormats.createInitializedFormat(spec);
-      format.initialize(spec);
+      format = RecordFormats.createInitializedFormat(config.getFormatSpec());
     }
     logException = true;
   }
@@ -143,23 +159,32 @@ public class KafkaSource extends ReferenceRealtimeSource<StructuredRecord> {
     return new SourceState(kafkaConsumer.getSavedState());
   }
 
+  @Override
+  public void destroy() {
+    super.destroy();
+    if (kafkaConsumer != null) {
+      kafkaConsumer.destroy();
+    }
+  }
+
   /**
    * Convert {@code Apache Kafka} ByteBuffer from message into CDAP {@link StructuredRecord} instance.
+   * If the payload cannot be read with the configured format, the {@link #FORMAT_FALLBACK_METRIC} is incremented
+   * and a record with the default schema is returned instead.
    * @param key the String key of the Kafka message
    * @param payload the ByteBuffer of the Kafka message.
    * @return instance of {@link StructuredRecord} representing the message using the appropriate format.
    */
   public StructuredRecord byteBufferToStructuredRecord(@Nullable String key, ByteBuffer payload) {
-    FormatSpecification spec = config.getFormatSpec();
-    if (Strings.isNullOrEmpty(config.format)) {
+    if (format == null) {
       return byteBufferToSchemalessByteRecord(key, payload);
     }
     try {
-      RecordFormat<StreamEvent, StructuredRecord> format = RecordFormats.createInitializedFormat(spec);
-      StreamEvent toStream = new StreamEvent(payload);
-      return format.read(toStream);
+      // read a duplicate, so that the whole payload is still available if the format fails half way
+      return format.read(new StreamEvent(payload.duplicate()));
     } catch (Exception e) {
-      LOG.debug("Could not parse Kafka payload into schema. Using default structured record instead.");
+      metrics.count(FORMAT_FALLBACK_METRIC, 1);
+      LOG.debug("Could not parse Kafka payload into schema. Using default structured record instead.", e);
       return byteBufferToSchemalessByteRecord(key, payload);
     }
   }
@@ -228,8 +253,28 @@ public class KafkaSource extends ReferenceRealtimeSource<StructuredRecord> {
     @Nullable
     private final String format;
 
+    @Name(KAFKA_TARGET_LATENCY)
+    @Description("Optional target duration of a poll in milliseconds, including the processing of the polled records " +
+      "by the rest of the pipeline. If set, the fetch size of each partition is adjusted to keep polls within " +
+      "the target: it grows while the pipeline keeps up and shrinks when a poll takes longer than the target. " +
+      "If not set, each partition is always fetched with a fetch size of 1 MB.")
+    @Nullable
+    private final Long targetLatencyMs;
+
+    @Name(KAFKA_MAX_FETCH_SIZE)
+    @Description("The maximum number of bytes fetched from a partition at once when the fetch size is adjusted " +
+      "to the target latency. Defaults to 8 MB.")
+    @Nullable
+    private final Integer maxFetchSize;
+
     public KafkaPluginConfig(String zkConnect, String brokers, Integer partitions, String topic,
                              Long defaultOffset, @Nullable String format, @Nullable String schema) {
+      this(zkConnect, brokers, partitions, topic, defaultOffset, format, schema, null, null);
+    }
+
+    public KafkaPluginConfig(String zkConnect, String brokers, Integer partitions, String topic,
+                             Long defaultOffset, @Nullable String format, @Nullable String schema,
+                             @Nullable Long targetLatencyMs, @Nullable Integer maxFetchSize) {
       super(String.format("Kafka_%s", topic));
       this.zkConnect = zkConnect;
       this.kafkaBrokers = brokers;
@@ -238,6 +283,8 @@ public class KafkaSource extends ReferenceRealtimeSource<StructuredRecord> {
       this.defaultOffset = defaultOffset;
       this.schema = schema;
       this.format = format;
+      this.targetLatencyMs = targetLatencyMs;
+      this.maxFetchSize = maxFetchSize;
     }
 
     // Accessors
@@ -265,6 +312,15 @@ public class KafkaSource extends ReferenceRealtimeSource<StructuredRecord> {
       return defaultOffset;
     }
 
+    @Nullable
+    public Long getTargetLatencyMs() {
+      return targetLatencyMs;
+    }
+
+    public int getMaxFetchSize() {
+      return maxFetchSize == null ? DEFAULT_MAX_FETCH_SIZE : maxFetchSize;
+    }
+
     @Nullable
     private FormatSpecification getFormatSpec() {
       FormatSpecification formatSpec = null;
@@ -0,0 +1,332 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.realtime;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.format.StructuredRecordStringConverter;
+import com.google.common.base.Charsets;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes {@link StructuredRecord StructuredRecords} into the bytes of a Kafka message.
+ *
+ * A serializer writes every record into the same output buffer, and only allocates the resulting byte array,
+ * which is handed to the Kafka producer. A serializer is therefore not thread safe; each {@link KafkaProducer}
+ * sink instance has its own, which is only used by the thread calling its write method.
+ */
+abstract class RecordSerializer {
+
+  // Buffers that grew beyond this size while serializing a large record are not kept around.
+  private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+  private ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+
+  /**
+   * Creates a serializer for the given format, which is one of 'json', 'avro', 'csv', 'excel', 'mysql', 'tdf'
+   * or 'rfc4180', regardless of case.
+   *
+   * @throws IllegalArgumentException if the format is not one of the supported formats
+   */
+  static RecordSerializer create(String format) {
+    switch (format.toLowerCase()) {
+      case "json":
+        return new JsonSerializer();
+      case "avro":
+        return new AvroSerializer();
+      case "csv":
+        return new CsvSerializer(CSVFormat.Predefined.Default.getFormat());
+      case "excel":
+        return new CsvSerializer(CSVFormat.Predefined.Excel.getFormat());
+      case "mysql":
+        return new CsvSerializer(CSVFormat.Predefined.MySQL.getFormat());
+      case "tdf":
+        return new CsvSerializer(CSVFormat.Predefined.TDF.getFormat());
+      case "rfc4180":
+        return new CsvSerializer(CSVFormat.Predefined.RFC4180.getFormat());
+      default:
+        throw new IllegalArgumentException(String.format(
+          "Invalid format '%s'. It must be one of 'JSON', 'AVRO', 'CSV', 'EXCEL', 'MYSQL', 'TDF' or 'RFC4180'.",
+          format));
+    }
+  }
+
+  /**
+   * Returns the serialized bytes of the given record.
+   */
+  byte[] serialize(StructuredRecord record) throws IOException {
+    try {
+      write(record, out);
+      return out.toByteArray();
+    } finally {
+      if (out.size() > MAX_RETAINED_BUFFER_SIZE) {
+        out = new ByteArrayOutputStream(1024);
+        reset(out);
+      } else {
+        out.reset();
+      }
+    }
+  }
+
+  /**
+   * Writes the given record to the output buffer, which is the one given to the last call to {@link #reset}.
+   */
+  protected abstract void write(StructuredRecord record, ByteArrayOutputStream out) throws IOException;
+
+  /**
+   * Called when the output buffer is replaced, so that writers on the buffer can be recreated.
+   */
+  protected void reset(ByteArrayOutputStream out) {
+    // no-op by default
+  }
+
+  /**
+   * Writes records as delimited text, with the fields in the order of the record schema.
+   */
+  private static final class CsvSerializer extends RecordSerializer {
+    private final CSVFormat format;
+    private CSVPrinter printer;
+    private Schema schema;
+    private String[] fieldNames;
+    private Object[] values;
+
+    private CsvSerializer(CSVFormat format) {
+      this.format = format;
+    }
+
+    @Override
+    protected void write(StructuredRecord record, ByteArrayOutputStream out) throws IOException {
+      if (printer == null) {
+        reset(out);
+      }
+      // the field order is only resolved again when the schema changes, which usually never happens
+      if (!record.getSchema().equals(schema)) {
+        schema = record.getSchema();
+        List<Schema.Field> fields = schema.getFields();
+        fieldNames = new String[fields.size()];
+        for (int i = 0; i < fieldNames.length; i++) {
+          fieldNames[i] = fields.get(i).getName();
+        }
+        values = new Object[fieldNames.length];
+      }
+      for (int i = 0; i < fieldNames.length; i++) {
+        values[i] = record.get(fieldNames[i]);
+      }
+      printer.printRecord(values);
+      printer.flush();
+    }
+
+    @Override
+    protected void reset(ByteArrayOutputStream out) {
+      try {
+        printer = new CSVPrinter(new OutputStreamWriter(out, Charsets.UTF_8), format);
+      } catch (IOException e) {
+        // cannot happen, since there is no header to print
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  /**
+   * Writes records as JSON text.
+   */
+  private static final class JsonSerializer extends RecordSerializer {
+    private Writer writer;
+
+    @Override
+    protected void write(StructuredRecord record, ByteArrayOutputStream out) throws IOException {
+      if (writer == null) {
+        reset(out);
+      }
+      writer.write(StructuredRecordStringConverter.toJsonString(record));
+      writer.flush();
+    }
+
+    @Override
+    protected void reset(ByteArrayOutputStream out) {
+      writer = new OutputStreamWriter(out, Charsets.UTF_8);
+    }
+  }
+
+  /**
+   * Writes records in the Avro binary encoding of the record schema, without any header.
+   */
+  private static final class AvroSerializer extends RecordSerializer {
+    private BinaryEncoder encoder;
+
+    @Override
+    protected void write(StructuredRecord record, ByteArrayOutputStream out) throws IOException {
+      if (encoder == null) {
+        reset(out);
+      }
+      writeRecord(record.getSchema(), record);
+    }
+
+    @Override
+    protected void reset(ByteArrayOutputStream out) {
+      encoder = EncoderFactory.get().directBinaryEncoder(out, encoder);
+    }
+
+    private void writeRecord(Schema schema, StructuredRecord record) throws IOException {
+      for (Schema.Field field : schema.getFields()) {
+        writeValue(field.getSchema(), record.get(field.getName()), field.getName());
+      }
+    }
+
+    private void writeValue(Schema schema, Object value, String name) throws IOException {
+      if (value == null && schema.getType() != Schema.Type.NULL && schema.getType() != Schema.Type.UNION) {
+        throw new IllegalArgumentException(String.format("Field '%s' is not nullable but has a null value.", name));
+      }
+      switch (schema.getType()) {
+        case NULL:
+          encoder.writeNull();
+          break;
+        case BOOLEAN:
+          encoder.writeBoolean((Boolean) value);
+          break;
+        case INT:
+          encoder.writeInt(((Number) value).intValue());
+          break;
+        case LONG:
+          encoder.writeLong(((Number) value).longValue());
+          break;
+        case FLOAT:
+          encoder.writeFloat(((Number) value).floatValue());
+          break;
+        case DOUBLE:
+          encoder.writeDouble(((Number) value).doubleValue());
+          break;
+        case BYTES:
+          if (value instanceof ByteBuffer) {
+            encoder.writeBytes((ByteBuffer) value);
+          } else {
+            encoder.writeBytes((byte[]) value);
+          }
+          break;
+        case STRING:
+          encoder.writeString(value.toString());
+          break;
+        case ENUM:
+          encoder.writeEnum(schema.getEnumIndex(value.toString()));
+          break;
+        case ARRAY:
+          writeArray(schema.getComponentSchema(), value, name);
+          break;
+        case MAP:
+          Map<?, ?> map = (Map<?, ?>) value;
+          Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+          encoder.writeMapStart();
+          encoder.setItemCount(map.size());
+          for (Map.Entry<?, ?> entry : map.entrySet()) {
+            encoder.startItem();
+            writeValue(mapSchema.getKey(), entry.getKey(), name);
+            writeValue(mapSchema.getValue(), entry.getValue(), name);
+          }
+          encoder.writeMapEnd();
+          break;
+        case RECORD:
+          writeRecord(schema, (StructuredRecord) value);
+          break;
+        case UNION:
+          int index = getUnionIndex(schema, value, name);
+          encoder.writeIndex(index);
+          writeValue(schema.getUnionSchema(index), value, name);
+          break;
+        default:
+          throw new IllegalArgumentException(String.format("Field '%s' has unsupported type '%s'.",
+                                                           name, schema.getType()));
+      }
+    }
+
+    private void writeArray(Schema componentSchema, Object value, String name) throws IOException {
+      encoder.writeArrayStart();
+      if (value instanceof Collection) {
+        Collection<?> collection = (Collection<?>) value;
+        encoder.setItemCount(collection.size());
+        for (Object element : collection) {
+          encoder.startItem();
+          writeValue(componentSchema, element, name);
+        }
+      } else {
+        int length = Array.getLength(value);
+        encoder.setItemCount(length);
+        for (int i = 0; i < length; i++) {
+          encoder.startItem();
+          writeValue(componentSchema, Array.get(value, i), name);
+        }
+      }
+      encoder.writeArrayEnd();
+    }
+
+    private int getUnionIndex(Schema schema, Object value, String name) {
+      List<Schema> schemas = schema.getUnionSchemas();
+      for (int i = 0; i < schemas.size(); i++) {
+        if (matches(schemas.get(i).getType(), value)) {
+          return i;
+        }
+      }
+      throw new IllegalArgumentException(String.format("Value of field '%s' does not match any type in its union.",
+                                                       name));
+    }
+
+    private boolean matches(Schema.Type type, Object value) {
+      if (value == null) {
+        return type == Schema.Type.NULL;
+      }
+      switch (type) {
+        case NULL:
+          return false;
+        case BOOLEAN:
+          return value instanceof Boolean;
+        case INT:
+          return value instanceof Integer || value instanceof Short || value instanceof Byte;
+        case LONG:
+          return value instanceof Long || value instanceof Integer;
+        case FLOAT:
+          return value instanceof Float;
+        case DOUBLE:
+          return value instanceof Double || value instanceof Float;
+        case BYTES:
+          return value instanceof ByteBuffer || value instanceof byte[];
+        case STRING:
+        case ENUM:
+          return value instanceof CharSequence || value instanceof Enum;
+        case ARRAY:
+          return value instanceof Collection || value.getClass().isArray();
+        case MAP:
+          return value instanceof Map;
+        case RECORD:
+          return value instanceof StructuredRecord;
+        default:
+          return false;
+      }
+    }
+  }
+}
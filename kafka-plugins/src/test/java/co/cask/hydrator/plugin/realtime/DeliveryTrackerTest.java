@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.realtime;
+
+import co.cask.hydrator.common.test.MockStageMetrics;
+import org.apache.kafka.clients.producer.Callback;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link DeliveryTracker}.
+ */
+public class DeliveryTrackerTest {
+
+  @Test
+  public void testBoundedInFlight() throws Exception {
+    final DeliveryTracker tracker = new DeliveryTracker(2);
+    final Callback first = tracker.beforeSend();
+    tracker.beforeSend().onCompletion(null, null);
+
+    // the limit is reached until the first record completes
+    final CountDownLatch sent = new CountDownLatch(1);
+    Thread sender = new Thread() {
+      @Override
+      public void run() {
+        try {
+          tracker.beforeSend().onCompletion(null, null);
+          sent.countDown();
+        } catch (InterruptedException e) {
+          // test fails below
+        }
+      }
+    };
+    sender.start();
+    Callback second = tracker.beforeSend();
+    Assert.assertFalse(sent.await(200, TimeUnit.MILLISECONDS));
+    first.onCompletion(null, null);
+    second.onCompletion(null, null);
+    Assert.assertTrue(sent.await(10, TimeUnit.SECONDS));
+    sender.join();
+    tracker.awaitAll();
+
+    MockStageMetrics metrics = new MockStageMetrics("sink");
+    tracker.reportMetrics(metrics);
+    Assert.assertEquals(4, metrics.getCount(DeliveryTracker.SUCCESS_METRIC));
+    Assert.assertEquals(0, metrics.getCount(DeliveryTracker.ERROR_METRIC));
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    DeliveryTracker tracker = new DeliveryTracker(10);
+    tracker.beforeSend().onCompletion(null, null);
+    tracker.beforeSend().onCompletion(null, new IOException("broker down"));
+    try {
+      tracker.awaitAll();
+      Assert.fail("Expected the failed record to fail the batch");
+    } catch (IOException e) {
+      Assert.assertEquals("broker down", e.getCause().getMessage());
+    }
+    // the failure is only reported once
+    tracker.awaitAll();
+
+    MockStageMetrics metrics = new MockStageMetrics("sink");
+    tracker.reportMetrics(metrics);
+    Assert.assertEquals(1, metrics.getCount(DeliveryTracker.SUCCESS_METRIC));
+    Assert.assertEquals(1, metrics.getCount(DeliveryTracker.ERROR_METRIC));
+  }
+
+  @Test
+  public void testLatencyHistogram() {
+    DeliveryTracker tracker = new DeliveryTracker(10);
+    tracker.recordLatency(0);
+    tracker.recordLatency(5);
+    tracker.recordLatency(7);
+    tracker.recordLatency(6000);
+
+    MockStageMetrics metrics = new MockStageMetrics("sink");
+    tracker.reportMetrics(metrics);
+    Assert.assertEquals(2, metrics.getCount("kafka.send.latency.le.5ms"));
+    Assert.assertEquals(1, metrics.getCount("kafka.send.latency.le.10ms"));
+    Assert.assertEquals(1, metrics.getCount("kafka.send.latency.gt.5000ms"));
+    Assert.assertEquals(6000, metrics.getGauge(DeliveryTracker.MAX_LATENCY_METRIC));
+
+    // counters are reset once reported
+    metrics = new MockStageMetrics("sink");
+    tracker.reportMetrics(metrics);
+    Assert.assertEquals(0, metrics.getCount("kafka.send.latency.le.5ms"));
+    Assert.assertEquals(0, metrics.getGauge(DeliveryTracker.MAX_LATENCY_METRIC));
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.realtime;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FetchSizeController}.
+ */
+public class FetchSizeControllerTest {
+
+  private static final int MB = 1024 * 1024;
+
+  @Test
+  public void testGrowWhileKeepingUp() {
+    FetchSizeController controller = new FetchSizeController(100, 4 * MB);
+    Assert.assertEquals(2 * MB, controller.getNextFetchSize(MB, MB, 10, 50));
+    Assert.assertEquals(4 * MB, controller.getNextFetchSize(2 * MB, MB, 10, 50));
+    // capped at the maximum
+    Assert.assertEquals(4 * MB, controller.getNextFetchSize(4 * MB, 4 * MB, 10, 50));
+    // a fetch that returned less than half of the fetch size does not need more
+    Assert.assertEquals(MB, controller.getNextFetchSize(MB, 1000, 0, 50));
+  }
+
+  @Test
+  public void testShrinkWhenSlow() {
+    FetchSizeController controller = new FetchSizeController(100, 4 * MB);
+    Assert.assertEquals(MB / 2, controller.getNextFetchSize(MB, MB, 10, 200));
+    // never below the minimum
+    Assert.assertEquals(FetchSizeController.MIN_FETCH_SIZE,
+                        controller.getNextFetchSize(FetchSizeController.MIN_FETCH_SIZE, 1000, 10, 200));
+  }
+
+  @Test
+  public void testGrowWhenMessageDoesNotFit() {
+    FetchSizeController controller = new FetchSizeController(100, 4 * MB);
+    // nothing was returned although there are unread messages, even though the poll was slow
+    Assert.assertEquals(2 * MB, controller.getNextFetchSize(MB, 0, 1, 200));
+    // nothing returned because there is nothing to read
+    Assert.assertEquals(MB, controller.getNextFetchSize(MB, 0, 0, 50));
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.hydrator.plugin.realtime;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link RecordSerializer}.
+ */
+public class RecordSerializerTest {
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "input",
+    Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("c", Schema.of(Schema.Type.BYTES)),
+    Schema.Field.of("d", Schema.arrayOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("e", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("f", Schema.enumWith("x", "y")));
+
+  @Test
+  public void testCsv() throws Exception {
+    RecordSerializer serializer = RecordSerializer.create("CSV");
+    Assert.assertEquals("1,\"a, b\",2.5\r\n", toString(serializer.serialize(createRecord(1L, "a, b", 2.5))));
+    // the buffer is reused, so nothing of the previous record must remain
+    Assert.assertEquals("2,é,3.5\r\n", toString(serializer.serialize(createRecord(2L, "é", 3.5))));
+
+    // records with a different schema
+    Schema other = Schema.recordOf("other", Schema.Field.of("z", Schema.of(Schema.Type.STRING)));
+    StructuredRecord record = StructuredRecord.builder(other).set("z", "zz").build();
+    Assert.assertEquals("zz\r\n", toString(serializer.serialize(record)));
+
+    Assert.assertEquals("3\tc\t4.5\n", toString(RecordSerializer.create("mysql")
+                                                  .serialize(createRecord(3L, "c", 4.5))));
+    Assert.assertEquals("4,\"d, e\",5.5\r\n", toString(RecordSerializer.create("RFC4180")
+                                                        .serialize(createRecord(4L, "d, e", 5.5))));
+  }
+
+  @Test
+  public void testJson() throws Exception {
+    RecordSerializer serializer = RecordSerializer.create("json");
+    Assert.assertEquals("{\"a\":1,\"b\":\"x\",\"c\":2.5}", toString(serializer.serialize(createRecord(1L, "x", 2.5))));
+    Assert.assertEquals("{\"a\":2,\"b\":\"y\",\"c\":3.5}", toString(serializer.serialize(createRecord(2L, "y", 3.5))));
+  }
+
+  @Test
+  public void testAvro() throws Exception {
+    RecordSerializer serializer = RecordSerializer.create("AVRO");
+    // Avro requires a name for enums, which CDAP schemas do not have
+    String avroJson = SCHEMA.toString().replace("{\"type\":\"enum\",", "{\"type\":\"enum\",\"name\":\"f\",");
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(avroJson);
+    GenericDatumReader<GenericRecord> reader = new GenericDatumReader<>(avroSchema);
+
+    List<Integer> list = ImmutableList.of(1, 2, 3);
+    Map<String, Double> map = ImmutableMap.of("k", 1.5);
+    for (int i = 0; i < 2; i++) {
+      StructuredRecord record = StructuredRecord.builder(SCHEMA)
+        .set("a", (long) i)
+        .set("b", i == 0 ? null : "str")
+        .set("c", i == 0 ? new byte[] { 1, 2 } : ByteBuffer.wrap(new byte[] { 1, 2 }))
+        .set("d", i == 0 ? list : new int[] { 1, 2, 3 })
+        .set("e", map)
+        .set("f", "y")
+        .build();
+
+      byte[] bytes = serializer.serialize(record);
+      GenericRecord decoded = reader.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+      Assert.assertEquals((long) i, decoded.get("a"));
+      Assert.assertEquals(i == 0 ? null : "str", decoded.get("b") == null ? null : decoded.get("b").toString());
+      Assert.assertEquals(ByteBuffer.wrap(new byte[] { 1, 2 }), decoded.get("c"));
+      Assert.assertEquals(list, decoded.get("d"));
+      Map<?, ?> decodedMap = (Map<?, ?>) decoded.get("e");
+      Assert.assertEquals(1, decodedMap.size());
+      Assert.assertEquals(1.5, decodedMap.values().iterator().next());
+      Assert.assertEquals("y", decoded.get("f").toString());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidFormat() {
+    RecordSerializer.create("xml");
+  }
+
+  private StructuredRecord createRecord(long a, String b, double c) {
+    Schema schema = Schema.recordOf("simple",
+                                    Schema.Field.of("a", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("b", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("c", Schema.of(Schema.Type.DOUBLE)));
+    return StructuredRecord.builder(schema).set("a", a).set("b", b).set("c", c).build();
+  }
+
+  private String toString(byte[] bytes) {
+    return new String(bytes, Charsets.UTF_8);
+  }
+}
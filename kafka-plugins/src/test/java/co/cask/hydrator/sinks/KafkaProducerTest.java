@@ -91,9 +91,11 @@ public class KafkaProducerTest {
   public void testJSONPublish() throws Exception {
     String testTopic = "json";
 
-    KafkaProducer.Config sconfig = new KafkaProducer.Config(getBroker(), "TRUE", "c", "b", testTopic, "JSON");
+    KafkaProducer.Config sconfig = new KafkaProducer.Config(getBroker(), "TRUE", "c", "b", testTopic, "JSON",
+                                                            2, 5, null);
     RealtimeSink<StructuredRecord> kafkaproducer = new KafkaProducer(sconfig);
-    kafkaproducer.initialize(new MockRealtimeContext());
+    MockRealtimeContext context = new MockRealtimeContext();
+    kafkaproducer.initialize(context);
     
     List<StructuredRecord> input = Lists.newArrayList();
     input.add(StructuredRecord.builder(INPUT).set("a", 1L).set("b", "first").set("c", 1).set("d", 12.34)
@@ -105,6 +107,9 @@ public class KafkaProducerTest {
     input.add(StructuredRecord.builder(INPUT).set("a", 4L).set("b", "fourth").set("c", 4).set("d", 15.34)
                 .set("e", true).build());
     kafkaproducer.write(input, null);
+    // the write only returns once all records are acknowledged
+    Assert.assertEquals(4, context.getMockMetrics().getCount("kafka.async.success"));
+    Assert.assertEquals(0, context.getMockMetrics().getCount("kafka.async.error"));
     
     final CountDownLatch latch = new CountDownLatch(input.size());
     final List<String> consumedMessages = new ArrayList<String>(input.size());
@@ -387,10 +392,10 @@ public class KafkaProducerTest {
       });
     latch.await();
     Assert.assertEquals(4L, consumedMessages.size());
-    Assert.assertEquals("4\tfourth 4\t4\t15.342423442424\ttrue\r\n", consumedMessages.get(0));
-    Assert.assertEquals("1\tfirst 1\t1\t1.0000332\tfalse\r\n", consumedMessages.get(1));
-    Assert.assertEquals("2\tsecond 2\t2\t13.34\ttrue\r\n", consumedMessages.get(2));
-    Assert.assertEquals("3\tthird 3\t3\t14.34\tfalse\r\n", consumedMessages.get(3));
+    Assert.assertEquals("4,fourth 4,4,15.342423442424,true\r\n", consumedMessages.get(0));
+    Assert.assertEquals("1,first 1,1,1.0000332,false\r\n", consumedMessages.get(1));
+    Assert.assertEquals("2,second 2,2,13.34,true\r\n", consumedMessages.get(2));
+    Assert.assertEquals("3,third 3,3,14.34,false\r\n", consumedMessages.get(3));
     kafkaproducer.destroy();
   }  
   
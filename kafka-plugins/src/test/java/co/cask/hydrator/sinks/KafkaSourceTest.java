@@ -16,8 +16,10 @@
 
 package co.cask.hydrator.sinks;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.format.Formats;
 import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.etl.api.Emitter;
 import co.cask.cdap.etl.api.InvalidEntry;
 import co.cask.cdap.etl.api.realtime.SourceState;
@@ -46,6 +48,7 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -165,6 +168,31 @@ public class KafkaSourceTest {
     verifyEmittedMessages(kafkaSource, msgCount, sourceState);
   }
 
+  @Test
+  public void testConsecutivePolls() throws Exception {
+    final String topic = "testKafkaConsecutivePolls";
+    initializeKafkaSource(topic, PARTITIONS, false);
+
+    Map<String, String> messages = Maps.newHashMap();
+    for (int i = 0; i < 5; i++) {
+      messages.put(Integer.toString(i), "Message " + i);
+    }
+    sendMessage(topic, messages);
+    TimeUnit.SECONDS.sleep(2);
+    SourceState sourceState = new SourceState();
+    verifyEmittedMessages(kafkaSource, 5, sourceState);
+
+    // the next fetch is started at the end of a poll, before these messages are sent
+    sendMessage(topic, messages);
+    TimeUnit.SECONDS.sleep(2);
+    verifyEmittedMessages(kafkaSource, 5, sourceState);
+
+    // nothing new
+    MockEmitter emitter = new MockEmitter();
+    kafkaSource.poll(emitter, sourceState);
+    Assert.assertEquals(0, emitter.getInternalSize());
+  }
+
   @Test
   public void testStructuredRecord() throws Exception {
     final String topic = "testKafkaStructuredRecord";
@@ -191,6 +219,65 @@ public class KafkaSourceTest {
     Assert.assertTrue(((String) emitter.entryList.get(0).get("body")).contains("Message"));
   }
 
+  @Test
+  public void testFormatFallback() throws Exception {
+    final String topic = "testKafkaFormatFallback";
+    Schema schema = Schema.recordOf("number", Schema.Field.of("num", Schema.of(Schema.Type.INT)));
+    KafkaSource.KafkaPluginConfig config = new KafkaSource.KafkaPluginConfig(null, "localhost:" + kafkaPort,
+                                                                             PARTITIONS, topic, null, Formats.CSV,
+                                                                             schema.toString());
+    kafkaSource = new KafkaSource(config);
+    MockRealtimeContext context = new MockRealtimeContext();
+    kafkaSource.initialize(context);
+
+    Map<String, String> messages = Maps.newHashMap();
+    messages.put("0", "5");
+    messages.put("1", "not a number");
+    sendMessage(topic, messages);
+
+    TimeUnit.SECONDS.sleep(2);
+
+    MockEmitter emitter = new MockEmitter();
+    kafkaSource.poll(emitter, new SourceState());
+    Assert.assertEquals(2, emitter.getInternalSize());
+    int parsed = 0;
+    for (StructuredRecord record : emitter.entryList) {
+      if (record.getSchema().equals(schema)) {
+        Assert.assertEquals(5, record.<Integer>get("num").intValue());
+        parsed++;
+      } else {
+        Assert.assertEquals("not a number", Bytes.toString((ByteBuffer) record.get(KafkaSource.MESSAGE)));
+      }
+    }
+    Assert.assertEquals(1, parsed);
+    Assert.assertEquals(1, context.getMockMetrics().getCount(KafkaSource.FORMAT_FALLBACK_METRIC));
+  }
+
+  @Test
+  public void testAdaptiveFetchSizeMetrics() throws Exception {
+    final String topic = "testKafkaAdaptiveFetchSize";
+    KafkaSource.KafkaPluginConfig config = new KafkaSource.KafkaPluginConfig(null, "localhost:" + kafkaPort,
+                                                                             PARTITIONS, topic, null, null, null,
+                                                                             60000L, 4 * 1024 * 1024);
+    kafkaSource = new KafkaSource(config);
+    MockRealtimeContext context = new MockRealtimeContext();
+    kafkaSource.initialize(context);
+
+    Map<String, String> messages = Maps.newHashMap();
+    for (int i = 0; i < 5; i++) {
+      messages.put(Integer.toString(i), "Message " + i);
+    }
+    sendMessage(topic, messages);
+    TimeUnit.SECONDS.sleep(2);
+
+    verifyEmittedMessages(kafkaSource, 5, new SourceState());
+    // the payloads alone are 9 bytes each
+    Assert.assertTrue(context.getMockMetrics().getCount("bytes.read") >= 45);
+    Assert.assertEquals(5, context.getMockMetrics().getGauge(topic + ".partition.0.lag"));
+    // the messages only filled a small part of the fetch, so the fetch size stays at its default of 1 MB
+    Assert.assertEquals(1024 * 1024, context.getMockMetrics().getGauge(topic + ".partition.0.fetch.size"));
+  }
+
   @Test(timeout = 5000, expected = IllegalArgumentException.class)
   public void testInvalidZKStr() throws Exception {
     String zk = "localhost:" + Networks.getRandomPort();